@@ -0,0 +1,153 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.async;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11AsyncAPI;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11Provider;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11ServiceLocator;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the blocking Chapter11API calls on a bounded thread pool. When the pool queue is full, the returned future
+ * fails right away with a RejectedExecutionException instead of blocking the caller. The pool is configured with the
+ * "chapter11.async.threads" and "chapter11.async.queue-capacity" system properties.
+ *
+ * The default constructor creates the pool, so this provider owns it and "close()" shuts it down. Its threads are
+ * daemons and exit after a minute without work, so a provider cached by the Chapter11ServiceLocator and never closed
+ * neither keeps the JVM alive nor holds idle threads. An executor passed to the constructor belongs to the caller, and
+ * "close()" leaves it running.
+ */
+@Chapter11Provider(name = "async")
+public class Chapter11AsyncAPIImpl implements Chapter11AsyncAPI, AutoCloseable {
+
+    public static final String THREADS_PROPERTY = "chapter11.async.threads";
+    public static final String QUEUE_CAPACITY_PROPERTY = "chapter11.async.queue-capacity";
+
+    private final Chapter11API api;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+
+    public Chapter11AsyncAPIImpl() {
+        this(Chapter11ServiceLocator.getApiImpl(), newBoundedExecutor(
+                Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger(QUEUE_CAPACITY_PROPERTY, 1_024)), true);
+    }
+
+    public Chapter11AsyncAPIImpl(Chapter11API api, ExecutorService executor) {
+        this(api, executor, false);
+    }
+
+    Chapter11AsyncAPIImpl(Chapter11API api, ExecutorService executor, boolean ownsExecutor) {
+        this.api = Objects.requireNonNull(api, "The API implementation is required.");
+        this.executor = Objects.requireNonNull(executor, "The executor is required.");
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public static ExecutorService newBoundedExecutor(int threads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "chapter11-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), factory, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Shuts down the pool created by the default constructor, interrupting the pending lookups. Does nothing when the
+     * executor was passed to the constructor.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<Actor>> findAll(Duration timeout) {
+        return submit(api::findAll, timeout);
+    }
+
+    @Override
+    public CompletableFuture<Actor> findByPersonage(String personage, Duration timeout) {
+        return submit(() -> api.findByPersonage(personage), timeout);
+    }
+
+    /**
+     * Runs one lookup per distinct personage in parallel, and gathers the hits when all of them are done. If the
+     * timeout expires first, or the returned future is cancelled, the lookups still pending are cancelled too.
+     */
+    @Override
+    public CompletableFuture<Map<String, Actor>> findByPersonagesConcurrently(Collection<String> personages,
+                                                                              Duration timeout) {
+        Map<String, CompletableFuture<Actor>> lookups = new HashMap<>();
+        for (String personage : personages) {
+            lookups.computeIfAbsent(personage, key -> submit(() -> api.findByPersonage(key), timeout));
+        }
+        CompletableFuture<Map<String, Actor>> result = CompletableFuture
+                .allOf(lookups.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<String, Actor> actors = new HashMap<>();
+                    lookups.forEach((personage, lookup) -> {
+                        Actor actor = lookup.join();
+                        if (actor != null) {
+                            actors.put(personage, actor);
+                        }
+                    });
+                    return actors;
+                });
+        result.whenComplete((actors, error) -> {
+            if (error != null) {
+                lookups.values().forEach(lookup -> lookup.cancel(true));
+            }
+        });
+        return result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The CompletableFuture can't interrupt the thread that computes it, so we keep the Future of the executor and
+     * cancel it when the call times out or when the caller cancels the returned future.
+     */
+    private <T> CompletableFuture<T> submit(Callable<T> call, Duration timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    result.complete(call.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                task.cancel(true);
+            }
+        });
+        return result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+}
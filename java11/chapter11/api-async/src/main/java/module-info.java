@@ -0,0 +1,4 @@
+module com.hiperium.java.cert.prep.chapter.eleven.api.async { // module name should avoid terminal digits
+    requires com.hiperium.java.cert.prep.chapter.eleven.api;
+    provides com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11AsyncAPI with com.hiperium.java.cert.prep.chapter._11_Modules.api.async.Chapter11AsyncAPIImpl;
+}
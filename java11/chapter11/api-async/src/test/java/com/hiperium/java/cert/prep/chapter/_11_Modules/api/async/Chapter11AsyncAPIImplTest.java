@@ -0,0 +1,133 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.async;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class Chapter11AsyncAPIImplTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private final ExecutorService executor = Chapter11AsyncAPIImpl.newBoundedExecutor(2, 1);
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The personages that start with "Slow" block until the lookup is interrupted.
+     */
+    private Chapter11API stubApi() {
+        return (Chapter11API) Proxy.newProxyInstance(Chapter11API.class.getClassLoader(),
+                new Class<?>[]{Chapter11API.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAll")) {
+                        return List.of(new Actor(1, "Jim Parsons", "Sheldon Cooper", "Theoretical Physicist"));
+                    }
+                    if (method.getName().equals("findByPersonage")) {
+                        String personage = (String) args[0];
+                        if (personage.startsWith("Slow")) {
+                            try {
+                                TimeUnit.MINUTES.sleep(1);
+                            } catch (InterruptedException e) {
+                                interrupted.countDown();
+                                throw e;
+                            }
+                        }
+                        return personage.startsWith("Sheldon")
+                                ? new Actor(1, "Jim Parsons", "Sheldon Cooper", "Theoretical Physicist") : null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Test
+    public void findByPersonage() throws Exception {
+        var asyncApi = new Chapter11AsyncAPIImpl(stubApi(), executor);
+        Assert.assertEquals(1, asyncApi.findByPersonage("Sheldon", TIMEOUT).get().id);
+        Assert.assertNull(asyncApi.findByPersonage("Stuart", TIMEOUT).get());
+        Assert.assertEquals(1, asyncApi.findAll(TIMEOUT).get().size());
+    }
+
+    @Test
+    public void timeoutInterruptsTheLookup() throws Exception {
+        var asyncApi = new Chapter11AsyncAPIImpl(stubApi(), executor);
+        CompletableFuture<Actor> future = asyncApi.findByPersonage("Slow", Duration.ofMillis(50));
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class, future::get);
+        Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelInterruptsTheLookup() throws Exception {
+        var asyncApi = new Chapter11AsyncAPIImpl(stubApi(), executor);
+        CompletableFuture<Actor> future = asyncApi.findByPersonage("Slow", TIMEOUT);
+        TimeUnit.MILLISECONDS.sleep(50);
+        Assert.assertTrue(future.cancel(true));
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void fullQueueRejectsTheCall() {
+        var asyncApi = new Chapter11AsyncAPIImpl(stubApi(), executor);
+        List<CompletableFuture<Actor>> slowLookups = List.of(
+                asyncApi.findByPersonage("Slow 1", TIMEOUT),
+                asyncApi.findByPersonage("Slow 2", TIMEOUT),
+                asyncApi.findByPersonage("Slow 3", TIMEOUT));
+        CompletableFuture<Actor> rejected = asyncApi.findByPersonage("Sheldon", TIMEOUT);
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class, rejected::get);
+        Assert.assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        slowLookups.forEach(lookup -> lookup.cancel(true));
+    }
+
+    @Test
+    public void findByPersonagesConcurrently() throws Exception {
+        var asyncApi = new Chapter11AsyncAPIImpl(stubApi(), Chapter11AsyncAPIImpl.newBoundedExecutor(4, 16));
+        Map<String, Actor> actors = asyncApi
+                .findByPersonagesConcurrently(List.of("Sheldon", "Sheldon Cooper", "Stuart"), TIMEOUT).get();
+        Assert.assertEquals(2, actors.size());
+        Assert.assertNull(actors.get("Stuart"));
+
+        CompletableFuture<Map<String, Actor>> slow = asyncApi
+                .findByPersonagesConcurrently(List.of("Sheldon", "Slow"), Duration.ofMillis(50));
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class, slow::get);
+        Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void closeShutsDownOnlyAnOwnedExecutor() throws Exception {
+        var borrowing = new Chapter11AsyncAPIImpl(stubApi(), executor);
+        borrowing.close();
+        Assert.assertFalse(executor.isShutdown());
+        Assert.assertEquals(1, borrowing.findByPersonage("Sheldon", TIMEOUT).get().id);
+
+        ExecutorService owned = Chapter11AsyncAPIImpl.newBoundedExecutor(1, 1);
+        try (var owning = new Chapter11AsyncAPIImpl(stubApi(), owned, true)) {
+            CompletableFuture<Actor> slow = owning.findByPersonage("Slow", TIMEOUT);
+            TimeUnit.MILLISECONDS.sleep(50);
+            owning.close();
+            Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(owned.awaitTermination(5, TimeUnit.SECONDS));
+            ExecutionException exception = Assert.assertThrows(ExecutionException.class,
+                    owning.findByPersonage("Sheldon", TIMEOUT)::get);
+            Assert.assertTrue(exception.getCause() instanceof RejectedExecutionException);
+            slow.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.bench;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the benchmarks once per thread count, and writes all the results to a single JSON file, so the files of two
+ * releases can be compared. It accepts the usual JMH arguments, like a benchmark regex or "-p catalogSize=1000":
+ *
+ * java -Dchapter11.bench.threads=1,4 -Dchapter11.bench.result=results.json -jar chapter11-benchmarks.jar findBy
+ */
+public final class BenchmarkRunner {
+
+    public static final String THREADS_PROPERTY = "chapter11.bench.threads";
+    public static final String RESULT_PROPERTY = "chapter11.bench.result";
+
+    private BenchmarkRunner() {
+        // Nothing to implement
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        List<RunResult> results = new ArrayList<>();
+        for (String threads : System.getProperty(THREADS_PROPERTY, "1,4").split(",")) {
+            results.addAll(new Runner(new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .build()).run());
+        }
+        Path file = Path.of(System.getProperty(RESULT_PROPERTY, "chapter11-bench.json"));
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), true, StandardCharsets.UTF_8)) {
+            ResultFormatFactory.getInstance(ResultFormatType.JSON, out).writeOut(results);
+        }
+        System.out.println("Benchmark results written to: " + file.toAbsolutePath());
+    }
+}
@@ -0,0 +1,57 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.bench;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.dao.Chapter11APIDAO;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11ServiceLocator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Loads the synthetic actors in the DAO singleton, on top of the seeded cast, and picks the personages to look up.
+ * JMH runs every trial in a new JVM, so each catalog size starts from an empty singleton. The "dao" target calls the
+ * DAO directly, and the "impl" target calls the Chapter11APIImpl provider returned by the service locator.
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+
+    static final int KEYS = 1_024;
+    private static final int FIRST_ID = 1_000;
+    private static final String[] ROLES = {"Experimental Physicist", "Theoretical Physicist", "Aerospace Engineer",
+            "Astrophysicist", "Ph.D. in Microbiology", "Ph.D. in Neurobiology"};
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    @Param({"dao", "impl"})
+    public String target;
+
+    Chapter11API api;
+    final String[] hits = new String[KEYS];
+    final String[] misses = new String[KEYS];
+
+    @Setup(Level.Trial)
+    public void loadCatalog() {
+        Chapter11APIDAO dao = Chapter11APIDAO.getInstance();
+        for (int id = FIRST_ID; id < FIRST_ID + catalogSize; id++) {
+            dao.add(new Actor(id, "Actor " + id, personage(id), ROLES[id % ROLES.length]));
+        }
+        api = "dao".equals(target) ? dao : Chapter11ServiceLocator.getApiImpl("dao");
+        Random random = new Random(catalogSize);
+        for (int i = 0; i < KEYS; i++) {
+            int id = FIRST_ID + random.nextInt(catalogSize);
+            hits[i] = personage(id);
+            // Sorts right after an existing personage, so the miss walks the same part of the index as a hit.
+            misses[i] = personage(id) + "X";
+        }
+    }
+
+    private static String personage(int id) {
+        return String.format("Personage %07d", id);
+    }
+}
@@ -0,0 +1,46 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.bench;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read operations of the Chapter11API over the DAO, for every catalog size and target of the CatalogState. Every
+ * benchmark thread walks the keys with its own counter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Chapter11APIBenchmark {
+
+    private int next;
+
+    @Benchmark
+    public Actor findByPersonageHit(CatalogState catalog) {
+        return catalog.api.findByPersonage(catalog.hits[next++ & (CatalogState.KEYS - 1)]);
+    }
+
+    @Benchmark
+    public Actor findByPersonageMiss(CatalogState catalog) {
+        return catalog.api.findByPersonage(catalog.misses[next++ & (CatalogState.KEYS - 1)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Actor> findAll(CatalogState catalog) {
+        return catalog.api.findAll();
+    }
+}
@@ -0,0 +1,51 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.bench;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11ServiceLocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the provider lookups of the service locator. The cold resolution is the first lookup of a new JVM, which
+ * discovers the providers with the ServiceLoader and instantiates the default one, so it is measured once per fork.
+ * The warm lookups return the cached provider.
+ */
+public class ServiceLocatorBenchmark {
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(20)
+    public Chapter11API coldResolution() {
+        return Chapter11ServiceLocator.getApiImpl();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public Chapter11API warmDefaultLookup() {
+        return Chapter11ServiceLocator.getApiImpl();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public Chapter11API warmNamedLookup() {
+        return Chapter11ServiceLocator.getApiImpl("dao");
+    }
+}
@@ -0,0 +1,50 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.bench;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write throughput and read latency of the sharded API for every shard count of the ShardedCatalogState. Run with
+ * several threads, like "-Dchapter11.bench.threads=1,4,8", the updates of the threads only contend when they go to
+ * the same shard, while the reads pay the fan-out to all the shards.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShardedAPIBenchmark {
+
+    private int next;
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean update(ShardedCatalogState catalog) {
+        return catalog.api.update(catalog.updates[next++ & (ShardedCatalogState.KEYS - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Actor findByPersonage(ShardedCatalogState catalog) {
+        return catalog.api.findByPersonage(catalog.hits[next++ & (ShardedCatalogState.KEYS - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Actor> findAll(ShardedCatalogState catalog) {
+        return catalog.api.findAll();
+    }
+}
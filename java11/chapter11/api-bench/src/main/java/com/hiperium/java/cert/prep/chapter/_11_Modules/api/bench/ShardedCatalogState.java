@@ -0,0 +1,61 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.bench;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.shard.Chapter11ShardedAPI;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Loads the synthetic actors in a sharded API with every shard count, and picks the ids to update and the personages
+ * to look up. A shard count of 1 is a single DAO behind the same fan-out code.
+ */
+@State(Scope.Benchmark)
+public class ShardedCatalogState {
+
+    static final int KEYS = 1_024;
+    private static final String[] ROLES = {"Experimental Physicist", "Theoretical Physicist", "Aerospace Engineer",
+            "Astrophysicist", "Ph.D. in Microbiology", "Ph.D. in Neurobiology"};
+
+    @Param({"100000", "1000000"})
+    public int catalogSize;
+
+    @Param({"1", "2", "4", "8"})
+    public int shardCount;
+
+    Chapter11ShardedAPI api;
+    final Actor[] updates = new Actor[KEYS];
+    final String[] hits = new String[KEYS];
+
+    @Setup(Level.Trial)
+    public void loadCatalog() {
+        List<Actor> actors = new ArrayList<>(catalogSize);
+        for (int id = 1; id <= catalogSize; id++) {
+            actors.add(new Actor(id, "Actor " + id, personage(id), ROLES[id % ROLES.length]));
+        }
+        api = new Chapter11ShardedAPI(shardCount, actors);
+        Random random = new Random(catalogSize);
+        for (int i = 0; i < KEYS; i++) {
+            int id = 1 + random.nextInt(catalogSize);
+            // Renames the personage, so every update maintains the personage index as well.
+            updates[i] = new Actor(id, "Actor " + id, personage(id) + " " + i, ROLES[i % ROLES.length]);
+            hits[i] = personage(1 + random.nextInt(catalogSize));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        api.close();
+    }
+
+    private static String personage(int id) {
+        return String.format("Personage %07d", id);
+    }
+}
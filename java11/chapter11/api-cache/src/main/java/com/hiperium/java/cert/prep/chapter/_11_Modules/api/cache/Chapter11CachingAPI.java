@@ -0,0 +1,263 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.cache;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.query.ActorQuery;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11Provider;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11ServiceLocator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache in front of another Chapter11API provider. Only the personage lookups are cached, including the
+ * misses unless the negative caching is disabled. The other reads go straight to the wrapped provider.
+ *
+ * The wrapped provider is the one named by the "chapter11.cache.delegate" system property, or else the provider with
+ * the highest priority after this one. The cache is configured with the "chapter11.cache.max-size",
+ * "chapter11.cache.ttl-millis" (0 means no expiration) and "chapter11.cache.negative" system properties. An expired
+ * entry is removed when it's read.
+ *
+ * The cache tags every lookup with the id of the actor that it returned, so a write removes the lookups of that actor
+ * through the side index of the cache, without scanning it.
+ */
+@Chapter11Provider(name = "cache")
+public class Chapter11CachingAPI implements Chapter11API {
+
+    public static final String NAME = "cache";
+    public static final String DELEGATE_PROPERTY = "chapter11.cache.delegate";
+    public static final String MAX_SIZE_PROPERTY = "chapter11.cache.max-size";
+    public static final String TTL_PROPERTY = "chapter11.cache.ttl-millis";
+    public static final String NEGATIVE_PROPERTY = "chapter11.cache.negative";
+
+    private final Chapter11API delegate;
+    private final LruCache<String, CachedLookup> cache;
+    private final long ttlNanos;
+    private final boolean cacheMisses;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * A lookup only stores what it read from the wrapped provider when no write was in progress when it started, and
+     * no write has started since then. So a slow lookup can't put back an entry that a write has just invalidated.
+     */
+    private final AtomicLong writesStarted = new AtomicLong();
+    private final AtomicLong writesFinished = new AtomicLong();
+
+    public Chapter11CachingAPI() {
+        this(Chapter11ServiceLocator.getApiImpl(System.getProperty(DELEGATE_PROPERTY, defaultDelegateName())),
+                Integer.getInteger(MAX_SIZE_PROPERTY, 10_000),
+                Duration.ofMillis(Long.getLong(TTL_PROPERTY, 0L)),
+                Boolean.parseBoolean(System.getProperty(NEGATIVE_PROPERTY, "true")));
+    }
+
+    public Chapter11CachingAPI(Chapter11API delegate, int maxSize, Duration ttl, boolean cacheMisses) {
+        this.delegate = Objects.requireNonNull(delegate, "The wrapped API implementation is required.");
+        this.cache = new LruCache<>(maxSize, cached -> cached.actor == null ? null : cached.actor.id);
+        this.ttlNanos = ttl.toNanos();
+        this.cacheMisses = cacheMisses;
+    }
+
+    private static String defaultDelegateName() {
+        for (String name : Chapter11ServiceLocator.getApiImplNames()) {
+            if (!NAME.equals(name)) {
+                return name;
+            }
+        }
+        throw new IllegalStateException("There is no API Service Implementation to cache.");
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), cache.evictions(), expirations.sum(), cache.size());
+    }
+
+    @Override
+    public List<Actor> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Actor> findPage(int afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Stream<Actor> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public Actor findByPersonage(String personage) {
+        CachedLookup cached = lookup(personage);
+        if (cached != null) {
+            return copyOf(cached.actor);
+        }
+        long writesBefore = quietWriteCount();
+        Actor actor = delegate.findByPersonage(personage);
+        store(personage, actor, writesBefore);
+        return actor;
+    }
+
+    @Override
+    public List<Actor> findAllByPersonagePrefix(String prefix) {
+        return delegate.findAllByPersonagePrefix(prefix);
+    }
+
+    /**
+     * Answers the cached personages, and resolves the rest with one batch call to the wrapped provider.
+     */
+    @Override
+    public Map<String, Actor> findByPersonages(Collection<String> personages) {
+        Map<String, Actor> result = new HashMap<>();
+        Set<String> pending = new LinkedHashSet<>();
+        for (String personage : personages) {
+            CachedLookup cached = lookup(personage);
+            if (cached == null) {
+                pending.add(personage);
+            } else if (cached.actor != null) {
+                result.put(personage, copyOf(cached.actor));
+            }
+        }
+        if (!pending.isEmpty()) {
+            long writesBefore = quietWriteCount();
+            Map<String, Actor> found = delegate.findByPersonages(pending);
+            for (String personage : pending) {
+                store(personage, found.get(personage), writesBefore);
+            }
+            result.putAll(found);
+        }
+        return result;
+    }
+
+    /**
+     * The searches are not cached, since any write could change their results.
+     */
+    @Override
+    public List<Actor> search(String text, int limit) {
+        return delegate.search(text, limit);
+    }
+
+    @Override
+    public List<Actor> findAllByFoldedPrefix(String prefix, int limit) {
+        return delegate.findAllByFoldedPrefix(prefix, limit);
+    }
+
+    @Override
+    public List<Actor> query(ActorQuery query) {
+        return delegate.query(query);
+    }
+
+    @Override
+    public boolean add(Actor actor) {
+        writesStarted.incrementAndGet();
+        try {
+            return delegate.add(actor);
+        } finally {
+            invalidate(actor);
+            writesFinished.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean update(Actor actor) {
+        writesStarted.incrementAndGet();
+        try {
+            return delegate.update(actor);
+        } finally {
+            invalidate(actor);
+            writesFinished.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean remove(int id) {
+        writesStarted.incrementAndGet();
+        try {
+            return delegate.remove(id);
+        } finally {
+            cache.removeTagged(id);
+            writesFinished.incrementAndGet();
+        }
+    }
+
+    /**
+     * The lookups that returned the old version of the actor are removed, and so are the lookups of every prefix of
+     * its new personage, because the new personage may now be their first match, or their only one.
+     */
+    private void invalidate(Actor actor) {
+        cache.removeTagged(actor.id);
+        for (int length = 0; length <= actor.personage.length(); length++) {
+            cache.remove(actor.personage.substring(0, length));
+        }
+    }
+
+    /**
+     * Returns the number of started writes, or -1 when a write is in progress.
+     */
+    private long quietWriteCount() {
+        long started = writesStarted.get();
+        return writesFinished.get() == started ? started : -1;
+    }
+
+    private CachedLookup lookup(String personage) {
+        CachedLookup cached = cache.get(personage);
+        if (cached != null && ttlNanos > 0 && cached.expiresAt - System.nanoTime() < 0) {
+            if (cache.remove(personage, cached)) {
+                expirations.increment();
+            }
+            cached = null;
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached;
+    }
+
+    /**
+     * A write can start between the check and the put, so the count is checked again after the put.
+     */
+    private void store(String personage, Actor actor, long writesBefore) {
+        if ((actor == null && !cacheMisses) || writesBefore < 0 || writesStarted.get() != writesBefore) {
+            return;
+        }
+        cache.put(personage, new CachedLookup(copyOf(actor), System.nanoTime() + ttlNanos));
+        if (writesStarted.get() != writesBefore) {
+            cache.remove(personage);
+        }
+    }
+
+    /**
+     * The fields of an actor are public, so the cache keeps its own copy of the actors it stores, and every hit
+     * returns a new copy. A caller that changes the actor it got can't change what the next callers get.
+     */
+    private static Actor copyOf(Actor actor) {
+        return actor == null ? null : new Actor(actor.id, actor.name, actor.personage, actor.role);
+    }
+
+    /**
+     * A null actor is a cached miss.
+     */
+    private static final class CachedLookup {
+
+        private final Actor actor;
+        private final long expiresAt;
+
+        private CachedLookup(Actor actor, long expiresAt) {
+            this.actor = actor;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.cache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache. The keys are spread over several segments, and every segment is a LinkedHashMap in access
+ * order with its own lock, so the threads that read different keys rarely wait for each other. Every segment evicts
+ * its own least recently used entry, so the small caches have a single segment to keep the exact LRU order.
+ *
+ * A value can have a tag, like the id of the actor that a lookup returned. The keys of every tag are kept in a side
+ * index, updated under the lock of the segment that holds the key, so all the entries of a tag are removed without
+ * scanning the cache.
+ */
+class LruCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+    private static final int MIN_SEGMENTED_SIZE = 1_024;
+
+    private final Segment<K, V>[] segments;
+    private final Function<? super V, ?> tagOf;
+    private final Map<Object, Set<K>> keysByTag = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * The tag function returns null for the values without a tag.
+     */
+    @SuppressWarnings("unchecked")
+    LruCache(int maxSize, Function<? super V, ?> tagOf) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The cache size must be positive: " + maxSize);
+        }
+        this.tagOf = tagOf;
+        int segmentCount = maxSize < MIN_SEGMENTED_SIZE ? 1 : SEGMENTS;
+        int segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentSize, this::evicted);
+        }
+    }
+
+    V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            V previous = segment.put(key, value);
+            if (previous != null) {
+                untag(key, previous);
+            }
+            tag(key, value);
+        }
+    }
+
+    void remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            V previous = segment.remove(key);
+            if (previous != null) {
+                untag(key, previous);
+            }
+        }
+    }
+
+    /**
+     * Removes the key only while it still holds the given value, and returns whether it was removed.
+     */
+    boolean remove(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            if (segment.remove(key, value)) {
+                untag(key, value);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Removes every entry whose value has the tag.
+     */
+    void removeTagged(Object tag) {
+        Set<K> keys = keysByTag.get(tag);
+        if (keys == null) {
+            return;
+        }
+        for (K key : List.copyOf(keys)) {
+            Segment<K, V> segment = segmentFor(key);
+            synchronized (segment) {
+                V value = segment.get(key);
+                if (value != null && tag.equals(tagOf.apply(value))) {
+                    segment.remove(key);
+                    untag(key, value);
+                }
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of tags in the side index, which is never greater than the size of the cache.
+     */
+    int tagCount() {
+        return keysByTag.size();
+    }
+
+    private void evicted(K key, V value) {
+        evictions.increment();
+        untag(key, value);
+    }
+
+    /**
+     * The set of a tag is only changed inside "compute()", so a set that becomes empty can't be removed from the index
+     * while another key is added to it.
+     */
+    private void tag(K key, V value) {
+        Object tag = tagOf.apply(value);
+        if (tag != null) {
+            keysByTag.compute(tag, (ignored, keys) -> {
+                Set<K> result = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+                result.add(key);
+                return result;
+            });
+        }
+    }
+
+    private void untag(K key, V value) {
+        Object tag = tagOf.apply(value);
+        if (tag != null) {
+            keysByTag.computeIfPresent(tag, (ignored, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private final int maxSize;
+        private final BiConsumer<K, V> onEviction;
+
+        private Segment(int maxSize, BiConsumer<K, V> onEviction) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+            this.onEviction = onEviction;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > maxSize) {
+                onEviction.accept(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+module com.hiperium.java.cert.prep.chapter.eleven.api.cache { // module name should avoid terminal digits
+    requires com.hiperium.java.cert.prep.chapter.eleven.api;
+    exports com.hiperium.java.cert.prep.chapter._11_Modules.api.cache;
+    provides com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API with com.hiperium.java.cert.prep.chapter._11_Modules.api.cache.Chapter11CachingAPI;
+}
@@ -0,0 +1,142 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.cache;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.dao.Chapter11APIDAO;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Chapter11CachingAPITest {
+
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+
+    /**
+     * Wraps the in-memory DAO, counting the calls that reach it.
+     */
+    private Chapter11API countingDao() {
+        Chapter11APIDAO dao = Chapter11APIDAO.getInstance();
+        return (Chapter11API) Proxy.newProxyInstance(Chapter11API.class.getClassLoader(),
+                new Class<?>[]{Chapter11API.class}, (proxy, method, args) -> {
+                    delegateCalls.incrementAndGet();
+                    try {
+                        return method.invoke(dao, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @Test
+    public void hitsAndNegativeCaching() {
+        var api = new Chapter11CachingAPI(countingDao(), 100, Duration.ZERO, true);
+        Assert.assertEquals("Jim Parsons", api.findByPersonage("Sheldon").name);
+        Assert.assertEquals("Jim Parsons", api.findByPersonage("Sheldon").name);
+        Assert.assertNull(api.findByPersonage("Barry Kripke"));
+        Assert.assertNull(api.findByPersonage("Barry Kripke"));
+        Assert.assertEquals(2, delegateCalls.get());
+        CacheStats stats = api.stats();
+        Assert.assertEquals(2, stats.getHits());
+        Assert.assertEquals(2, stats.getMisses());
+        Assert.assertEquals(2, stats.getSize());
+        Assert.assertEquals(0.5, stats.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void callersCantChangeTheCachedActors() {
+        var api = new Chapter11CachingAPI(countingDao(), 100, Duration.ZERO, true);
+        api.findByPersonage("Sheldon").name = "Changed by the first caller";
+        Actor hit = api.findByPersonage("Sheldon");
+        Assert.assertEquals("Jim Parsons", hit.name);
+        hit.name = "Changed by the second caller";
+        Assert.assertEquals("Jim Parsons", api.findByPersonages(List.of("Sheldon")).get("Sheldon").name);
+        api.findByPersonages(List.of("Sheldon")).get("Sheldon").name = "Changed by the third caller";
+        Assert.assertEquals("Jim Parsons", api.findByPersonage("Sheldon").name);
+        Assert.assertEquals(1, delegateCalls.get());
+    }
+
+    @Test
+    public void missesAreNotCachedWhenNegativeCachingIsDisabled() {
+        var api = new Chapter11CachingAPI(countingDao(), 100, Duration.ZERO, false);
+        Assert.assertNull(api.findByPersonage("Barry Kripke"));
+        Assert.assertNull(api.findByPersonage("Barry Kripke"));
+        Assert.assertEquals(2, delegateCalls.get());
+    }
+
+    @Test
+    public void entriesExpire() throws InterruptedException {
+        var api = new Chapter11CachingAPI(countingDao(), 100, Duration.ofMillis(50), true);
+        api.findByPersonage("Penny");
+        api.findByPersonage("Penny");
+        Assert.assertEquals(1, delegateCalls.get());
+        TimeUnit.MILLISECONDS.sleep(100);
+        api.findByPersonage("Penny");
+        Assert.assertEquals(2, delegateCalls.get());
+        Assert.assertEquals(1, api.stats().getExpirations());
+        Assert.assertEquals(1, api.stats().getSize());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        var api = new Chapter11CachingAPI(countingDao(), 2, Duration.ZERO, true);
+        api.findByPersonage("Sheldon");
+        api.findByPersonage("Penny");
+        api.findByPersonage("Sheldon");
+        api.findByPersonage("Howard");
+        Assert.assertEquals(1, api.stats().getEvictions());
+        Assert.assertEquals(2, api.stats().getSize());
+        api.findByPersonage("Sheldon");
+        Assert.assertEquals(3, delegateCalls.get());
+    }
+
+    @Test
+    public void writesInvalidateTheCachedLookups() {
+        var api = new Chapter11CachingAPI(countingDao(), 100, Duration.ZERO, true);
+        Assert.assertNull(api.findByPersonage("Stuart"));
+        Assert.assertTrue(api.add(new Actor(1_000, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertEquals(1_000, api.findByPersonage("Stuart").id);
+
+        Assert.assertTrue(api.update(new Actor(1_000, "Kevin Sussman", "Comic Book Guy", "Comic Book Store Owner")));
+        Assert.assertNull(api.findByPersonage("Stuart"));
+        Assert.assertEquals(1_000, api.findByPersonage("Comic").id);
+
+        Assert.assertTrue(api.remove(1_000));
+        Assert.assertNull(api.findByPersonage("Comic"));
+    }
+
+    @Test
+    public void findByPersonagesOnlyAsksForTheMisses() {
+        var api = new Chapter11CachingAPI(countingDao(), 100, Duration.ZERO, true);
+        api.findByPersonage("Sheldon");
+        Map<String, Actor> actors = api.findByPersonages(List.of("Sheldon", "Penny", "Barry Kripke"));
+        Assert.assertEquals(2, actors.size());
+        Assert.assertEquals(2, delegateCalls.get());
+        api.findByPersonages(List.of("Sheldon", "Penny", "Barry Kripke"));
+        Assert.assertEquals(2, delegateCalls.get());
+    }
+
+    @Test
+    public void tagsFollowTheEntriesOfTheCache() {
+        LruCache<String, Integer> cache = new LruCache<>(2, value -> value < 0 ? null : value % 10);
+        cache.put("a", 1);
+        cache.put("b", 11);
+        cache.put("c", -1);
+        Assert.assertEquals(1, cache.evictions());
+        Assert.assertEquals(1, cache.tagCount());
+        cache.put("b", 2);
+        Assert.assertEquals(1, cache.tagCount());
+        cache.removeTagged(1);
+        Assert.assertEquals(Integer.valueOf(2), cache.get("b"));
+        cache.removeTagged(2);
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(0, cache.tagCount());
+        Assert.assertEquals(1, cache.size());
+    }
+}
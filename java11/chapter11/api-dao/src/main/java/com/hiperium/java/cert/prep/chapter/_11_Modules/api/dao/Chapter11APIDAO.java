@@ -2,39 +2,775 @@ package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
 
 import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
 import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.event.ActorChange;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.event.ActorChangePublisher;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.filter.BloomFilterStats;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.filter.PrefixBloomFilter;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.query.ActorQuery;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.text.TextFolding;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Actor store where the reads never block. The actors live in a concurrent skip list map keyed by id, and the
+ * personage index is a concurrent skip list set of (personage, id) keys. The writers are serialized by a lock that the
+ * readers never touch, and the readers resolve every index entry against the id map, so they discard the stale
+ * entries of an update or a removal that is still in progress.
+ *
+ * The personage lookups check a Bloom filter of the personage prefixes first, so most of the misses return without
+ * walking the index. The writers add the new personages to the filter before the index, and they replace it with a
+ * new one, built from the current actors, when the removed personages and the growth of the catalog have pushed its
+ * expected false positive rate over MAX_FILTER_FALSE_POSITIVE_RATE.
+ *
+ * The substring searches use a trigram index of the personages, the names and the roles. It is built by the first
+ * search, under the write lock, and then the writers keep it up to date like the personage index. The same goes for
+ * the folded index, which holds the personages and the names folded by TextFolding, for the prefix lookups that
+ * ignore the case and the accents, and for the secondary indexes of the queries, by role and by name.
+ *
+ * A query reads its candidates through the index of its most selective criterion, and checks the rest of the query on
+ * each of them. The planner takes the exact size of the role, and then counts the name and the personage ranges, but
+ * only up to the best number of candidates found so far, so planning never costs more than the cheapest plan.
+ *
+ * Every write is published as an ActorChange to the subscribers of "changes()", so the consumers can apply the writes
+ * instead of reading the whole catalog again.
+ *
+ * The fields of an Actor are public and mutable, so the store keeps its own copies of the written actors, and every
+ * read and every change returns new copies. A caller can change the actors it gets without touching the indexes.
+ */
 public class Chapter11APIDAO implements Chapter11API {
 
-    private static final List<Actor> USERS = new ArrayList<>();
-    private static Chapter11APIDAO instance;
+    public static final String SNAPSHOT_PROPERTY = "chapter11.dao.snapshot";
+
+    private final ConcurrentNavigableMap<Integer, Actor> users = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListSet<PersonageKey> personageIndex = new ConcurrentSkipListSet<>();
+    private static final double MAX_FILTER_FALSE_POSITIVE_RATE = 0.05;
+
+    private final Lock writeLock = new ReentrantLock();
+    private volatile PrefixBloomFilter personageFilter = PrefixBloomFilter.of(List.of());
+    private volatile TrigramIndex searchIndex;
+    private volatile ConcurrentSkipListSet<FoldedKey> foldedIndex;
+    private volatile SecondaryIndexes secondaryIndexes;
+    private volatile int size;
+    private final ActorChangePublisher changes = new ActorChangePublisher();
+    private long version;
 
     private Chapter11APIDAO() {
-        USERS.add(new Actor(1, "Johnny Galecki", "Leonard Hofstadter",      "Experimental Physicist"));
-        USERS.add(new Actor(2, "Jim Parsons",    "Sheldon Cooper",          "Theoretical Physicist"));
-        USERS.add(new Actor(3, "Kaley Cuoco",    "Penny",                   "Pharmaceutical Sales Representative"));
-        USERS.add(new Actor(4, "Simon Helberg",  "Howard Wolowitz",         "Aerospace Engineer"));
-        USERS.add(new Actor(5, "Kunal Nayyar",   "Rajesh Koothrappali",     "Astrophysicist"));
-        USERS.add(new Actor(6, "Melissa Rauch",  "Bernadette Rostenkowski", "Ph.D. in Microbiology"));
-        USERS.add(new Actor(7, "Mayim Bialik",   "Amy Farrah Fowler",       "Ph.D. in Neurobiology"));
+        this(List.of(
+                new Actor(1, "Johnny Galecki", "Leonard Hofstadter",      "Experimental Physicist"),
+                new Actor(2, "Jim Parsons",    "Sheldon Cooper",          "Theoretical Physicist"),
+                new Actor(3, "Kaley Cuoco",    "Penny",                   "Pharmaceutical Sales Representative"),
+                new Actor(4, "Simon Helberg",  "Howard Wolowitz",         "Aerospace Engineer"),
+                new Actor(5, "Kunal Nayyar",   "Rajesh Koothrappali",     "Astrophysicist"),
+                new Actor(6, "Melissa Rauch",  "Bernadette Rostenkowski", "Ph.D. in Microbiology"),
+                new Actor(7, "Mayim Bialik",   "Amy Farrah Fowler",       "Ph.D. in Neurobiology")));
     }
 
-    public static Chapter11APIDAO getInstance() {
-        if (Objects.isNull(instance)) {
-            instance = new Chapter11APIDAO();
+    Chapter11APIDAO(Collection<Actor> actors) {
+        actors.forEach(this::add);
+    }
+
+    /**
+     * Loads the actors of a snapshot in bulk. They are new objects, already sorted by id, so they go straight into the
+     * id map and the personage index, and the Bloom filter is built once for all of them, without the write lock, the
+     * copies and the change events of "add()".
+     */
+    private Chapter11APIDAO(MappedActorSnapshot snapshot) {
+        List<String> personages = new ArrayList<>(snapshot.size());
+        snapshot.stream().forEach(actor -> {
+            users.put(actor.id, actor);
+            personageIndex.add(new PersonageKey(actor.personage, actor.id));
+            personages.add(actor.personage);
+        });
+        this.personageFilter = PrefixBloomFilter.of(personages);
+        this.size = users.size();
+    }
+
+    /**
+     * The JVM initializes the holder class only once, on the first call, and its class initialization is thread-safe.
+     * The shared instance starts with the actors of the snapshot named by SNAPSHOT_PROPERTY, when it is set.
+     */
+    private static final class InstanceHolder {
+        private static final Chapter11APIDAO INSTANCE = create(System.getProperty(SNAPSHOT_PROPERTY));
+
+        private static Chapter11APIDAO create(String snapshot) {
+            if (snapshot == null) {
+                return new Chapter11APIDAO();
+            }
+            try {
+                return new Chapter11APIDAO(MappedActorSnapshot.open(Path.of(snapshot)));
+            } catch (IOException e) {
+                throw new IllegalStateException("ERROR loading the actors of " + snapshot + ": " + e.getMessage(), e);
+            }
         }
-        return instance;
     }
 
+    public static Chapter11APIDAO getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Returns a new store with the given actors, independent of the shared instance, for the callers that split the
+     * catalog across several stores.
+     */
+    public static Chapter11APIDAO newInstance(Collection<Actor> actors) {
+        return new Chapter11APIDAO(actors);
+    }
+
+    /**
+     * Returns a new store with the actors of a snapshot written by "ColumnarActorTable.writeSnapshot()". The store
+     * doesn't keep the snapshot, so it can be written like any other store.
+     */
+    public static Chapter11APIDAO newInstance(MappedActorSnapshot snapshot) {
+        return new Chapter11APIDAO(snapshot);
+    }
+
+    /**
+     * Returns a snapshot of all the actors sorted by id.
+     */
     public List<Actor> findAll() {
-        return USERS;
+        return users.values().stream().map(Chapter11APIDAO::copyOf).collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Returns up to "limit" actors whose id is greater than "afterId", sorted by id. The last id of a page is the
+     * cursor of the next one, so a client can walk the whole catalog without holding it in memory.
+     */
+    @Override
+    public List<Actor> findPage(int afterId, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The page limit can't be negative: " + limit);
+        }
+        return users.tailMap(afterId, false).values().stream().limit(limit).map(Chapter11APIDAO::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a lazy stream over the actors sorted by id. It doesn't copy the catalog, and it reflects the writes
+     * done while it is consumed in the same way that the iterators of a concurrent map do.
+     */
+    @Override
+    public Stream<Actor> streamAll() {
+        return users.values().stream().map(Chapter11APIDAO::copyOf);
     }
 
+    /**
+     * Returns the first actor, in personage order, whose personage starts with the given prefix.
+     */
     @Override
     public Actor findByPersonage(String personage) {
-        return USERS.stream().filter(s -> s.personage.startsWith(personage)).findFirst().orElse(null);
+        if (!personageFilter.mightContainPrefix(personage)) {
+            return null;
+        }
+        for (PersonageKey key : personagesStartingWith(personage)) {
+            if (!key.personage.startsWith(personage)) {
+                break;
+            }
+            Actor actor = currentVersion(key);
+            if (actor != null) {
+                return copyOf(actor);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns all the actors whose personage starts with the given prefix, sorted by personage. The walk starts at
+     * the first candidate key and stops at the first key that no longer shares the prefix.
+     */
+    @Override
+    public List<Actor> findAllByPersonagePrefix(String prefix) {
+        List<Actor> result = new ArrayList<>();
+        if (!personageFilter.mightContainPrefix(prefix)) {
+            return result;
+        }
+        for (PersonageKey key : personagesStartingWith(prefix)) {
+            if (!key.personage.startsWith(prefix)) {
+                break;
+            }
+            Actor actor = currentVersion(key);
+            if (actor != null) {
+                result.add(copyOf(actor));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resolves every personage prefix like "findByPersonage", in a single forward walk over the index. The prefixes
+     * are sorted first, so the walk only seeks again when the next prefix is beyond the current index position, and
+     * the ones rejected by the personage filter are left out of the walk. The returned map has no entry for the
+     * prefixes without a match.
+     */
+    @Override
+    public Map<String, Actor> findByPersonages(Collection<String> personages) {
+        PrefixBloomFilter filter = personageFilter;
+        String[] prefixes = personages.stream().distinct().filter(filter::mightContainPrefix).sorted()
+                .toArray(String[]::new);
+        Map<String, Actor> result = new HashMap<>();
+        Iterator<PersonageKey> cursor = null;
+        PersonageKey current = null;
+        for (String prefix : prefixes) {
+            if (cursor == null || current.personage.compareTo(prefix) < 0) {
+                cursor = personagesStartingWith(prefix).iterator();
+                current = cursor.hasNext() ? cursor.next() : null;
+            }
+            while (current != null && current.personage.startsWith(prefix)) {
+                Actor actor = currentVersion(current);
+                if (actor != null) {
+                    result.put(prefix, copyOf(actor));
+                    break;
+                }
+                current = cursor.hasNext() ? cursor.next() : null;
+            }
+            if (current == null) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns up to "limit" actors whose personage, name or role contains the given text, ignoring the case. The
+     * matches in the personage rank first, then the ones in the name, and then the ones in the role. In the same
+     * field, the match closer to the start ranks first, and then the shorter field.
+     *
+     * The texts of 3 characters or more only check the candidates of the trigram index, one field at a time, and the
+     * search stops as soon as a field fills the limit, since the matches of the next fields would rank after them. The
+     * shorter texts check all the actors.
+     */
+    @Override
+    public List<Actor> search(String text, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The search limit can't be negative: " + limit);
+        }
+        String folded = TrigramIndex.fold(text);
+        if (folded.isEmpty() || limit == 0) {
+            return List.of();
+        }
+        PriorityQueue<SearchMatch> best = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+        Map<String, Integer> rolePositions = new HashMap<>();
+        if (folded.length() < 3) {
+            for (Actor actor : users.values()) {
+                for (int field : TrigramIndex.FIELDS) {
+                    if (offer(best, limit, actor, field, folded, rolePositions)) {
+                        break;
+                    }
+                }
+            }
+        } else {
+            TrigramIndex index = searchIndex();
+            for (int field : TrigramIndex.FIELDS) {
+                if (best.size() == limit) {
+                    break;
+                }
+                Set<Integer> matched = new HashSet<>();
+                best.forEach(match -> matched.add(match.actor.id));
+                for (int id : index.candidates(field, folded)) {
+                    Actor actor = users.get(id);
+                    if (actor != null && !matched.contains(id)) {
+                        offer(best, limit, actor, field, folded, rolePositions);
+                    }
+                }
+            }
+        }
+        Actor[] result = new Actor[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = copyOf(best.poll().actor);
+        }
+        return List.of(result);
+    }
+
+    /**
+     * Returns up to "limit" actors whose personage or name starts with the given prefix, ignoring the case and the
+     * accents, sorted by the folded personage or name that matched. The folded keys are computed when the actors are
+     * written, so the lookup only folds the prefix and then compares chars.
+     */
+    @Override
+    public List<Actor> findAllByFoldedPrefix(String prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The lookup limit can't be negative: " + limit);
+        }
+        String folded = TextFolding.fold(prefix);
+        Map<Integer, Actor> result = new LinkedHashMap<>();
+        for (FoldedKey key : foldedIndex().tailSet(new FoldedKey(folded, null, false, Integer.MIN_VALUE), true)) {
+            if (result.size() == limit || !key.key.startsWith(folded)) {
+                break;
+            }
+            Actor actor = users.get(key.id);
+            if (actor != null && key.value.equals(key.ofName ? actor.name : actor.personage)) {
+                result.putIfAbsent(actor.id, copyOf(actor));
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * Returns up to the limit of the query of the actors that match it, sorted by id. A scan walks the actors in id
+     * order, so it stops at the limit. The indexes return their candidates in another order, so all of them are read
+     * and sorted first.
+     */
+    @Override
+    public List<Actor> query(ActorQuery query) {
+        QueryPlan plan = explain(query);
+        int limit = query.getLimit();
+        if (plan.access == QueryPlan.Access.SCAN) {
+            return users.values().stream().filter(query::matches).limit(limit).map(Chapter11APIDAO::copyOf)
+                    .collect(Collectors.toList());
+        }
+        Map<Integer, Actor> matches = new TreeMap<>();
+        if (plan.access == QueryPlan.Access.ROLE_INDEX) {
+            for (int id : secondaryIndexes().idsByRole(query.getRole())) {
+                collect(matches, users.get(id), query);
+            }
+        } else if (plan.access == QueryPlan.Access.NAME_INDEX) {
+            for (SecondaryIndexes.NameKey key : secondaryIndexes().namesStartingWith(query.getNamePrefix())) {
+                if (!key.name.startsWith(query.getNamePrefix())) {
+                    break;
+                }
+                collect(matches, users.get(key.id), query);
+            }
+        } else {
+            for (PersonageKey key : personagesStartingWith(query.getPersonagePrefix())) {
+                if (!key.personage.startsWith(query.getPersonagePrefix())) {
+                    break;
+                }
+                collect(matches, currentVersion(key), query);
+            }
+        }
+        return matches.values().stream().limit(limit).map(Chapter11APIDAO::copyOf).collect(Collectors.toList());
+    }
+
+    /**
+     * Picks the access path with the fewest candidates. A criterion that can't beat the current best stops counting
+     * as soon as it reaches it.
+     */
+    QueryPlan explain(ActorQuery query) {
+        QueryPlan best = new QueryPlan(QueryPlan.Access.SCAN, size);
+        if (query.getRole() != null) {
+            int candidates = secondaryIndexes().idsByRole(query.getRole()).size();
+            best = cheaper(best, QueryPlan.Access.ROLE_INDEX, candidates, query.getLimit());
+        }
+        if (query.getNamePrefix() != null) {
+            int candidates = secondaryIndexes().countNames(query.getNamePrefix(), best.candidates);
+            best = cheaper(best, QueryPlan.Access.NAME_INDEX, candidates, query.getLimit());
+        }
+        String personagePrefix = query.getPersonagePrefix();
+        if (personagePrefix != null) {
+            int candidates = 0;
+            if (personageFilter.mightContainPrefix(personagePrefix)) {
+                for (PersonageKey key : personagesStartingWith(personagePrefix)) {
+                    if (candidates > best.candidates || !key.personage.startsWith(personagePrefix)) {
+                        break;
+                    }
+                    candidates++;
+                }
+            }
+            best = cheaper(best, QueryPlan.Access.PERSONAGE_INDEX, candidates, query.getLimit());
+        }
+        return best;
+    }
+
+    /**
+     * Returns the index if it reads fewer candidates than the current best plan. An index returns its candidates out
+     * of id order, so all of them are read, but a scan stops at the limit: with a small limit it reads only about the
+     * limit times the actors per candidate of the index, and it can still beat the index.
+     */
+    private QueryPlan cheaper(QueryPlan best, QueryPlan.Access access, int candidates, int limit) {
+        if (candidates >= best.candidates) {
+            return best;
+        }
+        if (limit < candidates) {
+            long scanned = (long) limit * size / candidates;
+            if (scanned < candidates) {
+                return new QueryPlan(QueryPlan.Access.SCAN, (int) scanned);
+            }
+        }
+        return new QueryPlan(access, candidates);
+    }
+
+    private static void collect(Map<Integer, Actor> matches, Actor actor, ActorQuery query) {
+        if (actor != null && query.matches(actor)) {
+            matches.put(actor.id, actor);
+        }
+    }
+
+    @Override
+    public boolean add(Actor actor) {
+        Actor copy = copyOf(actor);
+        writeLock.lock();
+        try {
+            if (users.putIfAbsent(copy.id, copy) != null) {
+                return false;
+            }
+            addToPersonageFilter(copy.personage);
+            personageIndex.add(new PersonageKey(copy.personage, copy.id));
+            if (searchIndex != null) {
+                searchIndex.add(copy);
+            }
+            if (foldedIndex != null) {
+                foldedIndex.addAll(FoldedKey.of(copy));
+            }
+            if (secondaryIndexes != null) {
+                secondaryIndexes.add(copy);
+            }
+            size++;
+            publish(ActorChange.Type.INSERT, copy);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * The new index entry is published before the actor is replaced, and the old one is removed after it. So a
+     * reader that walks the index always finds one entry that matches the current personage of the actor.
+     */
+    @Override
+    public boolean update(Actor actor) {
+        Actor copy = copyOf(actor);
+        writeLock.lock();
+        try {
+            Actor previous = users.get(copy.id);
+            if (previous == null) {
+                return false;
+            }
+            addToPersonageFilter(copy.personage);
+            personageIndex.add(new PersonageKey(copy.personage, copy.id));
+            TrigramIndex index = searchIndex;
+            if (index != null) {
+                index.addGained(previous, copy);
+            }
+            ConcurrentSkipListSet<FoldedKey> folded = foldedIndex;
+            List<FoldedKey> previousKeys = FoldedKey.of(previous);
+            List<FoldedKey> currentKeys = FoldedKey.of(copy);
+            if (folded != null) {
+                folded.addAll(currentKeys);
+            }
+            SecondaryIndexes secondary = secondaryIndexes;
+            if (secondary != null) {
+                secondary.add(copy);
+            }
+            users.put(copy.id, copy);
+            if (!previous.personage.equals(copy.personage)) {
+                personageIndex.remove(new PersonageKey(previous.personage, previous.id));
+            }
+            if (index != null) {
+                index.removeLost(previous, copy);
+            }
+            if (folded != null) {
+                previousKeys.removeAll(currentKeys);
+                previousKeys.forEach(folded::remove);
+            }
+            if (secondary != null) {
+                secondary.removeLost(previous, copy);
+            }
+            publish(ActorChange.Type.UPDATE, copy);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(int id) {
+        writeLock.lock();
+        try {
+            Actor previous = users.remove(id);
+            if (previous == null) {
+                return false;
+            }
+            personageIndex.remove(new PersonageKey(previous.personage, previous.id));
+            if (searchIndex != null) {
+                searchIndex.remove(previous);
+            }
+            if (foldedIndex != null) {
+                FoldedKey.of(previous).forEach(foldedIndex::remove);
+            }
+            if (secondaryIndexes != null) {
+                secondaryIndexes.remove(previous);
+            }
+            size--;
+            publish(ActorChange.Type.DELETE, previous);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the publisher of the writes to the store. The writes are published under the write lock, so the
+     * versions of the changes follow the order of the writes.
+     */
+    public ActorChangePublisher changes() {
+        return changes;
+    }
+
+    /**
+     * Returns the size and the fill of the current personage filter.
+     */
+    public BloomFilterStats personageFilterStats() {
+        return personageFilter.stats();
+    }
+
+    /**
+     * Called by the writers, under the write lock. When the current filter is too full, a new one is built from the
+     * actors of the store, and the new personage is added to it.
+     */
+    private void addToPersonageFilter(String personage) {
+        PrefixBloomFilter filter = personageFilter;
+        if (filter.expectedFalsePositiveRate() > MAX_FILTER_FALSE_POSITIVE_RATE) {
+            List<String> personages = new ArrayList<>(users.size());
+            for (Actor actor : users.values()) {
+                personages.add(actor.personage);
+            }
+            filter = PrefixBloomFilter.of(personages);
+            personageFilter = filter;
+        }
+        filter.add(personage);
+    }
+
+    private TrigramIndex searchIndex() {
+        TrigramIndex index = searchIndex;
+        if (index == null) {
+            writeLock.lock();
+            try {
+                index = searchIndex;
+                if (index == null) {
+                    index = new TrigramIndex(users.values());
+                    searchIndex = index;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return index;
+    }
+
+    private ConcurrentSkipListSet<FoldedKey> foldedIndex() {
+        ConcurrentSkipListSet<FoldedKey> index = foldedIndex;
+        if (index == null) {
+            writeLock.lock();
+            try {
+                index = foldedIndex;
+                if (index == null) {
+                    index = new ConcurrentSkipListSet<>();
+                    for (Actor actor : users.values()) {
+                        index.addAll(FoldedKey.of(actor));
+                    }
+                    foldedIndex = index;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return index;
+    }
+
+    private void publish(ActorChange.Type type, Actor actor) {
+        version++;
+        if (changes.hasSubscribers()) {
+            changes.publish(new ActorChange(version, type, actor));
+        }
+    }
+
+    private SecondaryIndexes secondaryIndexes() {
+        SecondaryIndexes indexes = secondaryIndexes;
+        if (indexes == null) {
+            writeLock.lock();
+            try {
+                indexes = secondaryIndexes;
+                if (indexes == null) {
+                    indexes = new SecondaryIndexes(users.values());
+                    secondaryIndexes = indexes;
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Checks one field of the actor, and keeps the match if it is among the best "limit" ones, with the worst of them
+     * at the head of the queue. The roles repeat across many actors, so their positions are computed once per role.
+     */
+    private static boolean offer(PriorityQueue<SearchMatch> best, int limit, Actor actor, int field,
+                                 String foldedText, Map<String, Integer> rolePositions) {
+        String value = field == TrigramIndex.PERSONAGE ? actor.personage
+                : field == TrigramIndex.NAME ? actor.name : actor.role;
+        if (value == null) {
+            return false;
+        }
+        int position = field == TrigramIndex.ROLE
+                ? rolePositions.computeIfAbsent(value, role -> TrigramIndex.fold(role).indexOf(foldedText))
+                : TrigramIndex.fold(value).indexOf(foldedText);
+        if (position < 0) {
+            return false;
+        }
+        SearchMatch match = new SearchMatch(actor, field, position, value.length());
+        if (best.size() < limit || match.compareTo(best.peek()) < 0) {
+            best.add(match);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        return true;
+    }
+
+    private Iterable<PersonageKey> personagesStartingWith(String prefix) {
+        return personageIndex.tailSet(new PersonageKey(prefix, Integer.MIN_VALUE), true);
+    }
+
+    /**
+     * Resolves an index entry against the actor registered for its id. The entry is stale, and the method returns
+     * null, when the actor was removed or when its personage is not the indexed one anymore.
+     */
+    private Actor currentVersion(PersonageKey key) {
+        Actor actor = users.get(key.id);
+        return actor != null && actor.personage.equals(key.personage) ? actor : null;
+    }
+
+    /**
+     * The store keeps its own copies, and hands out new ones, so the callers can't change an indexed personage behind
+     * its back.
+     */
+    private static Actor copyOf(Actor actor) {
+        Objects.requireNonNull(actor, "The actor is required.");
+        Objects.requireNonNull(actor.personage, "The actor personage is required.");
+        return new Actor(actor.id, actor.name, actor.personage, actor.role);
+    }
+
+    private static final class SearchMatch implements Comparable<SearchMatch> {
+
+        private final Actor actor;
+        private final int field;
+        private final int position;
+        private final int fieldLength;
+
+        private SearchMatch(Actor actor, int field, int position, int fieldLength) {
+            this.actor = actor;
+            this.field = field;
+            this.position = position;
+            this.fieldLength = fieldLength;
+        }
+
+        @Override
+        public int compareTo(SearchMatch other) {
+            int result = Integer.compare(field, other.field);
+            if (result == 0) {
+                result = Integer.compare(position, other.position);
+            }
+            if (result == 0) {
+                result = Integer.compare(fieldLength, other.fieldLength);
+            }
+            return result != 0 ? result : Integer.compare(actor.id, other.actor.id);
+        }
+    }
+
+    /**
+     * Folded personage or name of an actor. It keeps the original value, so a reader can tell whether the entry still
+     * matches the current version of the actor without folding it again. The value is part of the ordering and of the
+     * equality, so an update that only changes the case or the accents adds a new entry and removes the old one. A
+     * null value, which only the lookup probes have, sorts first.
+     */
+    private static final class FoldedKey implements Comparable<FoldedKey> {
+
+        private final String key;
+        private final String value;
+        private final boolean ofName;
+        private final int id;
+
+        private FoldedKey(String key, String value, boolean ofName, int id) {
+            this.key = key;
+            this.value = value;
+            this.ofName = ofName;
+            this.id = id;
+        }
+
+        private static List<FoldedKey> of(Actor actor) {
+            List<FoldedKey> keys = new ArrayList<>(2);
+            keys.add(new FoldedKey(TextFolding.fold(actor.personage), actor.personage, false, actor.id));
+            if (actor.name != null) {
+                keys.add(new FoldedKey(TextFolding.fold(actor.name), actor.name, true, actor.id));
+            }
+            return keys;
+        }
+
+        @Override
+        public int compareTo(FoldedKey other) {
+            int result = key.compareTo(other.key);
+            if (result == 0) {
+                result = Integer.compare(id, other.id);
+            }
+            if (result == 0) {
+                result = Boolean.compare(ofName, other.ofName);
+            }
+            return result != 0 ? result : Comparator.nullsFirst(Comparator.<String>naturalOrder())
+                    .compare(value, other.value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FoldedKey that = (FoldedKey) o;
+            return id == that.id && ofName == that.ofName && key.equals(that.key) && Objects.equals(value, that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, value, ofName, id);
+        }
+    }
+
+    private static final class PersonageKey implements Comparable<PersonageKey> {
+
+        private final String personage;
+        private final int id;
+
+        private PersonageKey(String personage, int id) {
+            this.personage = personage;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(PersonageKey other) {
+            int result = personage.compareTo(other.personage);
+            return result != 0 ? result : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PersonageKey that = (PersonageKey) o;
+            return id == that.id && personage.equals(that.personage);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(personage, id);
+        }
     }
 }
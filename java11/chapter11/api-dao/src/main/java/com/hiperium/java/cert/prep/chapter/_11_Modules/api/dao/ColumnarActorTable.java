@@ -0,0 +1,262 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Read-only actor table stored by columns instead of by objects. The ids are an int column sorted in ascending order.
+ * The names and the personages are packed as UTF-8 bytes in one byte array per column, with an int column of offsets.
+ * The roles are dictionary-encoded: every distinct role is stored once, and every row keeps an int code.
+ *
+ * So the table needs a handful of arrays, whatever the number of actors, instead of one Actor and three Strings per
+ * actor. The Actor objects are only created on demand, when a row is returned to the caller.
+ */
+public final class ColumnarActorTable {
+
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int NO_ROLE = -1;
+
+    private final int[] ids;
+    private final byte[] nameBytes;
+    private final int[] nameOffsets;
+    private final BitSet nullNames;
+    private final byte[] personageBytes;
+    private final int[] personageOffsets;
+    private final int[] roleCodes;
+    private final String[] roles;
+
+    /**
+     * The rows sorted by personage bytes. Since UTF-8 keeps the order of the code points, and a prefix of a string
+     * is a byte prefix of its UTF-8 encoding, the prefix lookups are binary searches over these rows.
+     */
+    private final int[] personageOrder;
+
+    private ColumnarActorTable(List<Actor> actors) {
+        int size = actors.size();
+        this.ids = new int[size];
+        this.nameOffsets = new int[size + 1];
+        this.nullNames = new BitSet();
+        this.personageOffsets = new int[size + 1];
+        this.roleCodes = new int[size];
+        ByteColumn names = new ByteColumn();
+        ByteColumn personages = new ByteColumn();
+        Map<String, Integer> roleDictionary = new HashMap<>();
+        List<String> roleValues = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            Actor actor = actors.get(row);
+            if (row > 0 && ids[row - 1] == actor.id) {
+                throw new IllegalArgumentException("Duplicated actor id: " + actor.id);
+            }
+            ids[row] = actor.id;
+            if (actor.name == null) {
+                nullNames.set(row);
+            } else {
+                names.append(actor.name);
+            }
+            nameOffsets[row + 1] = names.size;
+            personages.append(Objects.requireNonNull(actor.personage, "The actor personage is required."));
+            personageOffsets[row + 1] = personages.size;
+            if (actor.role == null) {
+                roleCodes[row] = NO_ROLE;
+            } else {
+                roleCodes[row] = roleDictionary.computeIfAbsent(actor.role, role -> {
+                    roleValues.add(role);
+                    return roleValues.size() - 1;
+                });
+            }
+        }
+        this.nameBytes = names.toArray();
+        this.personageBytes = personages.toArray();
+        this.roles = roleValues.toArray(String[]::new);
+        this.personageOrder = IntStream.range(0, size).boxed()
+                .sorted(this::comparePersonages)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    public static ColumnarActorTable of(Collection<Actor> actors) {
+        List<Actor> sorted = new ArrayList<>(actors);
+        sorted.sort(Comparator.comparingInt(Actor::getId));
+        return new ColumnarActorTable(sorted);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public Actor findById(int id) {
+        int row = Arrays.binarySearch(ids, id);
+        return row < 0 ? null : actorAt(row);
+    }
+
+    /**
+     * Returns the first actor, in personage order, whose personage starts with the given prefix.
+     */
+    public Actor findByPersonage(String prefix) {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        int index = firstPersonageNotBefore(prefixBytes);
+        if (index < personageOrder.length && personageStartsWith(personageOrder[index], prefixBytes)) {
+            return actorAt(personageOrder[index]);
+        }
+        return null;
+    }
+
+    public List<Actor> findAllByPersonagePrefix(String prefix) {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        List<Actor> result = new ArrayList<>();
+        for (int index = firstPersonageNotBefore(prefixBytes); index < personageOrder.length; index++) {
+            if (!personageStartsWith(personageOrder[index], prefixBytes)) {
+                break;
+            }
+            result.add(actorAt(personageOrder[index]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a lazy stream of the actors sorted by id, creating every Actor when the stream reaches its row.
+     */
+    public Stream<Actor> stream() {
+        return IntStream.range(0, ids.length).mapToObj(this::actorAt);
+    }
+
+    public int distinctRoles() {
+        return roles.length;
+    }
+
+    /**
+     * Adds up the size of the arrays of the table. It doesn't include the object headers of the table itself, which
+     * don't depend on the number of actors.
+     */
+    public long estimatedHeapBytes() {
+        long bytes = arrayBytes(ids.length, Integer.BYTES)
+                + arrayBytes(nameBytes.length, Byte.BYTES) + arrayBytes(nameOffsets.length, Integer.BYTES)
+                + arrayBytes(personageBytes.length, Byte.BYTES) + arrayBytes(personageOffsets.length, Integer.BYTES)
+                + arrayBytes(roleCodes.length, Integer.BYTES) + arrayBytes(personageOrder.length, Integer.BYTES)
+                + nullNames.size() / Byte.SIZE;
+        for (String role : roles) {
+            bytes += 24 + arrayBytes(role.length(), Byte.BYTES);
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the table to a snapshot file, in the layout described in MappedActorSnapshot.
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        byte[][] roleBytes = new byte[roles.length][];
+        int[] roleOffsets = new int[roles.length + 1];
+        for (int code = 0; code < roles.length; code++) {
+            roleBytes[code] = roles[code].getBytes(StandardCharsets.UTF_8);
+            roleOffsets[code + 1] = roleOffsets[code] + roleBytes[code].length;
+        }
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MappedActorSnapshot.MAGIC);
+            out.writeInt(MappedActorSnapshot.VERSION);
+            out.writeInt(ids.length);
+            out.writeInt(roles.length);
+            out.writeInt(nameBytes.length);
+            out.writeInt(personageBytes.length);
+            out.writeInt(roleOffsets[roles.length]);
+            writeInts(out, ids);
+            writeInts(out, roleCodes);
+            writeInts(out, personageOrder);
+            writeInts(out, nameOffsets);
+            writeInts(out, personageOffsets);
+            writeInts(out, roleOffsets);
+            out.write(Arrays.copyOf(nullNames.toByteArray(), (ids.length + 7) / 8));
+            out.write(nameBytes);
+            out.write(personageBytes);
+            for (byte[] role : roleBytes) {
+                out.write(role);
+            }
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static long arrayBytes(int length, int elementBytes) {
+        long bytes = ARRAY_HEADER_BYTES + (long) length * elementBytes;
+        return (bytes + 7) & ~7L;
+    }
+
+    private Actor actorAt(int row) {
+        String name = nullNames.get(row) ? null : decode(nameBytes, nameOffsets, row);
+        String role = roleCodes[row] == NO_ROLE ? null : roles[roleCodes[row]];
+        return new Actor(ids[row], name, decode(personageBytes, personageOffsets, row), role);
+    }
+
+    private static String decode(byte[] bytes, int[] offsets, int row) {
+        return new String(bytes, offsets[row], offsets[row + 1] - offsets[row], StandardCharsets.UTF_8);
+    }
+
+    private int firstPersonageNotBefore(byte[] prefix) {
+        int low = 0;
+        int high = personageOrder.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int row = personageOrder[middle];
+            if (Arrays.compareUnsigned(personageBytes, personageOffsets[row], personageOffsets[row + 1],
+                    prefix, 0, prefix.length) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private boolean personageStartsWith(int row, byte[] prefix) {
+        int start = personageOffsets[row];
+        return personageOffsets[row + 1] - start >= prefix.length
+                && Arrays.equals(personageBytes, start, start + prefix.length, prefix, 0, prefix.length);
+    }
+
+    private int comparePersonages(int row1, int row2) {
+        return Arrays.compareUnsigned(personageBytes, personageOffsets[row1], personageOffsets[row1 + 1],
+                personageBytes, personageOffsets[row2], personageOffsets[row2 + 1]);
+    }
+
+    /**
+     * Growable byte array, so the column is filled without knowing its final size.
+     */
+    private static final class ByteColumn {
+
+        private byte[] bytes = new byte[1_024];
+        private int size;
+
+        private void append(String value) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            if (size + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + encoded.length));
+            }
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+
+        private byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Read-only actor catalog served straight from a memory-mapped snapshot file. Opening it only maps the file and reads
+ * the header and the role dictionary, whatever the number of actors; the operating system pages the rest in when the
+ * lookups touch it. The snapshot is written by "ColumnarActorTable.writeSnapshot()", with this big-endian layout:
+ *
+ * *****************|*********************************************|
+ * Section          | Content                                     |
+ * *****************|*********************************************|
+ * header           | magic, version, actors, roles, name bytes,  |
+ *                  | personage bytes, role bytes (7 ints)        |
+ * -----------------|---------------------------------------------|
+ * ids              | int per actor, sorted in ascending order    |
+ * -----------------|---------------------------------------------|
+ * role codes       | int per actor, -1 when it has no role       |
+ * -----------------|---------------------------------------------|
+ * personage order  | int per actor, the rows sorted by personage |
+ * -----------------|---------------------------------------------|
+ * name offsets     | actors + 1 ints                             |
+ * -----------------|---------------------------------------------|
+ * personage offsets| actors + 1 ints                             |
+ * -----------------|---------------------------------------------|
+ * role offsets     | roles + 1 ints                              |
+ * -----------------|---------------------------------------------|
+ * null names       | bit per actor                               |
+ * -----------------|---------------------------------------------|
+ * names, personages| UTF-8 bytes                                 |
+ * and roles        |                                             |
+ * -----------------|---------------------------------------------|
+ *
+ * A single mapped buffer is addressed by int, so a snapshot can't be bigger than 2 GB.
+ */
+public final class MappedActorSnapshot {
+
+    static final int MAGIC = 0x41435431;
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 7 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int ids;
+    private final int roleCodes;
+    private final int personageOrder;
+    private final int nameOffsets;
+    private final int personageOffsets;
+    private final int nullNames;
+    private final int names;
+    private final int personages;
+    private final String[] roles;
+
+    private MappedActorSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("The file is not an actor snapshot of version " + VERSION + ".");
+        }
+        this.size = buffer.getInt(8);
+        int roleCount = buffer.getInt(12);
+        int nameBytes = buffer.getInt(16);
+        int personageBytes = buffer.getInt(20);
+        int roleByteCount = buffer.getInt(24);
+        if (size < 0 || roleCount < 0 || nameBytes < 0 || personageBytes < 0 || roleByteCount < 0) {
+            throw new IllegalArgumentException("The snapshot header has negative counts: " + size + " actors, "
+                    + roleCount + " roles, " + nameBytes + ", " + personageBytes + " and " + roleByteCount + " bytes.");
+        }
+        long fileBytes = HEADER_BYTES + 3L * size * Integer.BYTES + 2L * (size + 1L) * Integer.BYTES
+                + (roleCount + 1L) * Integer.BYTES + (size + 7L) / 8 + nameBytes + personageBytes + roleByteCount;
+        if (fileBytes != buffer.capacity()) {
+            throw new IllegalArgumentException("The snapshot header describes " + fileBytes + " bytes, but the file has "
+                    + buffer.capacity() + ".");
+        }
+        this.ids = HEADER_BYTES;
+        this.roleCodes = ids + size * Integer.BYTES;
+        this.personageOrder = roleCodes + size * Integer.BYTES;
+        this.nameOffsets = personageOrder + size * Integer.BYTES;
+        this.personageOffsets = nameOffsets + (size + 1) * Integer.BYTES;
+        int roleOffsets = personageOffsets + (size + 1) * Integer.BYTES;
+        this.nullNames = roleOffsets + (roleCount + 1) * Integer.BYTES;
+        this.names = nullNames + (size + 7) / 8;
+        this.personages = names + nameBytes;
+        int roleBytes = personages + personageBytes;
+        checkOffsets("name", nameOffsets, size, nameBytes);
+        checkOffsets("personage", personageOffsets, size, personageBytes);
+        checkOffsets("role", roleOffsets, roleCount, roleByteCount);
+        this.roles = new String[roleCount];
+        for (int code = 0; code < roleCount; code++) {
+            int start = buffer.getInt(roleOffsets + code * Integer.BYTES);
+            int end = buffer.getInt(roleOffsets + (code + 1) * Integer.BYTES);
+            if (start > end || end > roleByteCount) {
+                throw new IllegalArgumentException("The role " + code + " of the snapshot is out of its section.");
+            }
+            roles[code] = decode(roleBytes + start, end - start);
+        }
+    }
+
+    /**
+     * The first offset of a section must be 0 and the last one its size in bytes. The offsets in between are only
+     * read by the lookups, so opening a snapshot doesn't depend on the number of actors.
+     */
+    private void checkOffsets(String section, int offsets, int count, int bytes) {
+        if (buffer.getInt(offsets) != 0 || buffer.getInt(offsets + count * Integer.BYTES) != bytes) {
+            throw new IllegalArgumentException("The " + section + " offsets of the snapshot don't match its "
+                    + bytes + " bytes.");
+        }
+    }
+
+    /**
+     * The mapping stays valid after the channel is closed, and it is released when the snapshot is garbage collected.
+     * A file that is not a snapshot, or whose sections don't fit in it, is rejected with an IllegalArgumentException.
+     */
+    public static MappedActorSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("The snapshot has " + channel.size() + " bytes, more than "
+                        + Integer.MAX_VALUE + ".");
+            }
+            return new MappedActorSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Actor findById(int id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = intAt(ids, middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return actorAt(middle);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the first actor, in personage order, whose personage starts with the given prefix.
+     */
+    public Actor findByPersonage(String prefix) {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        int index = firstPersonageNotBefore(prefixBytes);
+        if (index < size && personageStartsWith(intAt(personageOrder, index), prefixBytes)) {
+            return actorAt(intAt(personageOrder, index));
+        }
+        return null;
+    }
+
+    public List<Actor> findAllByPersonagePrefix(String prefix) {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        List<Actor> result = new ArrayList<>();
+        for (int index = firstPersonageNotBefore(prefixBytes); index < size; index++) {
+            int row = intAt(personageOrder, index);
+            if (!personageStartsWith(row, prefixBytes)) {
+                break;
+            }
+            result.add(actorAt(row));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a lazy stream of the actors sorted by id.
+     */
+    public Stream<Actor> stream() {
+        return IntStream.range(0, size).mapToObj(this::actorAt);
+    }
+
+    private Actor actorAt(int row) {
+        String name = null;
+        if ((buffer.get(nullNames + (row >>> 3)) & (1 << (row & 7))) == 0) {
+            int start = intAt(nameOffsets, row);
+            name = decode(names + start, intAt(nameOffsets, row + 1) - start);
+        }
+        int start = intAt(personageOffsets, row);
+        String personage = decode(personages + start, intAt(personageOffsets, row + 1) - start);
+        int roleCode = intAt(roleCodes, row);
+        return new Actor(intAt(ids, row), name, personage, roleCode < 0 ? null : roles[roleCode]);
+    }
+
+    private int intAt(int section, int index) {
+        return buffer.getInt(section + index * Integer.BYTES);
+    }
+
+    private String decode(int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int firstPersonageNotBefore(byte[] prefix) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (comparePersonage(intAt(personageOrder, middle), prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the personage bytes of a row with the given bytes, as unsigned bytes, without copying them.
+     */
+    private int comparePersonage(int row, byte[] other) {
+        int start = personages + intAt(personageOffsets, row);
+        int length = intAt(personageOffsets, row + 1) - intAt(personageOffsets, row);
+        int common = Math.min(length, other.length);
+        for (int i = 0; i < common; i++) {
+            int result = Byte.compareUnsigned(buffer.get(start + i), other[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(length, other.length);
+    }
+
+    private boolean personageStartsWith(int row, byte[] prefix) {
+        int start = personages + intAt(personageOffsets, row);
+        if (intAt(personageOffsets, row + 1) - intAt(personageOffsets, row) < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
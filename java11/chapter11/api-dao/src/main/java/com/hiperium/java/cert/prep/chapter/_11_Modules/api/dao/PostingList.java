@@ -0,0 +1,341 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, sorted list of actor ids compressed as variable-length deltas: every id is stored as its distance to the
+ * previous one, in 7-bit groups, so the close ids of a long list take one or two bytes each. The list is split in
+ * blocks of about BLOCK_SIZE ids, each one in its own byte array, and every block keeps a base id and the index of its
+ * first id. The base is not less than any id of the previous blocks, and it is less than the ids of the block, so a
+ * cursor can jump over the blocks that can't contain the id it is looking for.
+ *
+ * Appending an id greater than the last one writes the new bytes after the end of the last block, in the same arrays
+ * when they have room, and returns a new list. Adding or removing any other id only encodes again the block that holds
+ * it, which is split when it grows to twice BLOCK_SIZE, and the new list shares the other blocks. The previous lists
+ * never read past their own blocks, so they can still be used by other threads while the single writer changes them.
+ */
+final class PostingList {
+
+    static final PostingList EMPTY = new PostingList(new byte[0][], new int[0], new int[0], 0, 0, 0, 0);
+
+    private static final int BLOCK_SIZE = 128;
+
+    private final byte[][] blocks;
+    private final int[] blockBases;
+    private final int[] blockStarts;
+    private final int blockCount;
+    private final int count;
+    private final int lastId;
+    private final int tailLength;
+
+    private PostingList(byte[][] blocks, int[] blockBases, int[] blockStarts, int blockCount, int count, int lastId,
+                        int tailLength) {
+        this.blocks = blocks;
+        this.blockBases = blockBases;
+        this.blockStarts = blockStarts;
+        this.blockCount = blockCount;
+        this.count = count;
+        this.lastId = lastId;
+        this.tailLength = tailLength;
+    }
+
+    /**
+     * Encodes ids that are already sorted in ascending order and without duplicates.
+     */
+    static PostingList of(int[] ids, int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        int blockCount = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        byte[][] blocks = new byte[blockCount][];
+        int[] bases = new int[blockCount];
+        int[] starts = new int[blockCount];
+        int previous = Integer.MIN_VALUE;
+        for (int block = 0; block < blockCount; block++) {
+            int start = block * BLOCK_SIZE;
+            int end = Math.min(size, start + BLOCK_SIZE);
+            blocks[block] = encode(ids, start, end, previous);
+            bases[block] = previous;
+            starts[block] = start;
+            previous = ids[end - 1];
+        }
+        return new PostingList(blocks, bases, starts, blockCount, size, previous, blocks[blockCount - 1].length);
+    }
+
+    int size() {
+        return count;
+    }
+
+    PostingList with(int id) {
+        if (count == 0 || id > lastId) {
+            return append(id);
+        }
+        if (id == lastId) {
+            return this;
+        }
+        int block = blockOf(id);
+        int[] ids = decode(block);
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return this;
+        }
+        int insertion = -index - 1;
+        int[] result = new int[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, insertion);
+        result[insertion] = id;
+        System.arraycopy(ids, insertion, result, insertion + 1, ids.length - insertion);
+        return replace(block, result, 1);
+    }
+
+    PostingList without(int id) {
+        if (count == 0 || id > lastId) {
+            return this;
+        }
+        int block = blockOf(id);
+        int[] ids = decode(block);
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return this;
+        }
+        int[] result = new int[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        System.arraycopy(ids, index + 1, result, index, result.length - index);
+        return replace(block, result, -1);
+    }
+
+    int[] toArray() {
+        int[] ids = new int[count];
+        Cursor cursor = cursor();
+        for (int i = 0; i < count; i++) {
+            ids[i] = cursor.next();
+        }
+        return ids;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    private PostingList append(int id) {
+        if (count == 0) {
+            byte[] bytes = new byte[16];
+            int length = writeDelta(bytes, 0, id - Integer.MIN_VALUE);
+            return new PostingList(new byte[][]{bytes, null, null, null}, new int[]{Integer.MIN_VALUE, 0, 0, 0},
+                    new int[4], 1, 1, id, length);
+        }
+        int last = blockCount - 1;
+        if (count - blockStarts[last] >= BLOCK_SIZE) {
+            byte[][] newBlocks = blocks;
+            int[] newBases = blockBases;
+            int[] newStarts = blockStarts;
+            if (blockCount == newBlocks.length) {
+                newBlocks = Arrays.copyOf(newBlocks, Math.max(4, blockCount * 2));
+                newBases = Arrays.copyOf(newBases, newBlocks.length);
+                newStarts = Arrays.copyOf(newStarts, newBlocks.length);
+            }
+            byte[] bytes = new byte[16];
+            newBlocks[blockCount] = bytes;
+            newBases[blockCount] = lastId;
+            newStarts[blockCount] = count;
+            int length = writeDelta(bytes, 0, id - lastId);
+            return new PostingList(newBlocks, newBases, newStarts, blockCount + 1, count + 1, id, length);
+        }
+        byte[][] newBlocks = blocks;
+        byte[] tail = blocks[last];
+        if (tailLength + 5 > tail.length) {
+            // The previous lists keep reading the old array, so the new one goes in a new array of blocks.
+            tail = Arrays.copyOf(tail, Math.max(16, tail.length * 2));
+            newBlocks = blocks.clone();
+            newBlocks[last] = tail;
+        }
+        int length = writeDelta(tail, tailLength, id - lastId);
+        return new PostingList(newBlocks, blockBases, blockStarts, blockCount, count + 1, id, length);
+    }
+
+    /**
+     * Returns a new list where the given ids replace the block, which had "delta" ids more or less. The blocks after
+     * it are shared, and only the index of their first id changes.
+     */
+    private PostingList replace(int block, int[] ids, int delta) {
+        if (count + delta == 0) {
+            return EMPTY;
+        }
+        int base = blockBases[block];
+        int start = blockStarts[block];
+        // The first block is kept even when it's empty, so its base is always the smallest int.
+        int replacements = ids.length >= 2 * BLOCK_SIZE ? 2 : ids.length > 0 || block == 0 ? 1 : 0;
+        int newBlockCount = blockCount - 1 + replacements;
+        byte[][] newBlocks = Arrays.copyOf(blocks, newBlockCount);
+        int[] newBases = Arrays.copyOf(blockBases, newBlockCount);
+        int[] newStarts = Arrays.copyOf(blockStarts, newBlockCount);
+        if (replacements == 2) {
+            int half = ids.length / 2;
+            newBlocks[block] = encode(ids, 0, half, base);
+            newBlocks[block + 1] = encode(ids, half, ids.length, ids[half - 1]);
+            newBases[block + 1] = ids[half - 1];
+            newStarts[block + 1] = start + half;
+        } else if (replacements == 1) {
+            newBlocks[block] = encode(ids, 0, ids.length, base);
+        }
+        for (int next = block + 1; next < blockCount; next++) {
+            int target = next - 1 + replacements;
+            newBlocks[target] = blocks[next];
+            newBases[target] = blockBases[next];
+            newStarts[target] = blockStarts[next] + delta;
+        }
+        if (block < blockCount - 1) {
+            return new PostingList(newBlocks, newBases, newStarts, newBlockCount, count + delta, lastId, tailLength);
+        }
+        if (replacements > 0) {
+            return new PostingList(newBlocks, newBases, newStarts, newBlockCount, count + delta, ids[ids.length - 1],
+                    newBlocks[newBlockCount - 1].length);
+        }
+        // The last block was removed, so the previous one becomes the tail, encoded again to know where it ends.
+        int last = newBlockCount - 1;
+        int[] tailIds = decode(newBlocks[last], newBases[last], count + delta - newStarts[last]);
+        newBlocks[last] = encode(tailIds, 0, tailIds.length, newBases[last]);
+        return new PostingList(newBlocks, newBases, newStarts, newBlockCount, count + delta,
+                tailIds[tailIds.length - 1], newBlocks[last].length);
+    }
+
+    /**
+     * Returns the last block whose base is less than the id, which is the only one that can hold it.
+     */
+    private int blockOf(int id) {
+        int low = 1;
+        int high = blockCount - 1;
+        int block = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (blockBases[middle] < id) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return block;
+    }
+
+    private int[] decode(int block) {
+        int end = block + 1 < blockCount ? blockStarts[block + 1] : count;
+        return decode(blocks[block], blockBases[block], end - blockStarts[block]);
+    }
+
+    private static int[] decode(byte[] bytes, int base, int size) {
+        int[] ids = new int[size];
+        int offset = 0;
+        int current = base;
+        for (int i = 0; i < size; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[offset++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            current += delta;
+            ids[i] = current;
+        }
+        return ids;
+    }
+
+    private static byte[] encode(int[] ids, int from, int to, int base) {
+        byte[] bytes = new byte[(to - from) * 5];
+        int length = 0;
+        int previous = base;
+        for (int i = from; i < to; i++) {
+            length = writeDelta(bytes, length, ids[i] - previous);
+            previous = ids[i];
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Writes the delta in groups of 7 bits, from the lowest ones, with the high bit set on every group but the last.
+     * The delta is read as an unsigned int, so the first id of a block can be far from the base.
+     */
+    private static int writeDelta(byte[] bytes, int position, int delta) {
+        while ((delta & ~0x7F) != 0) {
+            bytes[position++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        bytes[position++] = (byte) delta;
+        return position;
+    }
+
+    /**
+     * Forward-only iterator over the ids of the list.
+     */
+    final class Cursor {
+
+        private int index;
+        private int block = -1;
+        private int blockEnd;
+        private int offset;
+        private int current = Integer.MIN_VALUE;
+
+        boolean hasNext() {
+            return index < count;
+        }
+
+        int next() {
+            while (index == blockEnd) {
+                block++;
+                blockEnd = block + 1 < blockCount ? blockStarts[block + 1] : count;
+                offset = 0;
+                current = blockBases[block];
+            }
+            byte[] bytes = blocks[block];
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[offset++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            index++;
+            current += delta;
+            return current;
+        }
+
+        int current() {
+            return current;
+        }
+
+        /**
+         * Moves to the first id that is greater than or equal to the target, and returns false when the list has no
+         * such id. Only the block that can hold the target is decoded.
+         */
+        boolean advanceTo(int target) {
+            if (index > 0 && current >= target) {
+                return true;
+            }
+            int low = block + 1;
+            int high = blockCount - 1;
+            int found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (blockBases[middle] < target) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            if (found >= 0) {
+                block = found - 1;
+                index = blockStarts[found];
+                blockEnd = index;
+            }
+            while (index < count) {
+                if (next() >= target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+/**
+ * Access path that the DAO picked for a query, and the number of candidates it expects to read through it.
+ */
+final class QueryPlan {
+
+    enum Access {
+        SCAN, ROLE_INDEX, NAME_INDEX, PERSONAGE_INDEX
+    }
+
+    final Access access;
+    final int candidates;
+
+    QueryPlan(Access access, int candidates) {
+        this.access = access;
+        this.candidates = candidates;
+    }
+
+    @Override
+    public String toString() {
+        return access + "(" + candidates + ")";
+    }
+}
@@ -0,0 +1,123 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Indexes of the actors by role and by name, for the queries. The role index is a hash from every role to the ids
+ * of its actors, since the roles are only matched whole, and its sets know their size, so the planner gets the exact
+ * number of rows of a role for free. The name index is a sorted set of (name, id) keys, for the prefix ranges. The
+ * actors without a name are not in the name index.
+ *
+ * Like the personage index, the entries are resolved against the id map, so a reader can see the entries of a write
+ * in progress, and the queries check every candidate against the whole query.
+ */
+final class SecondaryIndexes {
+
+    private final Map<String, Set<Integer>> roles = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<NameKey> names = new ConcurrentSkipListSet<>();
+
+    SecondaryIndexes(Iterable<Actor> actors) {
+        actors.forEach(this::add);
+    }
+
+    void add(Actor actor) {
+        if (actor.role != null) {
+            roles.computeIfAbsent(actor.role, role -> ConcurrentHashMap.newKeySet()).add(actor.id);
+        }
+        if (actor.name != null) {
+            names.add(new NameKey(actor.name, actor.id));
+        }
+    }
+
+    /**
+     * Removes the entries of the previous version of an updated actor that the current version doesn't have.
+     */
+    void removeLost(Actor previous, Actor current) {
+        if (previous.role != null && !previous.role.equals(current.role)) {
+            removeRole(previous.role, previous.id);
+        }
+        if (previous.name != null && !previous.name.equals(current.name)) {
+            names.remove(new NameKey(previous.name, previous.id));
+        }
+    }
+
+    void remove(Actor actor) {
+        if (actor.role != null) {
+            removeRole(actor.role, actor.id);
+        }
+        if (actor.name != null) {
+            names.remove(new NameKey(actor.name, actor.id));
+        }
+    }
+
+    Set<Integer> idsByRole(String role) {
+        return roles.getOrDefault(role, Set.of());
+    }
+
+    /**
+     * Returns the keys from the first name that starts with the prefix. The caller stops at the first key that
+     * doesn't.
+     */
+    NavigableSet<NameKey> namesStartingWith(String prefix) {
+        return names.tailSet(new NameKey(prefix, Integer.MIN_VALUE), true);
+    }
+
+    /**
+     * Counts the names that start with the prefix, but stops after "max" of them, since the planner only needs to
+     * know if this index beats the best one it has found so far.
+     */
+    int countNames(String prefix, int max) {
+        int count = 0;
+        for (NameKey key : namesStartingWith(prefix)) {
+            if (count > max || !key.name.startsWith(prefix)) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private void removeRole(String role, int id) {
+        roles.computeIfPresent(role, (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    static final class NameKey implements Comparable<NameKey> {
+
+        final String name;
+        final int id;
+
+        private NameKey(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(NameKey other) {
+            int result = name.compareTo(other.name);
+            return result != 0 ? result : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            NameKey that = (NameKey) o;
+            return id == that.id && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, id);
+        }
+    }
+}
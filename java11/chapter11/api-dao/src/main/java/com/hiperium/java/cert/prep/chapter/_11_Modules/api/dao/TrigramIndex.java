@@ -0,0 +1,194 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from every 3-character sequence of the personage, the name and the role of the actors, in lower
+ * case, to the ids of the actors that contain it in that field. A text of 3 characters or more can only be inside a
+ * field that contains all its trigrams, so intersecting their posting lists gives the candidates of a substring search
+ * without reading the other actors. The candidates still have to be checked against the actor, because the trigrams
+ * can be in a different order in the field.
+ *
+ * The posting lists are immutable, and the single writer of the store replaces them in a concurrent map, so the
+ * searches never block.
+ */
+final class TrigramIndex {
+
+    static final int PERSONAGE = 0;
+    static final int NAME = 1;
+    static final int ROLE = 2;
+    static final int[] FIELDS = {PERSONAGE, NAME, ROLE};
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final Map<Long, PostingList> postings = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes actors that are sorted by id. The ids of every trigram are collected in a plain array first, and each
+     * posting list is encoded once at the end.
+     */
+    TrigramIndex(Iterable<Actor> actorsById) {
+        Map<Long, IdBuffer> buffers = new HashMap<>();
+        for (Actor actor : actorsById) {
+            for (long key : keysOf(actor)) {
+                buffers.computeIfAbsent(key, k -> new IdBuffer()).add(actor.id);
+            }
+        }
+        buffers.forEach((key, buffer) -> postings.put(key, PostingList.of(buffer.ids, buffer.size)));
+    }
+
+    static String fold(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    void add(Actor actor) {
+        for (long key : keysOf(actor)) {
+            addId(key, actor.id);
+        }
+    }
+
+    /**
+     * Adds the trigrams that an updated actor gained. Only those posting lists are touched, so renaming one field
+     * doesn't rewrite the posting lists of the others.
+     */
+    void addGained(Actor previous, Actor current) {
+        long[] previousKeys = keysOf(previous);
+        for (long key : keysOf(current)) {
+            if (Arrays.binarySearch(previousKeys, key) < 0) {
+                addId(key, current.id);
+            }
+        }
+    }
+
+    /**
+     * Removes the trigrams that an updated actor lost.
+     */
+    void removeLost(Actor previous, Actor current) {
+        long[] currentKeys = keysOf(current);
+        for (long key : keysOf(previous)) {
+            if (Arrays.binarySearch(currentKeys, key) < 0) {
+                removeId(key, previous.id);
+            }
+        }
+    }
+
+    void remove(Actor actor) {
+        for (long key : keysOf(actor)) {
+            removeId(key, actor.id);
+        }
+    }
+
+    /**
+     * Returns the sorted ids of the actors that have all the trigrams of the folded text in the given field. The text
+     * must have 3 characters or more.
+     *
+     * The method walks the shortest posting list, and moves the cursors of the others to each of its ids. The cursors
+     * skip the blocks that can't hold the id, so a rare trigram keeps the whole intersection cheap.
+     */
+    int[] candidates(int field, String foldedText) {
+        long[] keys = keysOf(field, foldedText);
+        PostingList[] lists = new PostingList[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            lists[i] = postings.get(keys[i]);
+            if (lists[i] == null) {
+                return NO_IDS;
+            }
+        }
+        Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+        PostingList.Cursor[] others = new PostingList.Cursor[lists.length - 1];
+        for (int i = 1; i < lists.length; i++) {
+            others[i - 1] = lists[i].cursor();
+        }
+        int[] result = new int[lists[0].size()];
+        int size = 0;
+        PostingList.Cursor shortest = lists[0].cursor();
+        candidates:
+        while (shortest.hasNext()) {
+            int id = shortest.next();
+            for (PostingList.Cursor other : others) {
+                if (!other.advanceTo(id)) {
+                    break candidates;
+                }
+                if (other.current() != id) {
+                    continue candidates;
+                }
+            }
+            result[size++] = id;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private void addId(long key, int id) {
+        postings.put(key, postings.getOrDefault(key, PostingList.EMPTY).with(id));
+    }
+
+    private void removeId(long key, int id) {
+        PostingList list = postings.get(key);
+        if (list != null) {
+            PostingList remaining = list.without(id);
+            if (remaining.size() == 0) {
+                postings.remove(key);
+            } else {
+                postings.put(key, remaining);
+            }
+        }
+    }
+
+    /**
+     * Returns the sorted and distinct trigram keys of the three fields of the actor.
+     */
+    private static long[] keysOf(Actor actor) {
+        long[] personageKeys = keysOf(PERSONAGE, actor.personage);
+        long[] nameKeys = keysOf(NAME, actor.name);
+        long[] roleKeys = keysOf(ROLE, actor.role);
+        long[] keys = Arrays.copyOf(personageKeys, personageKeys.length + nameKeys.length + roleKeys.length);
+        System.arraycopy(nameKeys, 0, keys, personageKeys.length, nameKeys.length);
+        System.arraycopy(roleKeys, 0, keys, personageKeys.length + nameKeys.length, roleKeys.length);
+        return keys;
+    }
+
+    /**
+     * Packs the field and the three UTF-16 characters of every trigram in a single long, so the keys of a field are
+     * sorted after the keys of the previous fields.
+     */
+    private static long[] keysOf(int field, String value) {
+        if (value == null) {
+            return new long[0];
+        }
+        String folded = fold(value);
+        int count = Math.max(0, folded.length() - 2);
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (long) field << 48 | (long) folded.charAt(i) << 32
+                    | (long) folded.charAt(i + 1) << 16 | folded.charAt(i + 2);
+        }
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || keys[distinct - 1] != keys[i]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return distinct == count ? keys : Arrays.copyOf(keys, distinct);
+    }
+
+    private static final class IdBuffer {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
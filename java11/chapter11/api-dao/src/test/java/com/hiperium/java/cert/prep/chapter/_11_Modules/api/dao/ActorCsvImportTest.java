@@ -0,0 +1,154 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.io.ActorCsv;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.io.CsvImporter;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.io.ImportProgress;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ActorCsvImportTest {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    @Test
+    public void quotedFieldsAndNulls() throws IOException {
+        Path file = Files.createTempFile("actors", ".csv");
+        try {
+            List<Actor> actors = List.of(
+                    new Actor(1, "Johnny Galecki", "Leonard \"Leo\" Hofstadter", "Physicist, Experimental"),
+                    new Actor(2, null, "Sheldon Cooper", null),
+                    new Actor(3, "Zoë Saldaña", "Renée", ""));
+            ActorCsv.write(file, actors.stream());
+            Chapter11APIDAO dao = new Chapter11APIDAO(List.of());
+            LongAdder rejected = new LongAdder();
+            ImportProgress progress = ActorCsv.importInto(dao, file, new CsvImporter(), p -> { }, rejected);
+            Assert.assertEquals(3, progress.getRows());
+            Assert.assertEquals(0, rejected.sum());
+            Assert.assertEquals(actors.get(0), dao.findByPersonage("Leonard"));
+            Assert.assertEquals("Physicist, Experimental", dao.findByPersonage("Leonard").role);
+            Assert.assertNull(dao.findByPersonage("Sheldon").name);
+            Assert.assertEquals("Zoë Saldaña", dao.findByPersonage("Renée").name);
+            Assert.assertNull(dao.findByPersonage("Renée").role);
+            ActorCsv.importInto(dao, file, new CsvImporter(), p -> { }, rejected);
+            Assert.assertEquals(3, rejected.sum());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void malformedLinesStopTheImport() throws IOException {
+        Path file = Files.createTempFile("actors", ".csv");
+        try {
+            Files.writeString(file, ActorCsv.HEADER + "\n1,Jim Parsons,Sheldon Cooper,Physicist\nx,,Penny,\n");
+            IllegalArgumentException e = Assert.assertThrows(IllegalArgumentException.class, () -> ActorCsv
+                    .importInto(new Chapter11APIDAO(List.of()), file, new CsvImporter(), p -> { }, null));
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("at byte 62"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void charactersAfterAClosingQuoteAreRejected() throws IOException {
+        Path file = Files.createTempFile("actors", ".csv");
+        try {
+            Files.writeString(file, ActorCsv.HEADER + "\n1,\"Jim\"Parsons,Sheldon Cooper,Physicist\n");
+            IllegalArgumentException e = Assert.assertThrows(IllegalArgumentException.class, () -> ActorCsv
+                    .importInto(new Chapter11APIDAO(List.of()), file, new CsvImporter(), p -> { }, null));
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("after its closing quote"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * The sink ignores the interrupts, so the other workers are still storing their batches when the import fails.
+     */
+    @Test
+    public void failedImportReturnsOnceTheWorkersStop() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("actors", ".csv");
+        try {
+            ActorCsv.write(file, Chapter11APIDAOTest.syntheticActors(20_000).stream());
+            AtomicInteger batches = new AtomicInteger();
+            CsvImporter importer = new CsvImporter(4, 10, Duration.ofSeconds(1));
+            Assert.assertThrows(IllegalStateException.class, () -> importer.importFile(file, true, ActorCsv.MAPPER,
+                    batch -> {
+                        long end = System.nanoTime() + 2_000_000;
+                        while (System.nanoTime() < end) {
+                            Thread.onSpinWait();
+                        }
+                        if (batches.incrementAndGet() == 20) {
+                            throw new IllegalStateException("The sink is full.");
+                        }
+                    }, p -> { }));
+            int stored = batches.get();
+            TimeUnit.MILLISECONDS.sleep(100);
+            Assert.assertEquals(stored, batches.get());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void parallelImportStoresEveryActor() throws IOException {
+        Path file = Files.createTempFile("actors", ".csv");
+        try {
+            List<Actor> actors = Chapter11APIDAOTest.syntheticActors(20_000);
+            ActorCsv.write(file, actors.stream());
+            Chapter11APIDAO dao = new Chapter11APIDAO(List.of());
+            ImportProgress progress = ActorCsv.importInto(dao, file, new CsvImporter(4, 1_000, Duration.ofSeconds(1)),
+                    p -> { }, null);
+            Assert.assertEquals(actors.size(), progress.getRows());
+            Assert.assertEquals(Files.size(file), progress.getBytes());
+            Assert.assertEquals(actors, dao.findAll());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Parses a synthetic catalog with a growing number of workers into a sink that only counts the actors, and then
+     * imports it in the DAO, and prints the rows per second of every run. It only runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void parallelImport() throws IOException {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        Path file = Files.createTempFile("actors", ".csv");
+        try {
+            List<Actor> actors = Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE);
+            ActorCsv.write(file, actors.stream());
+            for (int parallelism = 1; parallelism <= 4; parallelism *= 2) {
+                LongAdder parsed = new LongAdder();
+                ImportProgress progress = new CsvImporter(parallelism, CsvImporter.DEFAULT_BATCH_SIZE,
+                        Duration.ofSeconds(1)).importFile(file, true, ActorCsv.MAPPER,
+                        batch -> parsed.add(batch.size()), p -> { });
+                Assert.assertEquals(CATALOG_SIZE, parsed.sum());
+                Assert.assertEquals(Files.size(file), progress.getBytes());
+                System.out.println("Parsed with " + parallelism + " workers: " + progress);
+            }
+            Chapter11APIDAO dao = new Chapter11APIDAO(List.of());
+            List<ImportProgress> reports = new ArrayList<>();
+            ImportProgress progress = ActorCsv.importInto(dao, file, new CsvImporter(), reports::add, null);
+            Assert.assertEquals(CATALOG_SIZE, progress.getRows());
+            Assert.assertEquals(1.0, progress.getFractionDone(), 0.0);
+            Assert.assertEquals(progress, reports.get(reports.size() - 1));
+            Assert.assertEquals(actors.get(123_456), dao.findByPersonage(actors.get(123_456).personage));
+            System.out.println("Imported in the DAO: " + progress + ", " + reports.size() + " progress reports.");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
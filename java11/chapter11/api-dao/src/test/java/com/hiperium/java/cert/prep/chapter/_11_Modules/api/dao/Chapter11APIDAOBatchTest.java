@@ -0,0 +1,80 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class Chapter11APIDAOBatchTest {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    @Test
+    public void findByPersonages() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(List.of(
+                new Actor(1, "A", "Raj", "R1"),
+                new Actor(2, "B", "Rajesh", "R2"),
+                new Actor(3, "C", "Penny", "R3"),
+                new Actor(4, "D", "Sheldon", "R4")));
+        Map<String, Actor> result = dao.findByPersonages(List.of("Sheldon", "Rajesh", "Ra", "Raj", "Amy", "Zack", "Raj"));
+        Assert.assertEquals(4, result.size());
+        Assert.assertEquals(1, result.get("Ra").id);
+        Assert.assertEquals(1, result.get("Raj").id);
+        Assert.assertEquals(2, result.get("Rajesh").id);
+        Assert.assertEquals(4, result.get("Sheldon").id);
+        Assert.assertFalse(result.containsKey("Amy"));
+        Assert.assertTrue(dao.findByPersonages(List.of()).isEmpty());
+    }
+
+    /**
+     * Compares one "findByPersonages" call against the same keys resolved one by one. Around 10% of the keys miss. It
+     * only runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void batchAgainstSingleLookups() {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE));
+        for (int keys : new int[]{10, 100, 10_000}) {
+            List<String> personages = randomPersonages(keys);
+            Map<String, Actor> expected = new HashMap<>();
+            for (String personage : personages) {
+                Actor actor = dao.findByPersonage(personage);
+                if (actor != null) {
+                    expected.put(personage, actor);
+                }
+            }
+            Assert.assertEquals(expected, dao.findByPersonages(personages));
+
+            int rounds = Math.max(10, 100_000 / keys);
+            long singleNanos = Long.MAX_VALUE;
+            long batchNanos = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                for (String personage : personages) {
+                    dao.findByPersonage(personage);
+                }
+                singleNanos = Math.min(singleNanos, System.nanoTime() - start);
+                start = System.nanoTime();
+                dao.findByPersonages(personages);
+                batchNanos = Math.min(batchNanos, System.nanoTime() - start);
+            }
+            System.out.println(keys + " keys: " + singleNanos / 1_000 + " us with single calls, "
+                    + batchNanos / 1_000 + " us with one batch call.");
+        }
+    }
+
+    private static List<String> randomPersonages(int size) {
+        Random random = new Random(size);
+        List<String> personages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            personages.add(String.format("Personage %07d", 1 + random.nextInt(CATALOG_SIZE + CATALOG_SIZE / 10)));
+        }
+        return personages;
+    }
+}
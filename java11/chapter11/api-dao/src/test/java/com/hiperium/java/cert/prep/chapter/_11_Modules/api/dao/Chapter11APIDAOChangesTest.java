@@ -0,0 +1,174 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.event.ActorChange;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.event.ActorChangePublisher;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class Chapter11APIDAOChangesTest {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    @Test
+    public void writesArePublished() throws InterruptedException {
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(10));
+        ChangeCollector collector = new ChangeCollector(Long.MAX_VALUE);
+        dao.changes().subscribe(collector);
+        Assert.assertTrue(dao.add(new Actor(11, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertFalse(dao.add(new Actor(11, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertTrue(dao.update(new Actor(11, "Kevin Sussman", "Stuart Bloom", "Astrophysicist")));
+        Assert.assertTrue(dao.remove(11));
+        Assert.assertFalse(dao.remove(11));
+        List<ActorChange> changes = collector.await(3);
+        Assert.assertEquals(List.of(ActorChange.Type.INSERT, ActorChange.Type.UPDATE, ActorChange.Type.DELETE),
+                changes.stream().map(ActorChange::getType).collect(Collectors.toList()));
+        Assert.assertEquals(List.of(11, 11, 11), changes.stream().map(ActorChange::getId).collect(Collectors.toList()));
+        Assert.assertEquals("Astrophysicist", changes.get(1).getActor().role);
+        Assert.assertEquals(changes.get(0).getVersion() + 1, changes.get(1).getVersion());
+        Assert.assertEquals(changes.get(1).getVersion() + 1, changes.get(2).getVersion());
+    }
+
+    @Test
+    public void batchesFollowTheDemand() {
+        ActorChangePublisher publisher = new ActorChangePublisher(Runnable::run, 3);
+        ChangeCollector collector = new ChangeCollector(1);
+        publisher.subscribe(collector);
+        for (int version = 1; version <= 5; version++) {
+            publisher.publish(change(version));
+        }
+        Assert.assertEquals(List.of(List.of(1L)), collector.batchVersions());
+        collector.subscription.request(1);
+        Assert.assertEquals(List.of(List.of(1L), List.of(2L, 3L, 4L)), collector.batchVersions());
+        collector.subscription.request(5);
+        Assert.assertEquals(List.of(List.of(1L), List.of(2L, 3L, 4L), List.of(5L)), collector.batchVersions());
+        publisher.close();
+        Assert.assertTrue(collector.completed);
+        Assert.assertFalse(publisher.hasSubscribers());
+    }
+
+    @Test
+    public void overflowPolicies() {
+        ActorChangePublisher publisher = new ActorChangePublisher(Runnable::run, 3);
+        ChangeCollector dropping = new ChangeCollector(0);
+        ChangeCollector cancelled = new ChangeCollector(0);
+        publisher.subscribe(dropping, 4, ActorChangePublisher.OverflowPolicy.DROP_OLDEST);
+        publisher.subscribe(cancelled, 4, ActorChangePublisher.OverflowPolicy.CANCEL);
+        for (int version = 1; version <= 10; version++) {
+            publisher.publish(change(version));
+        }
+        Assert.assertTrue(cancelled.error instanceof IllegalStateException);
+        dropping.subscription.request(10);
+        Assert.assertEquals(List.of(List.of(7L, 8L, 9L), List.of(10L)), dropping.batchVersions());
+        Assert.assertEquals(6, publisher.droppedChanges());
+        cancelled.subscription.request(10);
+        Assert.assertTrue(cancelled.batches.isEmpty());
+        dropping.subscription.request(0);
+        Assert.assertTrue(dropping.error instanceof IllegalArgumentException);
+        Assert.assertFalse(publisher.hasSubscribers());
+        Assert.assertThrows(IllegalArgumentException.class, () -> publisher.subscribe(dropping, 0,
+                ActorChangePublisher.OverflowPolicy.CANCEL));
+    }
+
+    /**
+     * Prints how long a mirror of the catalog takes to catch up with some updates through the changes, against the
+     * time of reading the whole catalog again. It only runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void changesAgainstReadingTheCatalog() throws InterruptedException {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE));
+        Map<Integer, Actor> mirror = new HashMap<>();
+        int updates = 10_000;
+        CountDownLatch applied = new CountDownLatch(updates);
+        dao.changes().subscribe(new ChangeCollector(Long.MAX_VALUE) {
+            @Override
+            public void onNext(List<ActorChange> batch) {
+                for (ActorChange change : batch) {
+                    mirror.put(change.getId(), change.getActor());
+                    applied.countDown();
+                }
+            }
+        });
+        long start = System.nanoTime();
+        dao.findAll().forEach(actor -> mirror.put(actor.id, actor));
+        long readNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int id = 1; id <= updates; id++) {
+            dao.update(new Actor(id, "Actor " + id, String.format("Personage %07d", id), "Comic Book Reader"));
+        }
+        Assert.assertTrue(applied.await(30, TimeUnit.SECONDS));
+        long changesNanos = System.nanoTime() - start;
+        Assert.assertEquals("Comic Book Reader", mirror.get(updates).role);
+        System.out.println(updates + " updates applied to the mirror in " + changesNanos / 1_000_000
+                + " ms, reading the " + CATALOG_SIZE + " actors took " + readNanos / 1_000_000 + " ms.");
+    }
+
+    private static ActorChange change(long version) {
+        return new ActorChange(version, ActorChange.Type.UPDATE, new Actor(1, "Actor 1", "Personage 1", null));
+    }
+
+    private static class ChangeCollector implements Flow.Subscriber<List<ActorChange>> {
+
+        private final long initialRequest;
+        private final BlockingQueue<List<ActorChange>> batches = new LinkedBlockingQueue<>();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        private ChangeCollector(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(List<ActorChange> batch) {
+            batches.add(batch);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        private List<ActorChange> await(int count) throws InterruptedException {
+            List<ActorChange> changes = new ArrayList<>();
+            while (changes.size() < count) {
+                List<ActorChange> batch = batches.poll(10, TimeUnit.SECONDS);
+                Assert.assertNotNull("Missing changes after " + changes, batch);
+                changes.addAll(batch);
+            }
+            return changes;
+        }
+
+        private List<List<Long>> batchVersions() {
+            return batches.stream()
+                    .map(batch -> batch.stream().map(ActorChange::getVersion).collect(Collectors.toList()))
+                    .collect(Collectors.toList());
+        }
+    }
+}
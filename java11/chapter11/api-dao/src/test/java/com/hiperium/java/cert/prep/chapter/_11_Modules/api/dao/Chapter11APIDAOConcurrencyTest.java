@@ -0,0 +1,130 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The first half of the catalog is never modified, so the readers always know what they must find there. The writer
+ * renames, removes and adds back the actors of the second half while the readers are running.
+ */
+public class Chapter11APIDAOConcurrencyTest {
+
+    private static final int CATALOG_SIZE = 100_000;
+    private static final int STABLE_SIZE = CATALOG_SIZE / 2;
+    private static final long RUN_MILLIS = 1_000;
+
+    @Test
+    public void writeOperations() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE));
+        Assert.assertTrue(dao.update(new Actor(1, "New Name", "Personage 0000001", "Role")));
+        Assert.assertEquals("New Name", dao.findByPersonage("Personage 0000001").name);
+        Assert.assertFalse(dao.add(new Actor(1, "Duplicated", "Duplicated", "Role")));
+        Assert.assertFalse(dao.update(new Actor(CATALOG_SIZE + 1, "Unknown", "Unknown", "Role")));
+        Assert.assertTrue(dao.remove(CATALOG_SIZE));
+        Assert.assertFalse(dao.remove(CATALOG_SIZE));
+        Assert.assertNull(dao.findByPersonage(personage(CATALOG_SIZE)));
+    }
+
+    /**
+     * The readers check every actor they find, so this only needs them to have read something.
+     */
+    @Test
+    public void readersSeeConsistentActorsWhileAWriterAppliesUpdates() throws Exception {
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE));
+        Assert.assertTrue(runReaders(dao, 2) > 0);
+    }
+
+    /**
+     * Prints the reads per second of a single reader against one reader per core, while a writer applies updates. It
+     * only runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void readersScaleWhileAWriterAppliesUpdates() throws Exception {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE));
+        int cores = Runtime.getRuntime().availableProcessors();
+        runReaders(dao, 1); // Warming up the JIT before measuring.
+        long singleReaderOps = runReaders(dao, 1);
+        long multipleReaderOps = runReaders(dao, Math.max(2, cores));
+        System.out.println("Reads per second with 1 reader: " + singleReaderOps);
+        System.out.println("Reads per second with " + Math.max(2, cores) + " readers: " + multipleReaderOps);
+    }
+
+    private static long runReaders(Chapter11APIDAO dao, int readers) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        ExecutorService service = Executors.newFixedThreadPool(readers + 1);
+        try {
+            Future<?> writer = service.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    int id = STABLE_SIZE + 1 + random.nextInt(CATALOG_SIZE - STABLE_SIZE);
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            dao.update(new Actor(id, "Renamed " + id, "Renamed " + id, "Role"));
+                            break;
+                        case 1:
+                            dao.remove(id);
+                            break;
+                        default:
+                            dao.add(new Actor(id, "Actor " + id, personage(id), "Role"));
+                            dao.update(new Actor(id, "Actor " + id, personage(id), "Role"));
+                    }
+                }
+            });
+            Future<?>[] futures = new Future<?>[readers];
+            for (int i = 0; i < readers; i++) {
+                futures[i] = service.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long count = 0;
+                    while (running.get()) {
+                        int stableId = 1 + random.nextInt(STABLE_SIZE);
+                        Actor stable = dao.findByPersonage(personage(stableId));
+                        Assert.assertEquals(stableId, stable.id);
+
+                        int volatileId = STABLE_SIZE + 1 + random.nextInt(CATALOG_SIZE - STABLE_SIZE);
+                        Actor changing = dao.findByPersonage(personage(volatileId));
+                        if (changing != null) {
+                            Assert.assertEquals(volatileId, changing.id);
+                            Assert.assertEquals(personage(volatileId), changing.personage);
+                        }
+
+                        List<Actor> range = dao.findAllByPersonagePrefix("Personage 00000");
+                        Set<Integer> ids = new HashSet<>();
+                        range.forEach(actor -> ids.add(actor.id));
+                        Assert.assertEquals(99, range.size());
+                        Assert.assertEquals(99, ids.size());
+                        count += 3;
+                    }
+                    reads.addAndGet(count);
+                });
+            }
+            TimeUnit.MILLISECONDS.sleep(RUN_MILLIS);
+            running.set(false);
+            writer.get();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            service.shutdown();
+        }
+        return reads.get() * 1_000 / RUN_MILLIS;
+    }
+
+    private static String personage(int id) {
+        return String.format("Personage %07d", id);
+    }
+}
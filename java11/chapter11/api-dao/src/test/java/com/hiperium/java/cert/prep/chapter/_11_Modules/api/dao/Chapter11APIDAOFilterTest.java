@@ -0,0 +1,108 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.filter.PrefixBloomFilter;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class Chapter11APIDAOFilterTest {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    @Test
+    public void everyPrefixOfAnAddedPersonageIsFound() {
+        PrefixBloomFilter filter = PrefixBloomFilter.of(List.of("Sheldon Cooper", "Penny"));
+        for (String prefix : List.of("S", "Sh", "Sheldon", "Sheldon Cooper", "P", "Penny")) {
+            Assert.assertTrue(filter.mightContainPrefix(prefix));
+        }
+        Assert.assertTrue(filter.mightContainPrefix(""));
+        Assert.assertFalse(filter.mightContainPrefix("Barry Kripke"));
+        Assert.assertFalse(filter.mightContainPrefix("Penny Hofstadter"));
+
+        String longPersonage = "Dr. Sheldon Lee Cooper, B.S., M.S., M.A., Ph.D., Sc.D.";
+        filter.add(longPersonage);
+        Assert.assertTrue(filter.mightContainPrefix(longPersonage));
+        Assert.assertTrue(filter.mightContainPrefix(longPersonage.substring(0, PrefixBloomFilter.MAX_PREFIX_LENGTH)));
+    }
+
+    @Test
+    public void writesKeepTheFilterUpToDate() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(List.of(new Actor(1, "Jim Parsons", "Sheldon Cooper", null)));
+        Assert.assertNull(dao.findByPersonage("Stuart"));
+        Assert.assertTrue(dao.add(new Actor(2, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertEquals(2, dao.findByPersonage("Stuart").id);
+        Assert.assertTrue(dao.update(new Actor(2, "Kevin Sussman", "Comic Book Guy", "Comic Book Store Owner")));
+        Assert.assertEquals(2, dao.findByPersonage("Comic").id);
+        Assert.assertNull(dao.findByPersonage("Stuart"));
+
+        // The removed personages stay in the filter until it gets too full and the writers replace it.
+        for (int id = 10; id < 50_000; id++) {
+            Assert.assertTrue(dao.add(new Actor(id, null, "Personage " + id, null)));
+            Assert.assertTrue(dao.remove(id));
+        }
+        Assert.assertTrue(dao.personageFilterStats().getExpectedFalsePositiveRate() <= 0.05);
+        Assert.assertEquals(1, dao.findByPersonage("Sheldon").id);
+        Assert.assertEquals(2, dao.findByPersonage("Comic Book Guy").id);
+    }
+
+    /**
+     * Checks the false positive rate of random missing personages against a filter of a hundred thousand personages,
+     * and that none of the present personages is missed.
+     */
+    @Test
+    public void falsePositiveRate() {
+        int catalogSize = 100_000;
+        List<String> personages = new ArrayList<>(catalogSize);
+        Chapter11APIDAOTest.syntheticActors(catalogSize).forEach(actor -> personages.add(actor.personage));
+        PrefixBloomFilter filter = PrefixBloomFilter.of(personages);
+        personages.forEach(personage -> Assert.assertTrue(filter.mightContainPrefix(personage)));
+
+        Random random = new Random(catalogSize);
+        int misses = 100_000;
+        int falsePositives = 0;
+        for (int i = 0; i < misses; i++) {
+            String miss = String.format("Personage %07d", catalogSize + 1 + random.nextInt(catalogSize));
+            if (filter.mightContainPrefix(miss)) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives + " false positives.", falsePositives < misses * 0.05);
+    }
+
+    /**
+     * Prints the filter of a DAO with a million actors, and the latency of its hits and misses. It only runs with
+     * "-Dbenchmarks=true".
+     */
+    @Test
+    public void hitAndMissLatency() {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE));
+        Random random = new Random(CATALOG_SIZE);
+        List<String> hits = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            hits.add(String.format("Personage %07d", 1 + random.nextInt(CATALOG_SIZE)));
+            misses.add(String.format("Personage %07d", CATALOG_SIZE + 1 + random.nextInt(CATALOG_SIZE)));
+        }
+        System.out.println("Personage filter of the DAO: " + dao.personageFilterStats());
+        System.out.println("Hit latency: " + averageLookupNanos(dao, hits) + " ns, miss latency: "
+                + averageLookupNanos(dao, misses) + " ns.");
+    }
+
+    private static long averageLookupNanos(Chapter11APIDAO dao, List<String> personages) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (String personage : personages) {
+                dao.findByPersonage(personage);
+            }
+            best = Math.min(best, (System.nanoTime() - start) / personages.size());
+        }
+        return best;
+    }
+}
@@ -0,0 +1,156 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.text.TextFolding;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+public class Chapter11APIDAOFoldedTest {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    @Test
+    public void textFolding() {
+        Assert.assertEquals("jose", TextFolding.fold("José"));
+        Assert.assertEquals("jose", TextFolding.fold("JOSÉ"));
+        Assert.assertEquals("strasse", TextFolding.fold("Straße"));
+        Assert.assertEquals("office", TextFolding.fold("Oﬃce"));
+        Assert.assertEquals("σοφοσ", TextFolding.fold("ΣΟΦΌΣ"));
+        Assert.assertEquals("sheldon cooper", TextFolding.fold("Sheldon Cooper"));
+    }
+
+    @Test
+    public void findAllByFoldedPrefix() {
+        Chapter11APIDAO dao = Chapter11APIDAO.getInstance();
+        Assert.assertEquals(List.of(2), ids(dao.findAllByFoldedPrefix("SHELDON", 10)));
+        Assert.assertEquals(List.of(2), ids(dao.findAllByFoldedPrefix("shéldön c", 10)));
+        Assert.assertEquals(List.of(3, 5), ids(dao.findAllByFoldedPrefix("k", 10)));
+        Assert.assertEquals(List.of(3), ids(dao.findAllByFoldedPrefix("k", 1)));
+        Assert.assertEquals(7, dao.findAllByFoldedPrefix("", 10).size());
+        Assert.assertTrue(dao.findAllByFoldedPrefix("Stuart", 10).isEmpty());
+        Assert.assertTrue(dao.findAllByFoldedPrefix("Penny", 0).isEmpty());
+        Assert.assertThrows(IllegalArgumentException.class, () -> dao.findAllByFoldedPrefix("Penny", -1));
+    }
+
+    @Test
+    public void writesUpdateTheFoldedIndex() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(300));
+        Assert.assertEquals(List.of(123), ids(dao.findAllByFoldedPrefix("PERSONAGE 0000123", 10)));
+        Assert.assertTrue(dao.add(new Actor(301, "José Müller", "Straße Bloom", "Comic Book Store Owner")));
+        Assert.assertEquals(List.of(301), ids(dao.findAllByFoldedPrefix("strasse", 10)));
+        Assert.assertEquals(List.of(301), ids(dao.findAllByFoldedPrefix("jose mu", 10)));
+        Assert.assertTrue(dao.update(new Actor(301, "José Müller", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertTrue(dao.findAllByFoldedPrefix("strasse", 10).isEmpty());
+        Assert.assertEquals(List.of(301), ids(dao.findAllByFoldedPrefix("STUART", 10)));
+        Assert.assertEquals(List.of(301), ids(dao.findAllByFoldedPrefix("JOSE", 10)));
+        Assert.assertTrue(dao.remove(301));
+        Assert.assertTrue(dao.findAllByFoldedPrefix("jose", 10).isEmpty());
+        Assert.assertEquals(300, dao.findAllByFoldedPrefix("personage", 1_000).size());
+    }
+
+    @Test
+    public void updatesThatOnlyChangeTheCaseOrTheAccents() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(10));
+        Assert.assertTrue(dao.add(new Actor(11, "José Müller", "penny", "Waitress")));
+        Assert.assertEquals(List.of(11), ids(dao.findAllByFoldedPrefix("jose", 10)));
+        Assert.assertTrue(dao.update(new Actor(11, "Jose Muller", "Penny", "Waitress")));
+        Assert.assertEquals(List.of(11), ids(dao.findAllByFoldedPrefix("jose", 10)));
+        Assert.assertEquals(List.of(11), ids(dao.findAllByFoldedPrefix("PENNY", 10)));
+        Assert.assertEquals("Jose Muller", dao.findAllByFoldedPrefix("josé", 10).get(0).name);
+        Assert.assertTrue(dao.update(new Actor(11, "José Müller", "penny", "Waitress")));
+        Assert.assertEquals("penny", dao.findAllByFoldedPrefix("Penny", 10).get(0).personage);
+        Assert.assertTrue(dao.remove(11));
+        Assert.assertTrue(dao.findAllByFoldedPrefix("penny", 10).isEmpty());
+        Assert.assertTrue(dao.findAllByFoldedPrefix("jose", 10).isEmpty());
+    }
+
+    @Test
+    public void foldedIndexMatchesACollator() {
+        List<Actor> actors = Chapter11APIDAOTest.syntheticActors(20_000);
+        Chapter11APIDAO dao = new Chapter11APIDAO(actors);
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        for (String prefix : new String[]{"PERSONAGE 00123", "persönage 0019", "actor 1999", "Sheldon"}) {
+            Assert.assertEquals(ids(scan(collator, actors, prefix, 10)), ids(dao.findAllByFoldedPrefix(prefix, 10)));
+        }
+    }
+
+    /**
+     * Prints the average latency of the folded prefix lookups against a scan that compares every personage and name
+     * with a Collator. The scan is run once, since it takes seconds on this catalog. It only runs with
+     * "-Dbenchmarks=true".
+     */
+    @Test
+    public void foldedIndexAgainstACollator() {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        List<Actor> actors = Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE);
+        Chapter11APIDAO dao = new Chapter11APIDAO(actors);
+        long start = System.nanoTime();
+        dao.findAllByFoldedPrefix("warm up", 1);
+        System.out.println("Folded index built for " + CATALOG_SIZE + " actors in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        for (String prefix : new String[]{"PERSONAGE 0123456", "persönage 09999", "actor 99999"}) {
+            start = System.nanoTime();
+            List<Actor> scanned = scan(collator, actors, prefix, 10);
+            long scanNanos = System.nanoTime() - start;
+            Assert.assertEquals(ids(scanned), ids(dao.findAllByFoldedPrefix(prefix, 10)));
+            long indexNanos = Long.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                start = System.nanoTime();
+                dao.findAllByFoldedPrefix(prefix, 10);
+                indexNanos = Math.min(indexNanos, System.nanoTime() - start);
+            }
+            System.out.println("\"" + prefix + "\": " + indexNanos / 1_000 + " us with the folded index, "
+                    + scanNanos / 1_000 + " us with a Collator scan.");
+        }
+    }
+
+    /**
+     * Compares the prefix of every personage and name with the Collator, and sorts the matches like the index does.
+     */
+    private static List<Actor> scan(Collator collator, List<Actor> actors, String prefix, int limit) {
+        List<Actor> matches = new ArrayList<>();
+        for (Actor actor : actors) {
+            if (startsWith(collator, actor.personage, prefix) || startsWith(collator, actor.name, prefix)) {
+                matches.add(actor);
+            }
+        }
+        return matches.stream()
+                .sorted((actor1, actor2) -> {
+                    int result = matchedKey(actor1, prefix).compareTo(matchedKey(actor2, prefix));
+                    return result != 0 ? result : Integer.compare(actor1.id, actor2.id);
+                })
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static boolean startsWith(Collator collator, String value, String prefix) {
+        return value != null && value.length() >= prefix.length()
+                && collator.compare(value.substring(0, prefix.length()), prefix) == 0;
+    }
+
+    private static String matchedKey(Actor actor, String prefix) {
+        String folded = TextFolding.fold(prefix);
+        String personage = TextFolding.fold(actor.personage);
+        String name = actor.name == null ? null : TextFolding.fold(actor.name);
+        if (name == null || !name.startsWith(folded)) {
+            return personage;
+        }
+        return personage.startsWith(folded) && personage.compareTo(name) < 0 ? personage : name;
+    }
+
+    private static List<Integer> ids(List<Actor> actors) {
+        return actors.stream().map(Actor::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,126 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.query.ActorQuery;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class Chapter11APIDAOQueryTest {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    @Test
+    public void query() {
+        Chapter11APIDAO dao = Chapter11APIDAO.getInstance();
+        Assert.assertEquals(List.of(5), ids(dao.query(ActorQuery.all().withRole("Astrophysicist"))));
+        Assert.assertEquals(List.of(3, 5), ids(dao.query(ActorQuery.all().withNamePrefix("K"))));
+        Assert.assertEquals(List.of(3), ids(dao.query(ActorQuery.all().withPersonagePrefix("Penny"))));
+        Assert.assertEquals(List.of(5), ids(dao.query(ActorQuery.byExample(
+                new Actor(0, "K", null, "Astrophysicist")))));
+        Assert.assertEquals(List.of(6, 7), ids(dao.query(ActorQuery.all().withFilter(actor -> actor.id > 5))));
+        Assert.assertEquals(List.of(1, 2), ids(dao.query(ActorQuery.all().withLimit(2))));
+        Assert.assertEquals(List.of(6), ids(dao.query(ActorQuery.all().withNamePrefix("M")
+                .withFilter(actor -> actor.role.endsWith("Microbiology")))));
+        Assert.assertTrue(dao.query(ActorQuery.all().withRole("Comic Book Store Owner")).isEmpty());
+        Assert.assertTrue(dao.query(ActorQuery.all().withPersonagePrefix("Stuart")).isEmpty());
+        Assert.assertTrue(dao.query(ActorQuery.all().withLimit(0)).isEmpty());
+        Assert.assertThrows(IllegalArgumentException.class, () -> ActorQuery.all().withLimit(-1));
+    }
+
+    @Test
+    public void plannerPicksTheMostSelectiveIndex() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(300));
+        Assert.assertEquals("SCAN(300)", dao.explain(ActorQuery.all()).toString());
+        Assert.assertEquals("ROLE_INDEX(50)", dao.explain(ActorQuery.all().withRole("Astrophysicist")).toString());
+        Assert.assertEquals("NAME_INDEX(11)", dao.explain(ActorQuery.all().withNamePrefix("Actor 12")).toString());
+        Assert.assertEquals("PERSONAGE_INDEX(10)",
+                dao.explain(ActorQuery.all().withPersonagePrefix("Personage 000012")).toString());
+        Assert.assertEquals("ROLE_INDEX(50)", dao.explain(ActorQuery.all().withRole("Astrophysicist")
+                .withNamePrefix("Actor 1")).toString());
+        Assert.assertEquals("NAME_INDEX(11)", dao.explain(ActorQuery.all().withRole("Astrophysicist")
+                .withNamePrefix("Actor 12")).toString());
+        Assert.assertEquals("PERSONAGE_INDEX(0)", dao.explain(ActorQuery.all().withRole("Astrophysicist")
+                .withPersonagePrefix("Stuart")).toString());
+        Assert.assertEquals("SCAN(12)", dao.explain(ActorQuery.all().withRole("Astrophysicist").withLimit(2))
+                .toString());
+        Assert.assertEquals(List.of(123, 129), ids(dao.query(ActorQuery.all().withRole("Astrophysicist")
+                .withNamePrefix("Actor 12"))));
+    }
+
+    @Test
+    public void writesUpdateTheSecondaryIndexes() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(300));
+        ActorQuery owners = ActorQuery.all().withRole("Comic Book Store Owner");
+        Assert.assertTrue(dao.query(owners).isEmpty());
+        Assert.assertTrue(dao.add(new Actor(301, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertEquals(List.of(301), ids(dao.query(owners)));
+        Assert.assertEquals(List.of(301), ids(dao.query(ActorQuery.all().withNamePrefix("Kevin"))));
+        Assert.assertTrue(dao.update(new Actor(301, "Kevin Sussman", "Stuart Bloom", "Astrophysicist")));
+        Assert.assertTrue(dao.query(owners).isEmpty());
+        Assert.assertEquals(51, dao.query(ActorQuery.all().withRole("Astrophysicist")).size());
+        Assert.assertTrue(dao.update(new Actor(301, "Kevin S.", "Stuart Bloom", "Astrophysicist")));
+        Assert.assertTrue(dao.query(ActorQuery.all().withNamePrefix("Kevin Su")).isEmpty());
+        Assert.assertEquals("SCAN(301)", dao.explain(ActorQuery.all()).toString());
+        Assert.assertTrue(dao.remove(301));
+        Assert.assertTrue(dao.query(ActorQuery.all().withNamePrefix("Kevin")).isEmpty());
+        Assert.assertEquals(50, dao.query(ActorQuery.all().withRole("Astrophysicist")).size());
+        Assert.assertEquals("SCAN(300)", dao.explain(ActorQuery.all()).toString());
+    }
+
+    @Test
+    public void queriesMatchAStreamFilter() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(20_000));
+        ActorQuery[] queries = {
+                ActorQuery.all().withRole("Astrophysicist").withNamePrefix("Actor 123"),
+                ActorQuery.all().withRole("Astrophysicist").withPersonagePrefix("Personage 0012"),
+                ActorQuery.all().withRole("Aerospace Engineer").withNamePrefix("Actor 9").withLimit(10),
+                ActorQuery.all().withNamePrefix("Actor 1999").withFilter(actor -> actor.id % 2 == 0)
+        };
+        for (ActorQuery query : queries) {
+            List<Actor> expected = dao.streamAll().filter(query::matches).limit(query.getLimit())
+                    .collect(Collectors.toList());
+            Assert.assertFalse(query.toString(), expected.isEmpty());
+            Assert.assertEquals(query.toString(), ids(expected), ids(dao.query(query)));
+        }
+    }
+
+    /**
+     * Prints the average latency of some queries against the same filter on a stream of all the actors. It only runs
+     * with "-Dbenchmarks=true".
+     */
+    @Test
+    public void queriesAgainstAStreamFilter() {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE));
+        ActorQuery[] queries = {
+                ActorQuery.all().withRole("Astrophysicist").withNamePrefix("Actor 12345"),
+                ActorQuery.all().withRole("Astrophysicist").withPersonagePrefix("Personage 01234"),
+                ActorQuery.all().withRole("Aerospace Engineer").withNamePrefix("Actor 9").withLimit(10)
+        };
+        dao.query(ActorQuery.all().withRole("warm up"));
+        for (ActorQuery query : queries) {
+            long streamNanos = Long.MAX_VALUE;
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                dao.streamAll().filter(query::matches).limit(query.getLimit()).collect(Collectors.toList());
+                streamNanos = Math.min(streamNanos, System.nanoTime() - start);
+            }
+            long queryNanos = Long.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                dao.query(query);
+                queryNanos = Math.min(queryNanos, System.nanoTime() - start);
+            }
+            System.out.println(query + " with " + dao.explain(query) + ": " + queryNanos / 1_000 + " us, "
+                    + streamNanos / 1_000 + " us with a stream filter.");
+        }
+    }
+
+    private static List<Integer> ids(List<Actor> actors) {
+        return actors.stream().map(Actor::getId).collect(Collectors.toList());
+    }
+}
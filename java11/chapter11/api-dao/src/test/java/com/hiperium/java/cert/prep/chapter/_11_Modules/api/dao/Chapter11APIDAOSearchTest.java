@@ -0,0 +1,186 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+public class Chapter11APIDAOSearchTest {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    @Test
+    public void search() {
+        Chapter11APIDAO dao = Chapter11APIDAO.getInstance();
+        Assert.assertEquals(List.of(4), ids(dao.search("wolo", 10)));
+        Assert.assertEquals(List.of(5, 2, 1), ids(dao.search("PHYSICIST", 10)));
+        Assert.assertEquals(List.of(5, 2), ids(dao.search("physicist", 2)));
+        Assert.assertEquals(List.of(6, 7), ids(dao.search("Ph.D.", 10)));
+        Assert.assertEquals(List.of(3, 6, 1), ids(dao.search("en", 3)));
+        Assert.assertTrue(dao.search("Stuart", 10).isEmpty());
+        Assert.assertTrue(dao.search("", 10).isEmpty());
+        Assert.assertTrue(dao.search("Penny", 0).isEmpty());
+        Assert.assertThrows(IllegalArgumentException.class, () -> dao.search("Penny", -1));
+    }
+
+    @Test
+    public void writesUpdateTheSearchIndex() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(300));
+        Assert.assertEquals(List.of(123), ids(dao.search("Personage 0000123", 10)));
+        Assert.assertTrue(dao.add(new Actor(301, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertEquals(List.of(301), ids(dao.search("bloom", 10)));
+        Assert.assertTrue(dao.update(new Actor(301, "Kevin Sussman", "Comic Book Guy", "Comic Book Store Owner")));
+        Assert.assertTrue(dao.search("bloom", 10).isEmpty());
+        Assert.assertEquals(List.of(301), ids(dao.search("book guy", 10)));
+        Assert.assertTrue(dao.update(new Actor(5, "Actor 5", "Personage 0000005", "Comic Book Reader")));
+        Assert.assertEquals(List.of(301, 5), ids(dao.search("comic", 10)));
+        Assert.assertTrue(dao.remove(301));
+        Assert.assertEquals(List.of(5), ids(dao.search("comic", 10)));
+        Assert.assertEquals(300, dao.search("personage", 1_000).size());
+    }
+
+    @Test
+    public void postingListCursor() {
+        int[] ids = new Random(1).ints(10_000, -1_000_000, 1_000_000).distinct().sorted().toArray();
+        PostingList list = PostingList.of(ids, ids.length);
+        Assert.assertArrayEquals(ids, list.toArray());
+        PostingList.Cursor cursor = list.cursor();
+        for (int i = 0; i < ids.length; i += 97) {
+            Assert.assertTrue(cursor.advanceTo(ids[i]));
+            Assert.assertEquals(ids[i], cursor.current());
+        }
+        Assert.assertFalse(cursor.advanceTo(ids[ids.length - 1] + 1));
+        Assert.assertEquals(ids.length - 1, list.without(ids[5]).size());
+        Assert.assertArrayEquals(list.toArray(), list.without(ids[5]).with(ids[5]).toArray());
+    }
+
+    @Test
+    public void postingListWrites() {
+        Random random = new Random(7);
+        TreeSet<Integer> expected = new TreeSet<>();
+        PostingList list = PostingList.EMPTY;
+        for (int i = 0; i < 50_000; i++) {
+            int id = random.nextInt(20_000) - 10_000;
+            if (random.nextInt(3) == 0) {
+                expected.remove(id);
+                list = list.without(id);
+            } else {
+                expected.add(id);
+                list = list.with(id);
+            }
+            if (i % 5_000 == 0) {
+                Assert.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), list.toArray());
+            }
+        }
+        int[] ids = expected.stream().mapToInt(Integer::intValue).toArray();
+        Assert.assertArrayEquals(ids, list.toArray());
+        PostingList.Cursor cursor = list.cursor();
+        for (int target = -10_001; target < 10_000; target += 37) {
+            Integer ceiling = expected.ceiling(target);
+            Assert.assertEquals(ceiling != null, cursor.advanceTo(target));
+            if (ceiling != null) {
+                Assert.assertEquals(ceiling.intValue(), cursor.current());
+            }
+        }
+        for (int id : ids) {
+            list = list.without(id);
+        }
+        Assert.assertEquals(0, list.size());
+    }
+
+    /**
+     * Renames and restores actors in the middle of the catalog with the index built, so every write removes the id
+     * from the longest posting lists and adds it back, and each of those writes only encodes again one block of a
+     * list. The search must find every renamed actor, and none of them once they are restored.
+     */
+    @Test
+    public void writesWithTheIndexBuilt() {
+        int catalogSize = 200_000;
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(catalogSize));
+        dao.search("warm up", 1);
+        Random random = new Random(catalogSize);
+        int writes = 2_000;
+        for (int i = 0; i < writes; i++) {
+            int id = 1 + random.nextInt(catalogSize);
+            Actor actor = dao.findPage(id - 1, 1).get(0);
+            Assert.assertTrue(dao.update(new Actor(id, "Player " + id, actor.personage, actor.role)));
+            Assert.assertEquals(List.of(id), ids(dao.search("Player " + id, 2)));
+            Assert.assertTrue(dao.update(actor));
+        }
+        Assert.assertTrue(dao.search("player", 10).isEmpty());
+        Assert.assertEquals(List.of(123_456), ids(dao.search("Actor 123456", 1)));
+        Assert.assertEquals(catalogSize, dao.search("actor", catalogSize).size());
+    }
+
+    /**
+     * Prints the cost of the first search, which builds the index, and the average latency of the searches against
+     * a scan of the whole catalog. It only runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void searchAgainstAScan() {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        Chapter11APIDAO dao = new Chapter11APIDAO(Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE));
+        long start = System.nanoTime();
+        dao.search("warm up", 1);
+        System.out.println("Trigram index built for " + CATALOG_SIZE + " actors in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        for (String text : new String[]{"0123456", "ctor 99999", "neurobiology", "physicist"}) {
+            Assert.assertEquals(ids(scan(dao, text, 10)), ids(dao.search(text, 10)));
+            int rounds = 5;
+            long searchNanos = Long.MAX_VALUE;
+            long scanNanos = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                start = System.nanoTime();
+                dao.search(text, 10);
+                searchNanos = Math.min(searchNanos, System.nanoTime() - start);
+                start = System.nanoTime();
+                scan(dao, text, 10);
+                scanNanos = Math.min(scanNanos, System.nanoTime() - start);
+            }
+            System.out.println("\"" + text + "\": " + searchNanos / 1_000 + " us with the trigram index, "
+                    + scanNanos / 1_000 + " us with a scan.");
+        }
+    }
+
+    /**
+     * Finds the same matches as the search, in the same order, reading every actor.
+     */
+    private static List<Actor> scan(Chapter11APIDAO dao, String text, int limit) {
+        String folded = text.toLowerCase(Locale.ROOT);
+        return dao.streamAll()
+                .filter(actor -> rank(actor, folded) != null)
+                .sorted((actor1, actor2) -> {
+                    long[] rank1 = rank(actor1, folded);
+                    long[] rank2 = rank(actor2, folded);
+                    for (int i = 0; i < rank1.length; i++) {
+                        if (rank1[i] != rank2[i]) {
+                            return Long.compare(rank1[i], rank2[i]);
+                        }
+                    }
+                    return 0;
+                })
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static long[] rank(Actor actor, String folded) {
+        String[] fields = {actor.personage, actor.name, actor.role};
+        for (int field = 0; field < fields.length; field++) {
+            int position = fields[field] == null ? -1 : fields[field].toLowerCase(Locale.ROOT).indexOf(folded);
+            if (position >= 0) {
+                return new long[]{field, position, fields[field].length(), actor.id};
+            }
+        }
+        return null;
+    }
+
+    private static List<Integer> ids(List<Actor> actors) {
+        return actors.stream().map(Actor::getId).collect(Collectors.toList());
+    }
+}
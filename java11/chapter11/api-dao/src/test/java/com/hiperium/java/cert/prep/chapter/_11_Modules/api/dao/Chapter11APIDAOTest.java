@@ -0,0 +1,160 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.event.ActorChange;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.query.ActorQuery;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class Chapter11APIDAOTest {
+
+    private static final String[] ROLES = {"Experimental Physicist", "Theoretical Physicist", "Aerospace Engineer",
+            "Astrophysicist", "Ph.D. in Microbiology", "Ph.D. in Neurobiology"};
+
+    static List<Actor> syntheticActors(int size) {
+        List<Actor> actors = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            actors.add(new Actor(id, "Actor " + id, String.format("Personage %07d", id), ROLES[id % ROLES.length]));
+        }
+        return actors;
+    }
+
+    @Test
+    public void findByPersonage() {
+        Chapter11APIDAO dao = Chapter11APIDAO.getInstance();
+        Assert.assertEquals("Jim Parsons", dao.findByPersonage("Sheldon").name);
+        Assert.assertEquals("Penny", dao.findByPersonage("Pen").personage);
+        Assert.assertNull(dao.findByPersonage("Stuart"));
+        Assert.assertNull(dao.findByPersonage("Sheldon Cooper Jr."));
+    }
+
+    @Test
+    public void findAllByPersonagePrefix() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(List.of(
+                new Actor(1, "A", "Raj", "R1"),
+                new Actor(2, "B", "Rajesh", "R2"),
+                new Actor(3, "C", "Penny", "R3"),
+                new Actor(4, "D", "Raj", "R4"),
+                new Actor(5, "E", "Ra", "R5")));
+        List<Actor> actors = dao.findAllByPersonagePrefix("Raj");
+        Assert.assertEquals(List.of(1, 4, 2), actors.stream().map(Actor::getId).collect(Collectors.toList()));
+        Assert.assertEquals(5, dao.findAllByPersonagePrefix("").size());
+        Assert.assertTrue(dao.findAllByPersonagePrefix("Sheldon").isEmpty());
+    }
+
+    @Test
+    public void findPage() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(syntheticActors(25));
+        List<Integer> ids = new ArrayList<>();
+        int cursor = 0;
+        List<Actor> page;
+        while (!(page = dao.findPage(cursor, 10)).isEmpty()) {
+            Assert.assertTrue(page.size() <= 10);
+            page.forEach(actor -> ids.add(actor.id));
+            cursor = page.get(page.size() - 1).id;
+        }
+        Assert.assertEquals(syntheticActors(25).stream().map(Actor::getId).collect(Collectors.toList()), ids);
+        Assert.assertTrue(dao.findPage(0, 0).isEmpty());
+        Assert.assertThrows(IllegalArgumentException.class, () -> dao.findPage(0, -1));
+    }
+
+    @Test
+    public void streamAll() {
+        Chapter11APIDAO dao = new Chapter11APIDAO(syntheticActors(1_000));
+        Assert.assertEquals(1_000, dao.streamAll().count());
+        Assert.assertEquals(1, dao.streamAll().findFirst().orElseThrow().id);
+        Assert.assertEquals(166, dao.streamAll().filter(actor -> actor.role.equals(ROLES[0])).count());
+    }
+
+    /**
+     * The actors returned by the reads and the changes are copies, so changing them doesn't move an actor in the
+     * indexes of the store.
+     */
+    @Test
+    public void readsReturnCopies() throws InterruptedException {
+        Chapter11APIDAO dao = new Chapter11APIDAO(syntheticActors(10));
+        BlockingQueue<ActorChange> changes = new LinkedBlockingQueue<>();
+        dao.changes().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(List<ActorChange> batch) {
+                changes.addAll(batch);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                // Nothing to implement
+            }
+
+            @Override
+            public void onComplete() {
+                // Nothing to implement
+            }
+        });
+        Actor written = new Actor(11, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner");
+        dao.add(written);
+        written.personage = "Changed";
+
+        List<Actor> returned = new ArrayList<>();
+        returned.add(dao.findByPersonage("Stuart"));
+        returned.addAll(dao.findAll());
+        returned.addAll(dao.findPage(0, 20));
+        dao.streamAll().forEach(returned::add);
+        returned.addAll(dao.findAllByPersonagePrefix("Personage"));
+        returned.addAll(dao.findByPersonages(List.of("Stuart", "Personage 0000001")).values());
+        returned.addAll(dao.search("stuart", 5));
+        returned.addAll(dao.findAllByFoldedPrefix("stuart", 5));
+        returned.addAll(dao.query(ActorQuery.all().withRole("Comic Book Store Owner")));
+        returned.addAll(dao.query(ActorQuery.all()));
+        returned.forEach(actor -> {
+            actor.personage = "Zzz";
+            actor.name = "Zzz";
+            actor.role = "Zzz";
+        });
+        ActorChange published = changes.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(published);
+        published.getActor().personage = "Zzz";
+
+        Assert.assertEquals("Stuart Bloom", published.getActor().personage);
+        Assert.assertEquals(11, dao.findByPersonage("Stuart").id);
+        Assert.assertNull(dao.findByPersonage("Zzz"));
+        Assert.assertEquals("Kevin Sussman", dao.findAllByFoldedPrefix("kevin", 1).get(0).name);
+        Assert.assertEquals(List.of(11), dao.search("comic", 5).stream().map(Actor::getId)
+                .collect(Collectors.toList()));
+        Assert.assertEquals(1, dao.query(ActorQuery.all().withRole("Comic Book Store Owner")).size());
+        Assert.assertTrue(dao.query(ActorQuery.all().withRole("Zzz")).isEmpty());
+    }
+
+    /**
+     * Every personage of a large catalog is found through the sorted index, and the keys that sort between two
+     * personages are misses. The latency per catalog size is measured by Chapter11APIBenchmark in api-bench.
+     */
+    @Test
+    public void lookupsOnALargeCatalog() {
+        int catalogSize = 200_000;
+        Chapter11APIDAO dao = new Chapter11APIDAO(syntheticActors(catalogSize));
+        Random random = new Random(catalogSize);
+        for (int i = 0; i < 10_000; i++) {
+            int id = 1 + random.nextInt(catalogSize);
+            String personage = String.format("Personage %07d", id);
+            Assert.assertEquals(id, dao.findByPersonage(personage).id);
+            Assert.assertNull(dao.findByPersonage(personage + "X"));
+        }
+        Assert.assertEquals(1, dao.findByPersonage("Personage 0000001").id);
+        Assert.assertEquals(catalogSize, dao.findByPersonage(String.format("Personage %07d", catalogSize)).id);
+        Assert.assertNull(dao.findByPersonage("Personage 9999999"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ColumnarActorTableTest {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    @Test
+    public void materializesTheActors() {
+        ColumnarActorTable table = ColumnarActorTable.of(List.of(
+                new Actor(3, "Kaley Cuoco", "Penny", "Waitress"),
+                new Actor(1, "Johnny Galecki", "Leonard Hofstadter", "Experimental Physicist"),
+                new Actor(2, null, "Leonard's Mother", null),
+                new Actor(4, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner"),
+                new Actor(5, "Jim Parsons", "Sheldon Cooper", "Theoretical Physicist"),
+                new Actor(6, "Laurie Metcalf", "Mary Cooper", "Waitress")));
+        Assert.assertEquals(6, table.size());
+        Assert.assertEquals(4, table.distinctRoles());
+        Actor penny = table.findById(3);
+        Assert.assertEquals("Kaley Cuoco", penny.name);
+        Assert.assertEquals("Penny", penny.personage);
+        Assert.assertEquals("Waitress", penny.role);
+        Assert.assertNull(table.findById(2).name);
+        Assert.assertNull(table.findById(2).role);
+        Assert.assertNull(table.findById(7));
+        Assert.assertEquals(5, table.findByPersonage("Sh").id);
+        Assert.assertNull(table.findByPersonage("Raj"));
+        Assert.assertEquals(List.of(1, 2), table.findAllByPersonagePrefix("Leonard").stream()
+                .map(Actor::getId).collect(Collectors.toList()));
+        Assert.assertEquals(List.of(1, 2, 3, 4, 5, 6), table.stream().map(Actor::getId).collect(Collectors.toList()));
+        Assert.assertThrows(IllegalArgumentException.class, () -> ColumnarActorTable.of(List.of(
+                new Actor(1, "A", "A", "A"), new Actor(1, "B", "B", "B"))));
+    }
+
+    /**
+     * The table must hold the text of the actors in UTF-8 and five ints per actor, the ids, the two offsets, the role
+     * code and the personage order, plus a few arrays and roles that don't grow with the catalog.
+     */
+    @Test
+    public void estimatedHeapBytes() {
+        List<Actor> actors = Chapter11APIDAOTest.syntheticActors(10_000);
+        long textBytes = 0;
+        for (Actor actor : actors) {
+            textBytes += actor.name.getBytes(StandardCharsets.UTF_8).length
+                    + actor.personage.getBytes(StandardCharsets.UTF_8).length;
+        }
+        long minimum = textBytes + 5L * Integer.BYTES * actors.size();
+        long estimated = ColumnarActorTable.of(actors).estimatedHeapBytes();
+        Assert.assertTrue("Estimated " + estimated + " bytes for " + minimum, estimated >= minimum);
+        Assert.assertTrue("Estimated " + estimated + " bytes for " + minimum, estimated < minimum + 4_096);
+    }
+
+    /**
+     * Measures the used heap after a GC, with the actors held in an ArrayList and then in a columnar table. It only
+     * runs with "-Dbenchmarks=true", since the readings of the free memory depend on the JVM and its GC.
+     */
+    @Test
+    public void heapBytesPerActor() {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        long baseline = usedHeap();
+        List<Actor> actors = new ArrayList<>(Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE));
+        long listBytes = usedHeap() - baseline;
+        ColumnarActorTable table = ColumnarActorTable.of(actors);
+        actors = null;
+        long tableBytes = usedHeap() - baseline;
+        System.out.println("Heap bytes per actor in an ArrayList<Actor>: " + listBytes / CATALOG_SIZE);
+        System.out.println("Heap bytes per actor in the columnar table: " + tableBytes / CATALOG_SIZE
+                + " (estimated: " + table.estimatedHeapBytes() / CATALOG_SIZE + ")");
+        Assert.assertEquals(CATALOG_SIZE, table.size());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,153 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.dao;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class MappedActorSnapshotTest {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    @Test
+    public void readsTheActorsWrittenByTheTable() throws IOException {
+        ColumnarActorTable table = ColumnarActorTable.of(List.of(
+                new Actor(3, "Kaley Cuoco", "Penny", "Waitress"),
+                new Actor(1, "Johnny Galecki", "Leonard Hofstadter", "Experimental Physicist"),
+                new Actor(2, null, "Leonard's Mother", null),
+                new Actor(9, "Kunal Nayyar", "Rajesh Koothrappali", "Astrophysicist"),
+                new Actor(5, "Jim Parsons", "Sheldon Cooper", "Theoretical Physicist")));
+        Path file = Files.createTempFile("actors", ".snapshot");
+        try {
+            table.writeSnapshot(file);
+            MappedActorSnapshot snapshot = MappedActorSnapshot.open(file);
+            Assert.assertEquals(5, snapshot.size());
+            Actor penny = snapshot.findById(3);
+            Assert.assertEquals("Kaley Cuoco", penny.name);
+            Assert.assertEquals("Penny", penny.personage);
+            Assert.assertEquals("Waitress", penny.role);
+            Assert.assertNull(snapshot.findById(2).name);
+            Assert.assertNull(snapshot.findById(2).role);
+            Assert.assertNull(snapshot.findById(4));
+            Assert.assertEquals(9, snapshot.findByPersonage("Raj").id);
+            Assert.assertNull(snapshot.findByPersonage("Stuart"));
+            Assert.assertEquals(List.of(1, 2), snapshot.findAllByPersonagePrefix("Leonard").stream()
+                    .map(Actor::getId).collect(Collectors.toList()));
+            Assert.assertEquals(List.of(1, 2, 3, 5, 9), snapshot.stream().map(Actor::getId)
+                    .collect(Collectors.toList()));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        Path file = Files.createTempFile("actors", ".snapshot");
+        try {
+            Files.write(file, new byte[64]);
+            Assert.assertThrows(IllegalArgumentException.class, () -> MappedActorSnapshot.open(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void rejectsCorruptSnapshots() throws IOException {
+        Path file = Files.createTempFile("actors", ".snapshot");
+        try {
+            ColumnarActorTable.of(List.of(new Actor(3, "Kaley Cuoco", "Penny", "Waitress"))).writeSnapshot(file);
+            byte[] bytes = Files.readAllBytes(file);
+
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+            Assert.assertThrows(IllegalArgumentException.class, () -> MappedActorSnapshot.open(file));
+            Files.write(file, Arrays.copyOf(bytes, 12));
+            Assert.assertThrows(IllegalArgumentException.class, () -> MappedActorSnapshot.open(file));
+
+            byte[] negativeSize = bytes.clone();
+            ByteBuffer.wrap(negativeSize).putInt(8, -1);
+            Files.write(file, negativeSize);
+            Assert.assertThrows(IllegalArgumentException.class, () -> MappedActorSnapshot.open(file));
+
+            byte[] wrongRoleBytes = bytes.clone();
+            ByteBuffer.wrap(wrongRoleBytes).putInt(24, 1_000);
+            Files.write(file, wrongRoleBytes);
+            Assert.assertThrows(IllegalArgumentException.class, () -> MappedActorSnapshot.open(file));
+
+            Files.write(file, bytes);
+            Assert.assertEquals("Penny", MappedActorSnapshot.open(file).findById(3).personage);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void loadsTheDAOFromASnapshot() throws IOException {
+        List<Actor> actors = Chapter11APIDAOTest.syntheticActors(1_000);
+        Path file = Files.createTempFile("actors", ".snapshot");
+        try {
+            ColumnarActorTable.of(actors).writeSnapshot(file);
+            Chapter11APIDAO dao = Chapter11APIDAO.newInstance(MappedActorSnapshot.open(file));
+            Chapter11APIDAO expected = Chapter11APIDAO.newInstance(actors);
+            Assert.assertEquals(expected.findAll().size(), dao.findAll().size());
+            for (int id = 1; id <= actors.size(); id += 97) {
+                String personage = String.format("Personage %07d", id);
+                Actor actor = dao.findByPersonage(personage);
+                Assert.assertEquals(id, actor.id);
+                Assert.assertEquals(expected.findByPersonage(personage).name, actor.name);
+                Assert.assertEquals(expected.findByPersonage(personage).role, actor.role);
+            }
+            Assert.assertEquals(expected.findAllByPersonagePrefix("Personage 00001").size(),
+                    dao.findAllByPersonagePrefix("Personage 00001").size());
+            Assert.assertNull(dao.findByPersonage("Stuart"));
+            Assert.assertTrue(dao.add(new Actor(5_000, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+            Assert.assertEquals(5_000, dao.findByPersonage("Stuart").id);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Prints the time to build the in-memory DAO from the actors, the time to open a snapshot of the same actors, and
+     * the time to load the DAO from that snapshot. It only runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void startupAgainstTheInMemoryDAO() throws IOException {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        List<Actor> actors = Chapter11APIDAOTest.syntheticActors(CATALOG_SIZE);
+        long start = System.nanoTime();
+        Chapter11APIDAO dao = new Chapter11APIDAO(actors);
+        long daoMillis = (System.nanoTime() - start) / 1_000_000;
+        Path file = Files.createTempFile("actors", ".snapshot");
+        try {
+            ColumnarActorTable.of(actors).writeSnapshot(file);
+            start = System.nanoTime();
+            MappedActorSnapshot snapshot = MappedActorSnapshot.open(file);
+            long snapshotMicros = (System.nanoTime() - start) / 1_000;
+            start = System.nanoTime();
+            Chapter11APIDAO.newInstance(snapshot);
+            long loadMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Startup of the in-memory DAO with " + CATALOG_SIZE + " actors: " + daoMillis + " ms.");
+            System.out.println("Startup of the mapped snapshot with " + CATALOG_SIZE + " actors: "
+                    + snapshotMicros + " us (" + Files.size(file) / 1_024 + " KB).");
+            System.out.println("Startup of the in-memory DAO from the snapshot: " + loadMillis + " ms.");
+            Assert.assertEquals(CATALOG_SIZE, snapshot.size());
+            for (int id = 1; id <= CATALOG_SIZE; id += 9_973) {
+                Actor expected = dao.findByPersonage(String.format("Personage %07d", id));
+                Actor actual = snapshot.findByPersonage(expected.personage);
+                Assert.assertEquals(expected.id, actual.id);
+                Assert.assertEquals(expected.name, actual.name);
+                Assert.assertEquals(expected.role, snapshot.findById(id).role);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
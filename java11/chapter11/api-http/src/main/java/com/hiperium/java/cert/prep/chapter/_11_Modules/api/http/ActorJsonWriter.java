@@ -0,0 +1,166 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.http;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes actors as JSON straight to an output stream. The chars are encoded to UTF-8 one by one in a byte buffer of
+ * the thread, and the numbers are written digit by digit, so no String or byte array is created per actor. The
+ * buffer is written to the stream when it is full, and when the writer is flushed or closed.
+ */
+final class ActorJsonWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 8_192;
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final OutputStream out;
+    private final byte[] buffer = BUFFERS.get();
+    private int count;
+
+    ActorJsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    void writeActors(Iterable<Actor> actors) throws IOException {
+        write('[');
+        boolean first = true;
+        for (Actor actor : actors) {
+            if (!first) {
+                write(',');
+            }
+            writeActor(actor);
+            first = false;
+        }
+        write(']');
+    }
+
+    void writeActor(Actor actor) throws IOException {
+        writeAscii("{\"id\":");
+        writeInt(actor.id);
+        writeAscii(",\"name\":");
+        writeString(actor.name);
+        writeAscii(",\"personage\":");
+        writeString(actor.personage);
+        writeAscii(",\"role\":");
+        writeString(actor.role);
+        write('}');
+    }
+
+    void writeError(String message) throws IOException {
+        writeAscii("{\"error\":");
+        writeString(message);
+        write('}');
+    }
+
+    void flush() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write(buffer, 0, count);
+            count = 0;
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeAscii("null");
+            return;
+        }
+        write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                write('\\');
+                write(c);
+            } else if (c < 0x20) {
+                writeEscaped(c);
+            } else if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                write(0xC0 | (c >> 6));
+                write(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                write(0xF0 | (codePoint >> 18));
+                write(0x80 | ((codePoint >> 12) & 0x3F));
+                write(0x80 | ((codePoint >> 6) & 0x3F));
+                write(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                writeEscaped(c);
+            } else {
+                write(0xE0 | (c >> 12));
+                write(0x80 | ((c >> 6) & 0x3F));
+                write(0x80 | (c & 0x3F));
+            }
+        }
+        write('"');
+    }
+
+    /**
+     * Writes the char as a \\u escape, which JSON requires for the control chars, and allows for a lone surrogate
+     * that has no UTF-8 encoding.
+     */
+    private void writeEscaped(char c) throws IOException {
+        writeAscii("\\u");
+        write(HEX[(c >> 12) & 0xF]);
+        write(HEX[(c >> 8) & 0xF]);
+        write(HEX[(c >> 4) & 0xF]);
+        write(HEX[c & 0xF]);
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (BUFFER_SIZE - count < 11) {
+            drain();
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[count++] = '-';
+            remaining = -remaining;
+        }
+        int end = count + digits(remaining);
+        for (int position = end - 1; position >= count; position--) {
+            buffer[position] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        count = end;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void writeAscii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            write(value.charAt(i));
+        }
+    }
+
+    private void write(int b) throws IOException {
+        if (count == BUFFER_SIZE) {
+            drain();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+}
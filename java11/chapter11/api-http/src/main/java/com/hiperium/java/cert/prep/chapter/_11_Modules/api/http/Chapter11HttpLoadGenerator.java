@@ -0,0 +1,171 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.http;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11ServiceLocator;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Loopback load test of the Chapter11HttpServer. Every worker thread sends one request at a time and waits for its
+ * response: nine personage lookups, and then a conditional GET of every actor with the last ETag it got, which the
+ * server answers with a 304 while the actors don't change. The runs are repeated with a growing number of workers.
+ *
+ * The main method serves the default provider of the Chapter11ServiceLocator, and is configured with the
+ * "chapter11.http.threads", "chapter11.http.concurrency" (a comma-separated list) and
+ * "chapter11.http.duration-millis" system properties.
+ */
+public final class Chapter11HttpLoadGenerator {
+
+    public static final String THREADS_PROPERTY = "chapter11.http.threads";
+    public static final String CONCURRENCY_PROPERTY = "chapter11.http.concurrency";
+    public static final String DURATION_PROPERTY = "chapter11.http.duration-millis";
+
+    private static final int REQUESTS_PER_FIND_ALL = 10;
+
+    private Chapter11HttpLoadGenerator() {
+        // Nothing to implement
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Chapter11API api = Chapter11ServiceLocator.getApiImpl();
+        List<String> personages = api.findAll().stream().map(Actor::getPersonage).collect(Collectors.toList());
+        Duration duration = Duration.ofMillis(Long.getLong(DURATION_PROPERTY, 2_000L));
+        ExecutorService executor = newServerExecutor(Integer.getInteger(THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+        try (Chapter11HttpServer server = Chapter11HttpServer.start(api,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), executor)) {
+            URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + Chapter11HttpServer.CONTEXT);
+            run(uri, 1, duration, personages);
+            for (String concurrency : System.getProperty(CONCURRENCY_PROPERTY, "1,2,4,8,16,32").split(",")) {
+                System.out.println(run(uri, Integer.parseInt(concurrency.trim()), duration, personages));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns a fixed pool of daemon threads for the server.
+     */
+    public static ExecutorService newServerExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "chapter11-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static HttpLoadResult run(URI actorsUri, int concurrency, Duration duration, List<String> personages)
+            throws InterruptedException {
+        if (concurrency <= 0 || personages.isEmpty()) {
+            throw new IllegalArgumentException("The concurrency and the personages are required.");
+        }
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Worker> workers = new ArrayList<>(concurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(client, actorsUri, personages, deadline, i);
+            workers.add(worker);
+            worker.thread.start();
+        }
+        long errors = 0;
+        int count = 0;
+        for (Worker worker : workers) {
+            worker.thread.join();
+            errors += worker.errors;
+            count += worker.count;
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] latencies = new long[count];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            offset += worker.count;
+        }
+        Arrays.sort(latencies);
+        return new HttpLoadResult(concurrency, count, errors, elapsed, percentile(latencies, 0.50),
+                percentile(latencies, 0.99));
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.max(0, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    private static final class Worker {
+
+        private final HttpClient client;
+        private final URI actorsUri;
+        private final List<String> personages;
+        private final long deadline;
+        private final Thread thread;
+        private long[] latencies = new long[1_024];
+        private int count;
+        private long errors;
+        private int next;
+        private String etag = "\"none\"";
+
+        private Worker(HttpClient client, URI actorsUri, List<String> personages, long deadline, int index) {
+            this.client = client;
+            this.actorsUri = actorsUri;
+            this.personages = personages;
+            this.deadline = deadline;
+            this.next = index;
+            this.thread = new Thread(this::work, "chapter11-http-load-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void work() {
+            while (System.nanoTime() - deadline < 0) {
+                boolean findAll = next % REQUESTS_PER_FIND_ALL == 0;
+                HttpRequest request = findAll
+                        ? HttpRequest.newBuilder(actorsUri).header("If-None-Match", etag).build()
+                        : HttpRequest.newBuilder(URI.create(actorsUri + "?personage=" + URLEncoder.encode(
+                                personages.get(next % personages.size()), StandardCharsets.UTF_8))).build();
+                next++;
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                    long nanos = System.nanoTime() - start;
+                    if (response.statusCode() != 200 && response.statusCode() != 304) {
+                        errors++;
+                        continue;
+                    }
+                    if (findAll) {
+                        etag = response.headers().firstValue("ETag").orElse(etag);
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = nanos;
+                } catch (IOException e) {
+                    errors++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.http;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP front end of a Chapter11API provider on the HTTP server of the JDK. The requests are handled by the given
+ * executor, so the number of threads, and the queue in front of them, are chosen by the caller.
+ *
+ * GET /actors returns every actor as a JSON array. Its ETag is a hash of the actors, so a client that sends it back
+ * in If-None-Match gets a 304 without a body while the actors don't change, and the body is compressed when the
+ * client accepts gzip. GET /actors?personage=X returns the first actor whose personage starts with X, or a 404.
+ *
+ * The JDK server writes the headers and the chunks of a response in separate small packets, which Nagle's algorithm
+ * holds back until the client acknowledges the previous one, so the server turns on TCP_NODELAY with the
+ * "sun.net.httpserver.nodelay" system property, unless it is already set. The property is read once, when the first
+ * HTTP server of the JVM is created.
+ */
+public final class Chapter11HttpServer implements AutoCloseable {
+
+    public static final String CONTEXT = "/actors";
+    public static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final Chapter11API api;
+    private final HttpServer server;
+
+    private Chapter11HttpServer(Chapter11API api, HttpServer server) {
+        this.api = api;
+        this.server = server;
+    }
+
+    /**
+     * Binds the server to the address, port 0 for any free port, and starts it.
+     */
+    public static Chapter11HttpServer start(Chapter11API api, InetSocketAddress address, Executor executor)
+            throws IOException {
+        Objects.requireNonNull(api, "The API implementation is required.");
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        HttpServer server = HttpServer.create(address, 0);
+        Chapter11HttpServer httpServer = new Chapter11HttpServer(api, server);
+        server.createContext(CONTEXT, httpServer::handle);
+        server.setExecutor(Objects.requireNonNull(executor, "The executor is required."));
+        server.start();
+        return httpServer;
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, 405, "Method not allowed: " + method);
+            } else if (!CONTEXT.equals(exchange.getRequestURI().getPath())) {
+                sendError(exchange, 404, "Not found: " + exchange.getRequestURI().getPath());
+            } else {
+                String personage = queryParameter(exchange.getRequestURI().getRawQuery(), "personage");
+                if (personage == null) {
+                    findAll(exchange);
+                } else {
+                    findByPersonage(exchange, personage);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void findAll(HttpExchange exchange) throws IOException {
+        List<Actor> actors = api.findAll();
+        String etag = etag(actors);
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        boolean gzip = acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        try (ActorJsonWriter writer = openJson(exchange, 200, gzip)) {
+            if (writer != null) {
+                writer.writeActors(actors);
+            }
+        }
+    }
+
+    private void findByPersonage(HttpExchange exchange, String personage) throws IOException {
+        Actor actor = api.findByPersonage(personage);
+        if (actor == null) {
+            sendError(exchange, 404, "There is no actor with the personage: " + personage);
+            return;
+        }
+        try (ActorJsonWriter writer = openJson(exchange, 200, false)) {
+            if (writer != null) {
+                writer.writeActor(actor);
+            }
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try (ActorJsonWriter writer = openJson(exchange, status, false)) {
+            if (writer != null) {
+                writer.writeError(message);
+            }
+        }
+    }
+
+    /**
+     * Sends the headers of a chunked JSON response, and returns a writer of its body, or null for a HEAD request.
+     */
+    private static ActorJsonWriter openJson(HttpExchange exchange, int status, boolean gzip) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return null;
+        }
+        exchange.sendResponseHeaders(status, 0);
+        OutputStream body = exchange.getResponseBody();
+        return new ActorJsonWriter(gzip ? new GZIPOutputStream(body, 8_192) : body);
+    }
+
+    /**
+     * Hashes the fields of every actor in order. The hash codes of the strings are cached by the strings, so the
+     * hash costs much less than writing the JSON.
+     */
+    static String etag(List<Actor> actors) {
+        long hash = 1125899906842597L;
+        for (Actor actor : actors) {
+            hash = 31 * hash + actor.id;
+            hash = 31 * hash + Objects.hashCode(actor.name);
+            hash = 31 * hash + Objects.hashCode(actor.personage);
+            hash = 31 * hash + Objects.hashCode(actor.role);
+        }
+        return "\"" + Long.toHexString(hash) + "-" + Integer.toHexString(actors.size()) + "\"";
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag) || value.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").equals("q=0");
+            }
+        }
+        return false;
+    }
+
+    private static String queryParameter(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            if (name.equals(URLDecoder.decode(key, StandardCharsets.UTF_8))) {
+                return equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+}
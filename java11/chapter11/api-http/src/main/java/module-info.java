@@ -0,0 +1,6 @@
+module com.hiperium.java.cert.prep.chapter.eleven.api.http { // module name should avoid terminal digits
+    requires com.hiperium.java.cert.prep.chapter.eleven.api;
+    requires jdk.httpserver;
+    requires java.net.http;
+    exports com.hiperium.java.cert.prep.chapter._11_Modules.api.http;
+}
@@ -0,0 +1,140 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.http;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.dao.Chapter11APIDAO;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+public class Chapter11HttpServerTest {
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private static Chapter11APIDAO dao;
+    private static ExecutorService executor;
+    private static Chapter11HttpServer server;
+    private static URI actorsUri;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        dao = Chapter11APIDAO.newInstance(Chapter11APIDAO.getInstance().findAll());
+        executor = Chapter11HttpLoadGenerator.newServerExecutor(4);
+        server = Chapter11HttpServer.start(dao,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), executor);
+        actorsUri = URI.create("http://localhost:" + server.getAddress().getPort() + Chapter11HttpServer.CONTEXT);
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+        executor.shutdown();
+    }
+
+    @Test
+    public void findByPersonage() throws Exception {
+        HttpResponse<String> response = get(actorsUri + "?personage=Sheldon", "Accept", "application/json");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals("application/json; charset=utf-8",
+                response.headers().firstValue("Content-Type").orElse(null));
+        Assert.assertEquals("{\"id\":2,\"name\":\"Jim Parsons\",\"personage\":\"Sheldon Cooper\","
+                + "\"role\":\"Theoretical Physicist\"}", response.body());
+        Assert.assertEquals(404, get(actorsUri + "?personage=Stuart", "Accept", "application/json").statusCode());
+        Assert.assertEquals(404, get(actorsUri + "/2", "Accept", "application/json").statusCode());
+    }
+
+    @Test
+    public void findAllWithETagAndGzip() throws Exception {
+        HttpResponse<String> response = get(actorsUri.toString(), "Accept", "application/json");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.body().startsWith("[{\"id\":1,\"name\":\"Johnny Galecki\""));
+        Assert.assertEquals(dao.findAll().size(),
+                response.body().split("\\{\"id\":").length - 1);
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> notModified = get(actorsUri.toString(), "If-None-Match", etag);
+        Assert.assertEquals(304, notModified.statusCode());
+        Assert.assertTrue(notModified.body().isEmpty());
+
+        HttpResponse<byte[]> gzipped = CLIENT.send(HttpRequest.newBuilder(actorsUri)
+                .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+        Assert.assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElse(null));
+        Assert.assertEquals(response.body(), gunzip(gzipped.body()));
+    }
+
+    @Test
+    public void writesChangeTheETag() throws Exception {
+        String etag = get(actorsUri.toString(), "Accept", "application/json").headers().firstValue("ETag")
+                .orElseThrow();
+        Assert.assertTrue(dao.add(new Actor(900, "Kevin \"K\" Sussman", "Stuart\tBloom ✓ \uD83D\uDE00", null)));
+        try {
+            Assert.assertEquals(200, get(actorsUri.toString(), "If-None-Match", etag).statusCode());
+            HttpResponse<String> response = get(actorsUri + "?personage=Stuart", "Accept", "application/json");
+            Assert.assertEquals("{\"id\":900,\"name\":\"Kevin \\\"K\\\" Sussman\","
+                    + "\"personage\":\"Stuart\\u0009Bloom ✓ \uD83D\uDE00\",\"role\":null}", response.body());
+        } finally {
+            dao.remove(900);
+        }
+        Assert.assertEquals(304, get(actorsUri.toString(), "If-None-Match", etag).statusCode());
+    }
+
+    @Test
+    public void onlyGetAndHead() throws Exception {
+        HttpResponse<String> response = CLIENT.send(HttpRequest.newBuilder(actorsUri)
+                .POST(HttpRequest.BodyPublishers.ofString("{}")).build(), HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(405, response.statusCode());
+        Assert.assertEquals("GET, HEAD", response.headers().firstValue("Allow").orElse(null));
+        HttpResponse<String> head = CLIENT.send(HttpRequest.newBuilder(actorsUri)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, head.statusCode());
+        Assert.assertTrue(head.body().isEmpty());
+    }
+
+    /**
+     * Prints the throughput and the latency percentiles of the loopback load test as the concurrency grows. It only
+     * runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void loadGenerator() throws Exception {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        List<String> personages = dao.findAll().stream().map(Actor::getPersonage).collect(Collectors.toList());
+        Chapter11HttpLoadGenerator.run(actorsUri, 1, Duration.ofMillis(500), personages);
+        for (int concurrency = 1; concurrency <= 16; concurrency *= 4) {
+            HttpLoadResult result = Chapter11HttpLoadGenerator.run(actorsUri, concurrency, Duration.ofMillis(500),
+                    personages);
+            Assert.assertEquals(0, result.getErrors());
+            Assert.assertTrue(result.getRequests() > 0);
+            System.out.println(result);
+        }
+    }
+
+    private static HttpResponse<String> get(String uri, String header, String value) throws Exception {
+        return CLIENT.send(HttpRequest.newBuilder(URI.create(uri)).header(header, value).build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
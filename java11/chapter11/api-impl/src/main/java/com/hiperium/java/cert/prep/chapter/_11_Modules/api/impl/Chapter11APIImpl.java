@@ -3,9 +3,15 @@ package com.hiperium.java.cert.prep.chapter._11_Modules.api.impl;
 import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
 import com.hiperium.java.cert.prep.chapter._11_Modules.api.dao.Chapter11APIDAO;
 import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.query.ActorQuery;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11Provider;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+@Chapter11Provider(name = "dao", priority = 1)
 public class Chapter11APIImpl implements Chapter11API {
 
     private final Chapter11APIDAO dao = Chapter11APIDAO.getInstance();
@@ -15,8 +21,58 @@ public class Chapter11APIImpl implements Chapter11API {
         return dao.findAll();
     }
 
+    @Override
+    public List<Actor> findPage(int afterId, int limit) {
+        return dao.findPage(afterId, limit);
+    }
+
+    @Override
+    public Stream<Actor> streamAll() {
+        return dao.streamAll();
+    }
+
     @Override
     public Actor findByPersonage(String personage) {
         return dao.findByPersonage(personage);
     }
+
+    @Override
+    public List<Actor> findAllByPersonagePrefix(String prefix) {
+        return dao.findAllByPersonagePrefix(prefix);
+    }
+
+    @Override
+    public Map<String, Actor> findByPersonages(Collection<String> personages) {
+        return dao.findByPersonages(personages);
+    }
+
+    @Override
+    public List<Actor> search(String text, int limit) {
+        return dao.search(text, limit);
+    }
+
+    @Override
+    public List<Actor> findAllByFoldedPrefix(String prefix, int limit) {
+        return dao.findAllByFoldedPrefix(prefix, limit);
+    }
+
+    @Override
+    public List<Actor> query(ActorQuery query) {
+        return dao.query(query);
+    }
+
+    @Override
+    public boolean add(Actor actor) {
+        return dao.add(actor);
+    }
+
+    @Override
+    public boolean update(Actor actor) {
+        return dao.update(actor);
+    }
+
+    @Override
+    public boolean remove(int id) {
+        return dao.remove(id);
+    }
 }
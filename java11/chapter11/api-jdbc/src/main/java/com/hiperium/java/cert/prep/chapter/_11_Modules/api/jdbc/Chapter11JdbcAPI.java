@@ -0,0 +1,585 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.jdbc;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.filter.BloomFilterStats;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.filter.PrefixBloomFilter;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.query.ActorQuery;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.text.TextFolding;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11Provider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Chapter11API over an "actors" table of an embedded HSQLDB database. It is a CACHED table, so with a file database
+ * only a part of the rows is held in the heap. The personage prefix lookups are range scans over the personage index,
+ * from the prefix itself up to the prefix followed by the greatest char.
+ *
+ * The personage lookups check a Bloom filter of the personage prefixes first, so most of the misses don't need a
+ * query. The filter is loaded from the table on startup, so it assumes that the table is only written through this
+ * provider. The writers hold a shared lock while they add the personage to the filter and write the row, and the
+ * filter is rebuilt from the table, under the exclusive lock, when its expected false positive rate goes over
+ * MAX_FILTER_FALSE_POSITIVE_RATE.
+ *
+ * The personage and the name are also stored folded by TextFolding, in the indexed "personage_key" and "name_key"
+ * columns, so the case- and accent-insensitive prefix lookups are range scans too. A table created before those
+ * columns existed gets them, and their values, on startup.
+ *
+ * The queries are translated to a WHERE clause over the role and name indexes and the personage index, and the
+ * database picks the index. A table created before the role and name indexes existed gets them on startup.
+ *
+ * The database URL, the pool size and the max wait for a connection are configured with the "chapter11.jdbc.url",
+ * "chapter11.jdbc.pool-size" and "chapter11.jdbc.max-wait-millis" system properties.
+ */
+@Chapter11Provider(name = "jdbc")
+public class Chapter11JdbcAPI implements Chapter11API, AutoCloseable {
+
+    public static final String URL_PROPERTY = "chapter11.jdbc.url";
+    public static final String POOL_SIZE_PROPERTY = "chapter11.jdbc.pool-size";
+    public static final String MAX_WAIT_PROPERTY = "chapter11.jdbc.max-wait-millis";
+
+    private static final int STREAM_PAGE_SIZE = 1_000;
+    private static final double MAX_FILTER_FALSE_POSITIVE_RATE = 0.05;
+    private static final String COLUMNS = "SELECT id, name, personage, role FROM actors ";
+    private static final String FIND_ALL_SQL = COLUMNS + "ORDER BY id";
+    private static final String FIND_PAGE_SQL = COLUMNS + "WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String FIND_BY_PERSONAGE_SQL = COLUMNS + "WHERE personage >= ? AND (personage < ? OR ?) "
+            + "ORDER BY personage, id LIMIT 1";
+    private static final String FIND_ALL_BY_PERSONAGE_SQL = COLUMNS + "WHERE personage >= ? AND (personage < ? OR ?) "
+            + "ORDER BY personage, id";
+    private static final String SEARCH_SQL = "SELECT id, name, personage, role FROM ("
+            + "SELECT id, name, personage, role, POSITION(? IN LOWER(personage)) AS p, "
+            + "POSITION(? IN LOWER(name)) AS n, POSITION(? IN LOWER(role)) AS r FROM actors) matches "
+            + "WHERE p > 0 OR n > 0 OR r > 0 "
+            + "ORDER BY CASE WHEN p > 0 THEN 0 WHEN n > 0 THEN 1 ELSE 2 END, "
+            + "CASE WHEN p > 0 THEN p WHEN n > 0 THEN n ELSE r END, "
+            + "CASE WHEN p > 0 THEN CHAR_LENGTH(personage) WHEN n > 0 THEN CHAR_LENGTH(name) "
+            + "ELSE CHAR_LENGTH(role) END, id LIMIT ?";
+    private static final String FIND_ALL_BY_FOLDED_PREFIX_SQL = "SELECT id, name, personage, role FROM ("
+            + "SELECT id, name, personage, role, personage_key AS k FROM actors "
+            + "WHERE personage_key >= ? AND (personage_key < ? OR ?) "
+            + "UNION ALL SELECT id, name, personage, role, name_key AS k FROM actors "
+            + "WHERE name_key >= ? AND (name_key < ? OR ?)) matches ORDER BY k, id LIMIT ?";
+    private static final String PERSONAGES_SQL = "SELECT personage FROM actors";
+    private static final String INSERT_SQL = "INSERT INTO actors (id, name, personage, role, name_key, personage_key) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE actors SET name = ?, personage = ?, role = ?, name_key = ?, "
+            + "personage_key = ? WHERE id = ?";
+    private static final String DELETE_SQL = "DELETE FROM actors WHERE id = ?";
+
+    private final ConnectionPool pool;
+    private final ReadWriteLock filterLock = new ReentrantReadWriteLock();
+    private volatile PrefixBloomFilter personageFilter;
+
+    public Chapter11JdbcAPI() {
+        this(System.getProperty(URL_PROPERTY, "jdbc:hsqldb:mem:actors"),
+                Integer.getInteger(POOL_SIZE_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                Duration.ofMillis(Long.getLong(MAX_WAIT_PROPERTY, 5_000L)));
+    }
+
+    public Chapter11JdbcAPI(String url, int poolSize, Duration maxWait) {
+        try {
+            this.pool = new ConnectionPool(url, poolSize, maxWait);
+            pool.execute(connection -> {
+                createSchema(connection.connection());
+                return null;
+            });
+            this.personageFilter = loadPersonageFilter();
+        } catch (SQLException e) {
+            throw new IllegalStateException("ERROR initializing the actors database: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * With the MVCC transaction control the readers don't wait for the locks of the writers.
+     */
+    private static void createSchema(Connection connection) throws SQLException {
+        try (var tables = connection.getMetaData().getTables(null, null, "ACTORS", null)) {
+            if (tables.next()) {
+                addFoldedKeys(connection);
+                addQueryIndexes(connection);
+                return;
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("SET DATABASE TRANSACTION CONTROL MVCC");
+            statement.executeUpdate("CREATE CACHED TABLE actors ("
+                    + "id INTEGER PRIMARY KEY, "
+                    + "name VARCHAR(255), "
+                    + "personage VARCHAR(255) NOT NULL, "
+                    + "role VARCHAR(255), "
+                    + "name_key VARCHAR(1024), "
+                    + "personage_key VARCHAR(1024))");
+            statement.executeUpdate("CREATE INDEX actors_personage_idx ON actors (personage, id)");
+            createFoldedKeyIndexes(statement);
+            createQueryIndexes(statement);
+        }
+        List<Actor> cast = List.of(
+                new Actor(1, "Johnny Galecki", "Leonard Hofstadter",      "Experimental Physicist"),
+                new Actor(2, "Jim Parsons",    "Sheldon Cooper",          "Theoretical Physicist"),
+                new Actor(3, "Kaley Cuoco",    "Penny",                   "Pharmaceutical Sales Representative"),
+                new Actor(4, "Simon Helberg",  "Howard Wolowitz",         "Aerospace Engineer"),
+                new Actor(5, "Kunal Nayyar",   "Rajesh Koothrappali",     "Astrophysicist"),
+                new Actor(6, "Melissa Rauch",  "Bernadette Rostenkowski", "Ph.D. in Microbiology"),
+                new Actor(7, "Mayim Bialik",   "Amy Farrah Fowler",       "Ph.D. in Neurobiology"));
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            for (Actor actor : cast) {
+                bindInsert(statement, actor);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Adds the folded key columns to a table of an older version, and fills them from the current rows.
+     */
+    private static void addFoldedKeys(Connection connection) throws SQLException {
+        try (var columns = connection.getMetaData().getColumns(null, null, "ACTORS", "PERSONAGE_KEY")) {
+            if (columns.next()) {
+                return;
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("ALTER TABLE actors ADD COLUMN name_key VARCHAR(1024)");
+            statement.executeUpdate("ALTER TABLE actors ADD COLUMN personage_key VARCHAR(1024)");
+            try (ResultSet rs = statement.executeQuery("SELECT id, name, personage FROM actors");
+                 PreparedStatement update = connection.prepareStatement(
+                         "UPDATE actors SET name_key = ?, personage_key = ? WHERE id = ?")) {
+                while (rs.next()) {
+                    String name = rs.getString(2);
+                    update.setString(1, name == null ? null : TextFolding.fold(name));
+                    update.setString(2, TextFolding.fold(rs.getString(3)));
+                    update.setInt(3, rs.getInt(1));
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+            createFoldedKeyIndexes(statement);
+        }
+    }
+
+    private static void createFoldedKeyIndexes(Statement statement) throws SQLException {
+        statement.executeUpdate("CREATE INDEX actors_personage_key_idx ON actors (personage_key, id)");
+        statement.executeUpdate("CREATE INDEX actors_name_key_idx ON actors (name_key, id)");
+    }
+
+    private static void addQueryIndexes(Connection connection) throws SQLException {
+        try (var indexes = connection.getMetaData().getIndexInfo(null, null, "ACTORS", false, false)) {
+            while (indexes.next()) {
+                if ("ACTORS_ROLE_IDX".equals(indexes.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            createQueryIndexes(statement);
+        }
+    }
+
+    private static void createQueryIndexes(Statement statement) throws SQLException {
+        statement.executeUpdate("CREATE INDEX actors_role_idx ON actors (role, id)");
+        statement.executeUpdate("CREATE INDEX actors_name_idx ON actors (name, id)");
+    }
+
+    @Override
+    public List<Actor> findAll() {
+        return query(FIND_ALL_SQL, statement -> readActors(statement, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public List<Actor> findPage(int afterId, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The page limit can't be negative: " + limit);
+        }
+        if (limit == 0) {
+            return List.of();
+        }
+        return query(FIND_PAGE_SQL, statement -> {
+            statement.setInt(1, afterId);
+            statement.setInt(2, limit);
+            return readActors(statement, limit);
+        });
+    }
+
+    /**
+     * Walks the table with "findPage", so the stream holds one page at a time and no connection between pages.
+     */
+    @Override
+    public Stream<Actor> streamAll() {
+        Iterator<Actor> iterator = new Iterator<>() {
+            private Iterator<Actor> page = List.<Actor>of().iterator();
+            private int cursor = Integer.MIN_VALUE;
+            private boolean lastPage;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !lastPage) {
+                    List<Actor> actors = findPage(cursor, STREAM_PAGE_SIZE);
+                    lastPage = actors.size() < STREAM_PAGE_SIZE;
+                    if (!actors.isEmpty()) {
+                        cursor = actors.get(actors.size() - 1).id;
+                    }
+                    page = actors.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public Actor next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public Actor findByPersonage(String personage) {
+        if (!personageFilter.mightContainPrefix(personage)) {
+            return null;
+        }
+        List<Actor> actors = query(FIND_BY_PERSONAGE_SQL, statement -> {
+            setPrefixRange(statement, 1, personage);
+            return readActors(statement, 1);
+        });
+        return actors.isEmpty() ? null : actors.get(0);
+    }
+
+    @Override
+    public List<Actor> findAllByPersonagePrefix(String prefix) {
+        if (!personageFilter.mightContainPrefix(prefix)) {
+            return new ArrayList<>();
+        }
+        return query(FIND_ALL_BY_PERSONAGE_SQL, statement -> {
+            setPrefixRange(statement, 1, prefix);
+            return readActors(statement, Integer.MAX_VALUE);
+        });
+    }
+
+    /**
+     * Resolves all the prefixes with the same connection and the same prepared statement. The prefixes rejected by
+     * the personage filter are not queried.
+     */
+    @Override
+    public Map<String, Actor> findByPersonages(Collection<String> personages) {
+        PrefixBloomFilter filter = personageFilter;
+        List<String> candidates = new ArrayList<>(personages.size());
+        for (String personage : personages) {
+            if (filter.mightContainPrefix(personage)) {
+                candidates.add(personage);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return new HashMap<>();
+        }
+        return query(FIND_BY_PERSONAGE_SQL, statement -> {
+            Map<String, Actor> result = new HashMap<>();
+            for (String personage : candidates) {
+                setPrefixRange(statement, 1, personage);
+                List<Actor> actors = readActors(statement, 1);
+                if (!actors.isEmpty()) {
+                    result.put(personage, actors.get(0));
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Ranks the matches like the in-memory DAO. The database has no index for the substring searches, so every
+     * search scans the table.
+     */
+    @Override
+    public List<Actor> search(String text, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The search limit can't be negative: " + limit);
+        }
+        if (text.isEmpty() || limit == 0) {
+            return List.of();
+        }
+        String folded = text.toLowerCase(Locale.ROOT);
+        return query(SEARCH_SQL, statement -> {
+            statement.setString(1, folded);
+            statement.setString(2, folded);
+            statement.setString(3, folded);
+            statement.setInt(4, limit);
+            return readActors(statement, limit);
+        });
+    }
+
+    /**
+     * Reads the two key ranges in one query. An actor can match with both keys, so the query reads up to twice the
+     * limit, and the duplicates are dropped here.
+     */
+    @Override
+    public List<Actor> findAllByFoldedPrefix(String prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The lookup limit can't be negative: " + limit);
+        }
+        if (limit == 0) {
+            return List.of();
+        }
+        String folded = TextFolding.fold(prefix);
+        return query(FIND_ALL_BY_FOLDED_PREFIX_SQL, statement -> {
+            setPrefixRange(statement, 1, folded);
+            setPrefixRange(statement, 4, folded);
+            statement.setLong(7, 2L * limit);
+            Map<Integer, Actor> result = new LinkedHashMap<>();
+            for (Actor actor : readActors(statement, limit)) {
+                if (result.size() < limit) {
+                    result.putIfAbsent(actor.id, actor);
+                }
+            }
+            return new ArrayList<>(result.values());
+        });
+    }
+
+    /**
+     * Only the predicate of the query can't be translated to SQL. Without one, the database applies the limit.
+     * With one, the rows are read in id order until the predicate has accepted the limit of them.
+     */
+    @Override
+    public List<Actor> query(ActorQuery query) {
+        if (query.getLimit() == 0) {
+            return List.of();
+        }
+        if (query.getPersonagePrefix() != null && !personageFilter.mightContainPrefix(query.getPersonagePrefix())) {
+            return new ArrayList<>();
+        }
+        List<String> conditions = new ArrayList<>();
+        List<String> parameters = new ArrayList<>();
+        if (query.getRole() != null) {
+            conditions.add("role = ?");
+            parameters.add(query.getRole());
+        }
+        addPrefixCondition(conditions, parameters, "name", query.getNamePrefix());
+        addPrefixCondition(conditions, parameters, "personage", query.getPersonagePrefix());
+        StringBuilder sql = new StringBuilder(COLUMNS);
+        if (!conditions.isEmpty()) {
+            sql.append("WHERE ").append(String.join(" AND ", conditions)).append(' ');
+        }
+        sql.append("ORDER BY id");
+        boolean limitedByDatabase = query.getFilter() == null && query.getLimit() < Integer.MAX_VALUE;
+        if (limitedByDatabase) {
+            sql.append(" LIMIT ?");
+        }
+        return query(sql.toString(), statement -> {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setString(i + 1, parameters.get(i));
+            }
+            if (limitedByDatabase) {
+                statement.setInt(parameters.size() + 1, query.getLimit());
+            }
+            List<Actor> actors = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (actors.size() < query.getLimit() && rs.next()) {
+                    Actor actor = new Actor(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4));
+                    if (query.matches(actor)) {
+                        actors.add(actor);
+                    }
+                }
+            }
+            return actors;
+        });
+    }
+
+    @Override
+    public boolean add(Actor actor) {
+        return writePersonage(actor.personage, () -> {
+            try {
+                return update(INSERT_SQL, statement -> bindInsert(statement, actor)) > 0;
+            } catch (IllegalStateException e) {
+                if (e.getCause() instanceof SQLException && isIntegrityViolation((SQLException) e.getCause())) {
+                    return false;
+                }
+                throw e;
+            }
+        });
+    }
+
+    @Override
+    public boolean update(Actor actor) {
+        return writePersonage(actor.personage, () -> update(UPDATE_SQL, statement -> {
+            statement.setString(1, actor.name);
+            statement.setString(2, actor.personage);
+            statement.setString(3, actor.role);
+            statement.setString(4, actor.name == null ? null : TextFolding.fold(actor.name));
+            statement.setString(5, TextFolding.fold(actor.personage));
+            statement.setInt(6, actor.id);
+        }) > 0);
+    }
+
+    @Override
+    public boolean remove(int id) {
+        return update(DELETE_SQL, statement -> statement.setInt(1, id)) > 0;
+    }
+
+    /**
+     * Returns the size and the fill of the current personage filter.
+     */
+    public BloomFilterStats personageFilterStats() {
+        return personageFilter.stats();
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private <T> T query(String sql, ConnectionPool.SqlFunction<PreparedStatement, T> function) {
+        try {
+            return pool.execute(connection -> function.apply(connection.prepare(sql)));
+        } catch (SQLException e) {
+            throw new IllegalStateException("ERROR querying the actors table: " + e.getMessage(), e);
+        }
+    }
+
+    private int update(String sql, StatementBinder binder) {
+        try {
+            return pool.execute(connection -> {
+                PreparedStatement statement = connection.prepare(sql);
+                binder.bind(statement);
+                return statement.executeUpdate();
+            });
+        } catch (SQLException e) {
+            throw new IllegalStateException("ERROR updating the actors table: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds the personage to the filter before the row is written, so a lookup never misses a committed personage.
+     * The shared lock keeps a rebuild of the filter from reading the table between the two steps.
+     */
+    private boolean writePersonage(String personage, Supplier<Boolean> write) {
+        if (personageFilter.expectedFalsePositiveRate() > MAX_FILTER_FALSE_POSITIVE_RATE) {
+            rebuildPersonageFilter();
+        }
+        filterLock.readLock().lock();
+        try {
+            if (personage != null) {
+                personageFilter.add(personage);
+            }
+            return write.get();
+        } finally {
+            filterLock.readLock().unlock();
+        }
+    }
+
+    private void rebuildPersonageFilter() {
+        filterLock.writeLock().lock();
+        try {
+            if (personageFilter.expectedFalsePositiveRate() > MAX_FILTER_FALSE_POSITIVE_RATE) {
+                personageFilter = loadPersonageFilter();
+            }
+        } finally {
+            filterLock.writeLock().unlock();
+        }
+    }
+
+    private PrefixBloomFilter loadPersonageFilter() {
+        return query(PERSONAGES_SQL, statement -> {
+            List<String> personages = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    personages.add(rs.getString(1));
+                }
+            }
+            return PrefixBloomFilter.of(personages);
+        });
+    }
+
+    private static void bindInsert(PreparedStatement statement, Actor actor) throws SQLException {
+        statement.setInt(1, actor.id);
+        statement.setString(2, actor.name);
+        statement.setString(3, actor.personage);
+        statement.setString(4, actor.role);
+        statement.setString(5, actor.name == null ? null : TextFolding.fold(actor.name));
+        statement.setString(6, TextFolding.fold(actor.personage));
+    }
+
+    /**
+     * Binds the three parameters of a "column >= ? AND (column < ? OR ?)" range from the given index. The flag is
+     * only true when the prefix has no end, so the range has no upper bound.
+     */
+    private static void setPrefixRange(PreparedStatement statement, int index, String prefix) throws SQLException {
+        String end = prefixEnd(prefix);
+        statement.setString(index, prefix);
+        statement.setString(index + 1, end == null ? prefix : end);
+        statement.setBoolean(index + 2, end == null);
+    }
+
+    private static void addPrefixCondition(List<String> conditions, List<String> parameters, String column,
+                                           String prefix) {
+        if (prefix != null) {
+            String end = prefixEnd(prefix);
+            conditions.add(end == null ? column + " >= ?" : column + " >= ? AND " + column + " < ?");
+            parameters.add(prefix);
+            if (end != null) {
+                parameters.add(end);
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest string greater than all the strings that start with the prefix, which is the exclusive
+     * end of their range: the prefix without its trailing U+FFFF chars, and with its last char incremented. Returns
+     * null when there is no such string, for an empty prefix or one made of U+FFFF chars.
+     */
+    static String prefixEnd(String prefix) {
+        int length = prefix.length();
+        while (length > 0 && prefix.charAt(length - 1) == Character.MAX_VALUE) {
+            length--;
+        }
+        if (length == 0) {
+            return null;
+        }
+        return prefix.substring(0, length - 1) + (char) (prefix.charAt(length - 1) + 1);
+    }
+
+    private static List<Actor> readActors(PreparedStatement statement, int expectedRows) throws SQLException {
+        List<Actor> actors = new ArrayList<>(Math.min(expectedRows, 16));
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                actors.add(new Actor(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+            }
+        }
+        return actors;
+    }
+
+    /**
+     * The SQL State class "23" is an integrity constraint violation, like a duplicated primary key.
+     */
+    private static boolean isIntegrityViolation(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+}
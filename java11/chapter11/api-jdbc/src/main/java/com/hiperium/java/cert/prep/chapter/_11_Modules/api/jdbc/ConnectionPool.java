@@ -0,0 +1,170 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed size pool of JDBC connections. A connection is used by one thread at a time, so every pooled connection keeps
+ * its own prepared statements, and they are closed only when the pool is closed. When a call fails, the connection is
+ * validated before it goes back to the pool, and a broken one is replaced by a new connection with empty statements.
+ * The errors of closing a broken connection are added to the error of the call, and the errors of closing the pool
+ * are thrown by "close()".
+ */
+class ConnectionPool implements AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> all = new ArrayList<>();
+    private final String url;
+    private final Duration maxWait;
+
+    ConnectionPool(String url, int size, Duration maxWait) throws SQLException {
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.url = url;
+        this.maxWait = maxWait;
+        try {
+            for (int i = 0; i < size; i++) {
+                PooledConnection connection = new PooledConnection(DriverManager.getConnection(url));
+                all.add(connection);
+                idle.add(connection);
+            }
+        } catch (SQLException e) {
+            SQLException closeError = closeAll();
+            if (closeError != null) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+    }
+
+    <T> T execute(SqlFunction<PooledConnection, T> function) throws SQLException {
+        PooledConnection connection;
+        try {
+            connection = idle.poll(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        }
+        if (connection == null) {
+            throw new SQLException("No connection available after " + maxWait.toMillis() + " ms.");
+        }
+        try {
+            return function.apply(connection);
+        } catch (SQLException e) {
+            if (!connection.isValid()) {
+                reconnect(connection, e);
+            }
+            throw e;
+        } finally {
+            idle.add(connection);
+        }
+    }
+
+    /**
+     * If the new connection can't be opened, the broken one stays in the pool and the next call that uses it tries
+     * again.
+     */
+    private void reconnect(PooledConnection connection, SQLException cause) {
+        try {
+            connection.replace(DriverManager.getConnection(url), cause);
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Closes every connection, even when some of them fail, and throws the first error with the others suppressed.
+     */
+    @Override
+    public void close() {
+        SQLException error = closeAll();
+        if (error != null) {
+            throw new IllegalStateException("ERROR closing the pooled connections: " + error.getMessage(), error);
+        }
+    }
+
+    private SQLException closeAll() {
+        SQLException error = null;
+        for (PooledConnection connection : all) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        return error;
+    }
+
+    @FunctionalInterface
+    interface SqlFunction<T, R> {
+        R apply(T t) throws SQLException;
+    }
+
+    static final class PooledConnection {
+
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private Connection connection;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        Connection connection() {
+            return connection;
+        }
+
+        /**
+         * Returns the statement prepared for the given SQL the first time it was requested on this connection. The
+         * callers must not close it.
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        private boolean isValid() {
+            try {
+                return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Closes the broken connection and its statements, which are prepared again on the new connection. An error
+         * of the close is added to the cause of the replacement.
+         */
+        private void replace(Connection newConnection, SQLException cause) {
+            try {
+                close();
+            } catch (SQLException e) {
+                cause.addSuppressed(e);
+            }
+            statements.clear();
+            connection = newConnection;
+        }
+
+        private void close() throws SQLException {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+module com.hiperium.java.cert.prep.chapter.eleven.api.jdbc { // module name should avoid terminal digits
+    requires java.sql;
+    requires org.hsqldb;
+    requires com.hiperium.java.cert.prep.chapter.eleven.api;
+    provides com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API with com.hiperium.java.cert.prep.chapter._11_Modules.api.jdbc.Chapter11JdbcAPI;
+}
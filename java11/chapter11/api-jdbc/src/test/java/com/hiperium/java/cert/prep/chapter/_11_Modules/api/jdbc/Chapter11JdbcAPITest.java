@@ -0,0 +1,206 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.jdbc;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.dao.Chapter11APIDAO;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.query.ActorQuery;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class Chapter11JdbcAPITest {
+
+    private static final int CATALOG_SIZE = 100_000;
+
+    private static Chapter11JdbcAPI api;
+
+    @BeforeClass
+    public static void createDatabase() {
+        api = new Chapter11JdbcAPI("jdbc:hsqldb:mem:chapter11-test", 2, Duration.ofSeconds(5));
+    }
+
+    @AfterClass
+    public static void closeDatabase() {
+        api.close();
+    }
+
+    @Test
+    public void readOperations() {
+        Assert.assertEquals(7, api.findAll().size());
+        Assert.assertEquals("Jim Parsons", api.findByPersonage("Sheldon").name);
+        Assert.assertNull(api.findByPersonage("Stuart"));
+        Assert.assertEquals(List.of(1, 2, 3), api.findPage(0, 3).stream().map(Actor::getId).collect(Collectors.toList()));
+        Assert.assertEquals(List.of(7), api.findPage(6, 3).stream().map(Actor::getId).collect(Collectors.toList()));
+        Assert.assertEquals(7, api.streamAll().count());
+        Map<String, Actor> actors = api.findByPersonages(List.of("Penny", "Amy", "Stuart"));
+        Assert.assertEquals(2, actors.size());
+        Assert.assertEquals(3, actors.get("Penny").id);
+        Assert.assertEquals(List.of(5, 2, 1), api.search("PHYSICIST", 10).stream().map(Actor::getId)
+                .collect(Collectors.toList()));
+        Assert.assertEquals(List.of(3, 6, 1), api.search("en", 3).stream().map(Actor::getId)
+                .collect(Collectors.toList()));
+        Assert.assertTrue(api.search("Stuart", 10).isEmpty());
+    }
+
+    @Test
+    public void writeOperations() {
+        Assert.assertTrue(api.add(new Actor(100, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertFalse(api.add(new Actor(100, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertEquals(100, api.findByPersonage("Stuart").id);
+        Assert.assertTrue(api.update(new Actor(100, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertTrue(api.remove(100));
+        Assert.assertFalse(api.remove(100));
+        Assert.assertFalse(api.update(new Actor(100, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner")));
+        Assert.assertNull(api.findByPersonage("Stuart"));
+    }
+
+    @Test
+    public void foldedPrefixLookups() {
+        Assert.assertEquals(List.of(3, 5), api.findAllByFoldedPrefix("K", 10).stream().map(Actor::getId)
+                .collect(Collectors.toList()));
+        Assert.assertEquals(List.of(2), api.findAllByFoldedPrefix("SHÉLDON", 10).stream().map(Actor::getId)
+                .collect(Collectors.toList()));
+        Assert.assertTrue(api.add(new Actor(101, "Zoë Saldaña", "Renée Ämmälä", "Comic Book Reader")));
+        try {
+            Assert.assertEquals(List.of(101), api.findAllByFoldedPrefix("renee amm", 10).stream().map(Actor::getId)
+                    .collect(Collectors.toList()));
+            Assert.assertEquals(List.of(101), api.findAllByFoldedPrefix("ZOE", 10).stream().map(Actor::getId)
+                    .collect(Collectors.toList()));
+            Assert.assertTrue(api.update(new Actor(101, "Zoe Saldana", "Stuart Bloom", "Comic Book Store Owner")));
+            Assert.assertTrue(api.findAllByFoldedPrefix("renee", 10).isEmpty());
+            Assert.assertEquals(1, api.findAllByFoldedPrefix("zoë", 10).size());
+        } finally {
+            api.remove(101);
+        }
+        Assert.assertThrows(IllegalArgumentException.class, () -> api.findAllByFoldedPrefix("Penny", -1));
+    }
+
+    /**
+     * U+FFFF is the greatest char, so the range of a prefix must end after the personages that have it next.
+     */
+    @Test
+    public void prefixesFollowedByTheGreatestChar() {
+        Assert.assertEquals("Stuart", Chapter11JdbcAPI.prefixEnd("Stuars"));
+        Assert.assertEquals("Stv", Chapter11JdbcAPI.prefixEnd("Stu\uFFFF\uFFFF"));
+        Assert.assertNull(Chapter11JdbcAPI.prefixEnd("\uFFFF"));
+        Assert.assertNull(Chapter11JdbcAPI.prefixEnd(""));
+        Assert.assertTrue(api.add(new Actor(102, "Kevin Sussman", "Stuart\uFFFF Bloom", "Comic Book Store Owner")));
+        try {
+            Assert.assertEquals(102, api.findByPersonage("Stuart").id);
+            Assert.assertEquals(102, api.findByPersonage("Stuart\uFFFF").id);
+            Assert.assertEquals(List.of(102), api.findAllByPersonagePrefix("Stuart").stream().map(Actor::getId)
+                    .collect(Collectors.toList()));
+            Assert.assertEquals(List.of(102), api.findByPersonages(List.of("Stuart")).values().stream()
+                    .map(Actor::getId).collect(Collectors.toList()));
+            Assert.assertEquals(List.of(102), api.query(ActorQuery.all().withPersonagePrefix("Stuart")).stream()
+                    .map(Actor::getId).collect(Collectors.toList()));
+            Assert.assertEquals(List.of(102), api.findAllByFoldedPrefix("stuart", 10).stream().map(Actor::getId)
+                    .collect(Collectors.toList()));
+            Assert.assertEquals(8, api.findAllByPersonagePrefix("").size());
+        } finally {
+            api.remove(102);
+        }
+    }
+
+    @Test
+    public void queries() {
+        Assert.assertEquals(List.of(5), api.query(ActorQuery.all().withRole("Astrophysicist")).stream()
+                .map(Actor::getId).collect(Collectors.toList()));
+        Assert.assertEquals(List.of(3, 5), api.query(ActorQuery.all().withNamePrefix("K")).stream()
+                .map(Actor::getId).collect(Collectors.toList()));
+        Assert.assertEquals(List.of(5), api.query(ActorQuery.byExample(new Actor(0, "K", "Raj", "Astrophysicist")))
+                .stream().map(Actor::getId).collect(Collectors.toList()));
+        Assert.assertEquals(List.of(6), api.query(ActorQuery.all().withFilter(actor -> actor.id > 5).withLimit(1))
+                .stream().map(Actor::getId).collect(Collectors.toList()));
+        Assert.assertEquals(List.of(1, 2), api.query(ActorQuery.all().withLimit(2)).stream()
+                .map(Actor::getId).collect(Collectors.toList()));
+        Assert.assertTrue(api.query(ActorQuery.all().withPersonagePrefix("Stuart")).isEmpty());
+        Assert.assertTrue(api.query(ActorQuery.all().withLimit(0)).isEmpty());
+    }
+
+    @Test
+    public void personageFilterIsLoadedFromTheTable() {
+        try (var reopened = new Chapter11JdbcAPI("jdbc:hsqldb:mem:chapter11-test", 1, Duration.ofSeconds(5))) {
+            Assert.assertEquals("Jim Parsons", reopened.findByPersonage("Sheldon").name);
+            Assert.assertTrue(reopened.findAllByPersonagePrefix("Barry").isEmpty());
+            Assert.assertTrue(reopened.personageFilterStats().getExpectedFalsePositiveRate() < 0.01);
+        }
+    }
+
+    @Test
+    public void brokenConnectionIsReplaced() throws SQLException {
+        try (var pool = new ConnectionPool("jdbc:hsqldb:mem:chapter11-test", 1, Duration.ofSeconds(5))) {
+            SQLException error = Assert.assertThrows(SQLException.class, () -> pool.execute(connection -> {
+                connection.prepare("SELECT COUNT(*) FROM actors");
+                connection.connection().close();
+                return connection.prepare("SELECT COUNT(*) FROM actors").executeQuery();
+            }));
+            Assert.assertNotNull(error.getMessage());
+            int count = pool.execute(connection -> {
+                try (var rs = connection.prepare("SELECT COUNT(*) FROM actors").executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            });
+            Assert.assertTrue(count >= 7);
+        }
+    }
+
+    /**
+     * Loads the same synthetic catalog in the JDBC provider and in the in-memory DAO, and prints the average time of
+     * a personage lookup on each of them. It only runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void lookupsAgainstTheInMemoryDAO() {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        try (var jdbcApi = new Chapter11JdbcAPI("jdbc:hsqldb:mem:chapter11-benchmark", 1, Duration.ofSeconds(5))) {
+            Chapter11APIDAO dao = Chapter11APIDAO.newInstance(List.of());
+            for (int id = 1_000; id < 1_000 + CATALOG_SIZE; id++) {
+                Actor actor = new Actor(id, "Actor " + id, personage(id), "Role " + id % 10);
+                jdbcApi.add(actor);
+                dao.add(actor);
+            }
+            System.out.println("Lookup latency with the JDBC provider: " + averageLookupNanos(jdbcApi) + " ns.");
+            System.out.println("Lookup latency with the in-memory DAO: " + averageLookupNanos(dao) + " ns.");
+            System.out.println("Miss latency with the JDBC provider: " + averageMissNanos(jdbcApi) + " ns.");
+            System.out.println("Personage filter of the JDBC provider: " + jdbcApi.personageFilterStats());
+        }
+    }
+
+    private static long averageLookupNanos(Chapter11API api) {
+        Random random = new Random(CATALOG_SIZE);
+        int lookups = 50_000;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                int id = 1_000 + random.nextInt(CATALOG_SIZE);
+                Assert.assertEquals(id, api.findByPersonage(personage(id)).id);
+            }
+            best = Math.min(best, (System.nanoTime() - start) / lookups);
+        }
+        return best;
+    }
+
+    private static long averageMissNanos(Chapter11API api) {
+        int lookups = 50_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            Assert.assertNull(api.findByPersonage(personage(1_000 + CATALOG_SIZE + i)));
+        }
+        return (System.nanoTime() - start) / lookups;
+    }
+
+    private static String personage(int id) {
+        return String.format("Personage %07d", id);
+    }
+}
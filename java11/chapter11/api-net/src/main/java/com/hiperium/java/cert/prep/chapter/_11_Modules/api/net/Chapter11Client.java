@@ -0,0 +1,187 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.net;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Client of the Chapter11Server over one connection. The calls send their request and return at once, so many
+ * requests can be in flight on the connection at the same time, and a reader thread completes their futures as the
+ * responses arrive. The client is thread-safe, and its two direct buffers are reused for every request and response.
+ *
+ * A request that the server rejects completes its future with an IllegalStateException with the message of the
+ * server, and closing the client, or losing the connection, completes the pending futures with an IOException.
+ */
+public final class Chapter11Client implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1_024;
+    private static final int MAX_RESPONSE_LENGTH = 16 << 20;
+
+    private final SocketChannel channel;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(Chapter11Protocol.MAX_REQUEST_LENGTH
+            + Integer.BYTES);
+    private final Map<Integer, CompletableFuture<List<Actor>>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger requestIds = new AtomicInteger();
+    private final Thread reader;
+    private volatile boolean closed;
+
+    private Chapter11Client(SocketChannel channel) {
+        this.channel = channel;
+        this.reader = new Thread(this::readResponses, "chapter11-net-client-" + channel.socket().getLocalPort());
+        this.reader.setDaemon(true);
+    }
+
+    public static Chapter11Client connect(InetSocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Chapter11Client client = new Chapter11Client(channel);
+        client.reader.start();
+        return client;
+    }
+
+    public CompletableFuture<Actor> findByPersonage(String personage) {
+        return send(Chapter11Protocol.FIND_BY_PERSONAGE, buffer -> Chapter11Protocol.putString(buffer, personage))
+                .thenApply(actors -> actors.isEmpty() ? null : actors.get(0));
+    }
+
+    public CompletableFuture<List<Actor>> findAllByPersonagePrefix(String prefix, int limit) {
+        return send(Chapter11Protocol.FIND_ALL_BY_PERSONAGE_PREFIX, buffer -> {
+            Chapter11Protocol.putString(buffer, prefix);
+            buffer.putInt(limit);
+        });
+    }
+
+    public CompletableFuture<List<Actor>> search(String text, int limit) {
+        return send(Chapter11Protocol.SEARCH, buffer -> {
+            Chapter11Protocol.putString(buffer, text);
+            buffer.putInt(limit);
+        });
+    }
+
+    public CompletableFuture<List<Actor>> findPage(int afterId, int limit) {
+        return send(Chapter11Protocol.FIND_PAGE, buffer -> buffer.putInt(afterId).putInt(limit));
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            channel.close();
+            reader.join();
+        } catch (IOException e) {
+            // The reader fails the pending requests anyway.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Registers the future before the request is written, since the response can arrive before the write returns.
+     */
+    private CompletableFuture<List<Actor>> send(byte operation, Consumer<ByteBuffer> parameters) {
+        int requestId = requestIds.incrementAndGet();
+        CompletableFuture<List<Actor>> future = new CompletableFuture<>();
+        pending.put(requestId, future);
+        try {
+            synchronized (writeBuffer) {
+                writeBuffer.clear();
+                int start = Chapter11Protocol.beginFrame(writeBuffer, requestId, operation);
+                try {
+                    parameters.accept(writeBuffer);
+                } catch (BufferOverflowException e) {
+                    throw new IllegalArgumentException("The request is longer than "
+                            + Chapter11Protocol.MAX_REQUEST_LENGTH + " bytes.");
+                }
+                Chapter11Protocol.endFrame(writeBuffer, start);
+                writeBuffer.flip();
+                while (writeBuffer.hasRemaining()) {
+                    channel.write(writeBuffer);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            pending.remove(requestId);
+            future.completeExceptionally(e);
+        }
+        if (closed && pending.remove(requestId) != null) {
+            future.completeExceptionally(new IOException("The client is closed."));
+        }
+        return future;
+    }
+
+    private void readResponses() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.remaining() >= Integer.BYTES) {
+                    int length = buffer.getInt(buffer.position());
+                    if (length < Chapter11Protocol.HEADER_LENGTH - Integer.BYTES || length > MAX_RESPONSE_LENGTH) {
+                        throw new IOException("Invalid response length: " + length);
+                    }
+                    if (buffer.remaining() < Integer.BYTES + length) {
+                        break;
+                    }
+                    int end = buffer.position() + Integer.BYTES + length;
+                    complete(buffer.slice(buffer.position() + Integer.BYTES, length));
+                    buffer.position(end);
+                }
+                buffer = prepareForRead(buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The connection is lost, so are the pending responses.
+        } finally {
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing else to release.
+            }
+            IOException lost = new IOException("The connection to the server is closed.");
+            pending.keySet().forEach(requestId -> {
+                CompletableFuture<List<Actor>> future = pending.remove(requestId);
+                if (future != null) {
+                    future.completeExceptionally(lost);
+                }
+            });
+        }
+    }
+
+    /**
+     * Keeps the partial response at the start of the buffer, in a bigger buffer when the response doesn't fit.
+     */
+    private static ByteBuffer prepareForRead(ByteBuffer buffer) {
+        if (buffer.remaining() >= Integer.BYTES) {
+            int needed = Integer.BYTES + buffer.getInt(buffer.position());
+            if (needed > buffer.capacity()) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(Integer.highestOneBit(needed - 1) << 1);
+                return bigger.put(buffer);
+            }
+        }
+        return buffer.compact();
+    }
+
+    private void complete(ByteBuffer response) {
+        int requestId = response.getInt();
+        byte status = response.get();
+        CompletableFuture<List<Actor>> future = pending.remove(requestId);
+        if (future == null) {
+            return;
+        }
+        if (status == Chapter11Protocol.OK) {
+            future.complete(Chapter11Protocol.getActors(response));
+        } else {
+            future.completeExceptionally(new IllegalStateException(Chapter11Protocol.getString(response)));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.net;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11ServiceLocator;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Loopback load test of the Chapter11Server. Every connection has its own client and a driver thread that keeps up to
+ * "depth" personage lookups in flight, and the latency of every lookup is measured from its send to its response.
+ * The runs are repeated with a growing number of connections, to show how the single selector thread scales.
+ *
+ * The main method serves the default provider of the Chapter11ServiceLocator, and is configured with the
+ * "chapter11.net.connections" (a comma-separated list), "chapter11.net.depth" and "chapter11.net.duration-millis"
+ * system properties.
+ */
+public final class Chapter11LoadGenerator {
+
+    public static final String CONNECTIONS_PROPERTY = "chapter11.net.connections";
+    public static final String DEPTH_PROPERTY = "chapter11.net.depth";
+    public static final String DURATION_PROPERTY = "chapter11.net.duration-millis";
+
+    private Chapter11LoadGenerator() {
+        // Nothing to implement
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Chapter11API api = Chapter11ServiceLocator.getApiImpl();
+        List<String> personages = api.findAll().stream().map(Actor::getPersonage).collect(Collectors.toList());
+        int depth = Integer.getInteger(DEPTH_PROPERTY, 16);
+        Duration duration = Duration.ofMillis(Long.getLong(DURATION_PROPERTY, 2_000L));
+        try (Chapter11Server server = Chapter11Server.start(api,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            run(server.getAddress(), 1, depth, duration, personages);
+            for (String connections : System.getProperty(CONNECTIONS_PROPERTY, "1,2,4,8,16,32").split(",")) {
+                System.out.println(run(server.getAddress(), Integer.parseInt(connections.trim()), depth, duration,
+                        personages));
+            }
+        }
+    }
+
+    /**
+     * Looks up the personages in turn on every connection for the given duration.
+     */
+    public static LoadResult run(InetSocketAddress address, int connections, int depth, Duration duration,
+                                 List<String> personages) throws IOException, InterruptedException {
+        if (connections <= 0 || depth <= 0 || personages.isEmpty()) {
+            throw new IllegalArgumentException("The connections, the depth and the personages are required.");
+        }
+        List<Driver> drivers = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                drivers.add(new Driver(Chapter11Client.connect(address), depth, personages, i));
+            }
+            long deadline = System.nanoTime() + duration.toNanos();
+            long start = System.nanoTime();
+            drivers.forEach(driver -> driver.start(deadline));
+            for (Driver driver : drivers) {
+                driver.join();
+            }
+            long elapsed = System.nanoTime() - start;
+            long errors = 0;
+            int count = 0;
+            for (Driver driver : drivers) {
+                errors += driver.errors;
+                count += driver.count;
+            }
+            long[] latencies = new long[count];
+            int offset = 0;
+            for (Driver driver : drivers) {
+                System.arraycopy(driver.latencies, 0, latencies, offset, driver.count);
+                offset += driver.count;
+            }
+            Arrays.sort(latencies);
+            return new LoadResult(connections, count, errors, elapsed, percentile(latencies, 0.50),
+                    percentile(latencies, 0.99));
+        } finally {
+            drivers.forEach(driver -> driver.client.close());
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.max(0, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    /**
+     * The latencies are recorded by the reader thread of the client, or by the driver thread when a request fails
+     * before it is sent, so the recording is synchronized. They are only read after the driver has taken back every
+     * permit, when no request is in flight.
+     */
+    private static final class Driver {
+
+        private final Chapter11Client client;
+        private final int depth;
+        private final Semaphore inFlight;
+        private final List<String> personages;
+        private final Thread thread;
+        private long[] latencies = new long[1_024];
+        private int count;
+        private long errors;
+        private int next;
+        private long deadline;
+
+        private Driver(Chapter11Client client, int depth, List<String> personages, int index) {
+            this.client = client;
+            this.depth = depth;
+            this.inFlight = new Semaphore(depth);
+            this.personages = personages;
+            this.next = index;
+            this.thread = new Thread(this::drive, "chapter11-net-load-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void start(long deadline) {
+            this.deadline = deadline;
+            thread.start();
+        }
+
+        private void join() throws InterruptedException {
+            thread.join();
+        }
+
+        private void drive() {
+            try {
+                while (System.nanoTime() - deadline < 0) {
+                    inFlight.acquire();
+                    String personage = personages.get(next++ % personages.size());
+                    long start = System.nanoTime();
+                    client.findByPersonage(personage).whenComplete((actor, e) -> {
+                        record(e, System.nanoTime() - start);
+                        inFlight.release();
+                    });
+                }
+                inFlight.acquire(depth);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private synchronized void record(Throwable error, long nanos) {
+            if (error != null) {
+                errors++;
+                return;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+}
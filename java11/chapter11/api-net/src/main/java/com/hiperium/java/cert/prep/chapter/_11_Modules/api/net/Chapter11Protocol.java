@@ -0,0 +1,100 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.net;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary frames of the Chapter11Server. Every frame starts with its length, as an int that doesn't count itself, and
+ * the id that the client gave to the request, so the client can send many requests without waiting for the responses,
+ * and match them when they come back. The server answers the requests of a connection in the order it received them.
+ *
+ * Request: length, request id, operation byte, and the parameters of the operation.
+ * Response: length, request id, status byte, and a list of actors for OK or a message for ERROR.
+ *
+ * A string is written as its UTF-8 length in a short, -1 for null, followed by its bytes. An actor is written as its
+ * id followed by its name, personage and role.
+ */
+public final class Chapter11Protocol {
+
+    public static final byte FIND_BY_PERSONAGE = 1;
+    public static final byte FIND_ALL_BY_PERSONAGE_PREFIX = 2;
+    public static final byte SEARCH = 3;
+    public static final byte FIND_PAGE = 4;
+
+    public static final byte OK = 0;
+    public static final byte ERROR = 1;
+
+    public static final int MAX_REQUEST_LENGTH = 4_096;
+    public static final int MAX_RESULTS = 1_000;
+
+    static final int HEADER_LENGTH = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+
+    private Chapter11Protocol() {
+        // Nothing to implement
+    }
+
+    /**
+     * Writes the header of a frame, with a placeholder for its length, and returns the position of the frame.
+     */
+    static int beginFrame(ByteBuffer buffer, int requestId, byte code) {
+        int start = buffer.position();
+        buffer.putInt(0).putInt(requestId).put(code);
+        return start;
+    }
+
+    static void endFrame(ByteBuffer buffer, int start) {
+        buffer.putInt(start, buffer.position() - start - Integer.BYTES);
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("The string is too long for the protocol: " + bytes.length + " bytes.");
+        }
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void putActors(ByteBuffer buffer, List<Actor> actors) {
+        buffer.putInt(actors.size());
+        for (Actor actor : actors) {
+            buffer.putInt(actor.id);
+            putString(buffer, actor.name);
+            putString(buffer, actor.personage);
+            putString(buffer, actor.role);
+        }
+    }
+
+    static List<Actor> getActors(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > MAX_RESULTS) {
+            throw new IllegalArgumentException("Invalid number of actors in the frame: " + count);
+        }
+        List<Actor> actors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            actors.add(new Actor(buffer.getInt(), getString(buffer), getString(buffer), getString(buffer)));
+        }
+        return actors;
+    }
+}
@@ -0,0 +1,326 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.net;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Non-blocking TCP front end of a Chapter11API provider. A single thread accepts the connections, reads the requests
+ * and writes the responses of every client with one Selector, so an idle connection costs a socket and a key, not a
+ * thread. The lookups run on the selector thread too, which suits the in-memory providers; a slow provider would
+ * delay every connection.
+ *
+ * A client can pipeline its requests: every request in the read buffer is answered before the next read, and the
+ * responses are queued in pooled direct buffers and written in one gathering write. While a connection has responses
+ * that the socket didn't take, the server stops reading from it, so a client that doesn't read can't fill the heap.
+ * The read buffer of a connection goes back to the pool when it holds no partial request.
+ *
+ * If the selector fails, the server closes every connection and stops, and "close()" throws the failure, so the
+ * owner of the server learns about it instead of finding it in the console.
+ */
+public final class Chapter11Server implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 16 * 1_024;
+    private static final int MAX_IDLE_BUFFERS = 256;
+    private static final int MAX_ERROR_LENGTH = 1_000;
+
+    private final Chapter11API api;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final DirectBufferPool pool = new DirectBufferPool(BUFFER_SIZE, MAX_IDLE_BUFFERS);
+    private final Thread selectorThread;
+    private ByteBuffer scratch = ByteBuffer.allocate(BUFFER_SIZE);
+    private volatile boolean running = true;
+    private volatile Exception failure;
+
+    private Chapter11Server(Chapter11API api, ServerSocketChannel serverChannel, Selector selector) {
+        this.api = api;
+        this.serverChannel = serverChannel;
+        this.selector = selector;
+        this.selectorThread = new Thread(this::run, "chapter11-net-selector");
+        this.selectorThread.setDaemon(true);
+    }
+
+    /**
+     * Binds the server to the address, port 0 for any free port, and starts its selector thread.
+     */
+    public static Chapter11Server start(Chapter11API api, InetSocketAddress address) throws IOException {
+        Objects.requireNonNull(api, "The API implementation is required.");
+        Selector selector = Selector.open();
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        Chapter11Server server = new Chapter11Server(api, serverChannel, selector);
+        server.selectorThread.start();
+        return server;
+    }
+
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns false once the server was closed, or once its selector failed.
+     */
+    public boolean isRunning() {
+        return running && selectorThread.isAlive();
+    }
+
+    /**
+     * Stops the server, and throws the failure of its selector if it stopped on its own.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Exception error = failure;
+        if (error instanceof IOException) {
+            throw new UncheckedIOException("ERROR in the selector of the Chapter 11 server: " + error.getMessage(),
+                    (IOException) error);
+        }
+        if (error != null) {
+            throw new IllegalStateException("ERROR in the selector of the Chapter 11 server: " + error.getMessage(),
+                    error);
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(key -> {
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            Connection connection = (Connection) key.attachment();
+                            if (key.isWritable()) {
+                                connection.write();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read();
+                            }
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        if (key.attachment() != null) {
+                            ((Connection) key.attachment()).close();
+                        }
+                    }
+                });
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            failure = e;
+            running = false;
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() != null) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            closeQuietly(serverChannel);
+            closeQuietly(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        }
+    }
+
+    /**
+     * Runs one request, and writes its response in the scratch buffer, which grows when a response doesn't fit. A
+     * request that the provider rejects gets an ERROR response, and the connection stays open.
+     */
+    private ByteBuffer respond(ByteBuffer request) {
+        int requestId = request.getInt();
+        byte operation = request.get();
+        List<Actor> actors = null;
+        String error = null;
+        try {
+            actors = execute(operation, request);
+        } catch (RuntimeException e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            error = error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH));
+        }
+        while (true) {
+            scratch.clear();
+            try {
+                int start = Chapter11Protocol.beginFrame(scratch, requestId,
+                        error == null ? Chapter11Protocol.OK : Chapter11Protocol.ERROR);
+                if (error == null) {
+                    Chapter11Protocol.putActors(scratch, actors);
+                } else {
+                    Chapter11Protocol.putString(scratch, error);
+                }
+                Chapter11Protocol.endFrame(scratch, start);
+                return scratch.flip();
+            } catch (BufferOverflowException e) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            }
+        }
+    }
+
+    private List<Actor> execute(byte operation, ByteBuffer request) {
+        switch (operation) {
+            case Chapter11Protocol.FIND_BY_PERSONAGE:
+                Actor actor = api.findByPersonage(Chapter11Protocol.getString(request));
+                return actor == null ? List.of() : List.of(actor);
+            case Chapter11Protocol.FIND_ALL_BY_PERSONAGE_PREFIX:
+                String prefix = Chapter11Protocol.getString(request);
+                int limit = checkLimit(request.getInt());
+                List<Actor> actors = api.findAllByPersonagePrefix(prefix);
+                return actors.size() > limit ? actors.subList(0, limit) : actors;
+            case Chapter11Protocol.SEARCH:
+                String text = Chapter11Protocol.getString(request);
+                return api.search(text, checkLimit(request.getInt()));
+            case Chapter11Protocol.FIND_PAGE:
+                int afterId = request.getInt();
+                return api.findPage(afterId, checkLimit(request.getInt()));
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    private static int checkLimit(int limit) {
+        if (limit < 0 || limit > Chapter11Protocol.MAX_RESULTS) {
+            throw new IllegalArgumentException("The limit must be between 0 and " + Chapter11Protocol.MAX_RESULTS
+                    + ": " + limit);
+        }
+        return limit;
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Nothing else to release.
+        }
+    }
+
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final Deque<ByteBuffer> pending = new ArrayDeque<>();
+        private ByteBuffer readBuffer;
+
+        private Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        private void read() throws IOException {
+            if (readBuffer == null) {
+                readBuffer = pool.acquire();
+            }
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            readBuffer.flip();
+            while (readBuffer.remaining() >= Integer.BYTES) {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length < Chapter11Protocol.HEADER_LENGTH - Integer.BYTES
+                        || length > Chapter11Protocol.MAX_REQUEST_LENGTH) {
+                    throw new IOException("Invalid request length: " + length);
+                }
+                if (readBuffer.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                int end = readBuffer.position() + Integer.BYTES + length;
+                ByteBuffer request = readBuffer.slice(readBuffer.position() + Integer.BYTES, length);
+                readBuffer.position(end);
+                queue(respond(request));
+            }
+            if (readBuffer.hasRemaining()) {
+                readBuffer.compact();
+            } else {
+                pool.release(readBuffer);
+                readBuffer = null;
+            }
+            write();
+        }
+
+        /**
+         * Copies the response to the pooled buffers of the connection, filling the last one first.
+         */
+        private void queue(ByteBuffer response) {
+            while (response.hasRemaining()) {
+                ByteBuffer last = pending.peekLast();
+                if (last == null || !last.hasRemaining()) {
+                    last = pool.acquire();
+                    pending.addLast(last);
+                }
+                int count = Math.min(last.remaining(), response.remaining());
+                last.put(last.position(), response, response.position(), count);
+                last.position(last.position() + count);
+                response.position(response.position() + count);
+            }
+        }
+
+        private void write() throws IOException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            ByteBuffer[] buffers = pending.toArray(new ByteBuffer[0]);
+            for (ByteBuffer buffer : buffers) {
+                buffer.flip();
+            }
+            channel.write(buffers);
+            while (!pending.isEmpty() && !pending.peekFirst().hasRemaining()) {
+                pool.release(pending.pollFirst());
+            }
+            for (ByteBuffer buffer : pending) {
+                buffer.compact();
+            }
+            key.interestOps(pending.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+        }
+
+        private void close() {
+            key.cancel();
+            closeQuietly(channel);
+            if (readBuffer != null) {
+                pool.release(readBuffer);
+                readBuffer = null;
+            }
+            pending.forEach(pool::release);
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.net;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct buffers of the same size. A direct buffer is expensive to allocate and is only freed by the garbage
+ * collector, but the channels read and write it without an extra copy, so the buffers are kept and reused. The pool
+ * keeps up to maxIdle free buffers, and lets the garbage collector free the rest.
+ */
+final class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int maxIdle;
+    private final Queue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    DirectBufferPool(int bufferSize, int maxIdle) {
+        this.bufferSize = bufferSize;
+        this.maxIdle = maxIdle;
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer buffer = idle.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        idleCount.decrementAndGet();
+        return buffer.clear();
+    }
+
+    void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize && idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(buffer);
+        } else if (buffer.capacity() == bufferSize) {
+            idleCount.decrementAndGet();
+        }
+    }
+}
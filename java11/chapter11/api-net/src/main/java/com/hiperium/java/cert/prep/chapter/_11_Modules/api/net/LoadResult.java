@@ -0,0 +1,53 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.net;
+
+/**
+ * Throughput and latency percentiles of one run of the Chapter11LoadGenerator.
+ */
+public final class LoadResult {
+
+    private final int connections;
+    private final long requests;
+    private final long errors;
+    private final long elapsedNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+
+    LoadResult(int connections, long requests, long errors, long elapsedNanos, long p50Nanos, long p99Nanos) {
+        this.connections = connections;
+        this.requests = requests;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getRequestsPerSecond() {
+        return elapsedNanos == 0 ? 0 : requests * 1e9 / elapsedNanos;
+    }
+
+    public double getP50Micros() {
+        return p50Nanos / 1_000.0;
+    }
+
+    public double getP99Micros() {
+        return p99Nanos / 1_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("connections=%d, requests/s=%,.0f, p50=%.1f us, p99=%.1f us, errors=%d",
+                connections, getRequestsPerSecond(), getP50Micros(), getP99Micros(), errors);
+    }
+}
@@ -0,0 +1,4 @@
+module com.hiperium.java.cert.prep.chapter.eleven.api.net { // module name should avoid terminal digits
+    requires com.hiperium.java.cert.prep.chapter.eleven.api;
+    exports com.hiperium.java.cert.prep.chapter._11_Modules.api.net;
+}
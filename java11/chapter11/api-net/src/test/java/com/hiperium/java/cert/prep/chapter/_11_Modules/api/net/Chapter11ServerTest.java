@@ -0,0 +1,126 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.net;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.dao.Chapter11APIDAO;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class Chapter11ServerTest {
+
+    private static final int ID_OFFSET = 1_000;
+
+    private static Chapter11APIDAO dao;
+    private static Chapter11Server server;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        List<Actor> actors = new ArrayList<>();
+        for (int i = 1; i <= 10_000; i++) {
+            actors.add(new Actor(ID_OFFSET + i, "Actor " + i, String.format("Personage %05d", i), "Rôle " + i));
+        }
+        dao = Chapter11APIDAO.newInstance(actors);
+        server = Chapter11Server.start(dao, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void lookups() throws Exception {
+        Assert.assertTrue(server.isRunning());
+        try (Chapter11Client client = Chapter11Client.connect(server.getAddress())) {
+            Assert.assertEquals(dao.findByPersonage("Personage 00042"),
+                    get(client.findByPersonage("Personage 00042")));
+            Assert.assertNull(get(client.findByPersonage("Stuart")));
+            Assert.assertEquals(List.of(1_100, 1_101, 1_102),
+                    ids(get(client.findAllByPersonagePrefix("Personage 001", 3))));
+            Assert.assertEquals(List.of(1_011, 1_012), ids(get(client.findPage(1_010, 2))));
+            Assert.assertEquals("Rôle 77", get(client.search("rôle 77", 1)).get(0).role);
+            Assert.assertEquals(1_000, get(client.findAllByPersonagePrefix("", 1_000)).size());
+        }
+    }
+
+    @Test
+    public void rejectedRequestsKeepTheConnection() throws Exception {
+        try (Chapter11Client client = Chapter11Client.connect(server.getAddress())) {
+            ExecutionException e = Assert.assertThrows(ExecutionException.class,
+                    () -> get(client.findPage(0, -1)));
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            Assert.assertThrows(ExecutionException.class, () -> get(client.search("x", 1_001)));
+            Assert.assertThrows(ExecutionException.class, () -> get(client.findByPersonage("x".repeat(5_000))));
+            Assert.assertEquals(1_001, get(client.findByPersonage("Personage 00001")).id);
+        }
+    }
+
+    /**
+     * Sends many requests before reading any response, from several threads, and checks that every response matches
+     * its request.
+     */
+    @Test
+    public void pipelinedRequests() throws Exception {
+        try (Chapter11Client client = Chapter11Client.connect(server.getAddress())) {
+            List<CompletableFuture<Actor>> futures = new ArrayList<>();
+            for (int id = 1; id <= 10_000; id++) {
+                futures.add(client.findByPersonage(String.format("Personage %05d", id)));
+            }
+            for (int id = 1; id <= 10_000; id++) {
+                Assert.assertEquals(ID_OFFSET + id, get(futures.get(id - 1)).id);
+            }
+        }
+    }
+
+    @Test
+    public void closingTheServerFailsThePendingRequests() throws Exception {
+        Chapter11Server other = Chapter11Server.start(dao, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        try (Chapter11Client client = Chapter11Client.connect(other.getAddress())) {
+            Assert.assertEquals(1_007, get(client.findByPersonage("Personage 00007")).id);
+            other.close();
+            Assert.assertFalse(other.isRunning());
+            ExecutionException e = Assert.assertThrows(ExecutionException.class,
+                    () -> get(client.findByPersonage("Personage 00008")));
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    /**
+     * Prints the throughput and the latency percentiles of the loopback load test as the connections grow. It only
+     * runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void loadGenerator() throws Exception {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        List<String> personages = dao.findAll().stream().map(Actor::getPersonage).collect(Collectors.toList());
+        Chapter11LoadGenerator.run(server.getAddress(), 1, 16, Duration.ofMillis(500), personages);
+        for (int connections = 1; connections <= 32; connections *= 4) {
+            LoadResult result = Chapter11LoadGenerator.run(server.getAddress(), connections, 16,
+                    Duration.ofMillis(500), personages);
+            Assert.assertEquals(0, result.getErrors());
+            Assert.assertTrue(result.getRequests() > 0);
+            System.out.println(result);
+        }
+    }
+
+    private static <T> T get(CompletableFuture<T> future) throws Exception {
+        return future.get(10, TimeUnit.SECONDS);
+    }
+
+    private static List<Integer> ids(List<Actor> actors) {
+        return actors.stream().map(Actor::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,355 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.shard;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.dao.Chapter11APIDAO;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.query.ActorQuery;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11Provider;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.text.TextFolding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Chapter11API over N in-memory DAO stores, the shards, with the actors split by a hash of their id. Every shard has
+ * its own write lock and its own indexes, so the writes to different shards don't wait for each other, and a write
+ * only maintains the indexes of a fraction of the catalog.
+ *
+ * The writes go to the shard of the actor. The reads fan out to all the shards in parallel, and merge their results
+ * in the order of the DAO: by id, by personage, by the folded key that matched, or by the rank of the search match.
+ * Every shard returns at most the limit of the call, so the merge only sorts up to N times the limit. The calling
+ * thread reads the first shard itself, and the others are read on a pool of N - 1 daemon threads, which stop after a
+ * minute without calls. So an instance that the ServiceLoader created, and that nobody closes, holds no thread while
+ * it is idle and never keeps the JVM alive.
+ *
+ * The provider starts with a copy of the actors of the DAO singleton, in the number of shards given by the
+ * "chapter11.shard.count" system property, or else one per available processor.
+ */
+@Chapter11Provider(name = "shard")
+public class Chapter11ShardedAPI implements Chapter11API, AutoCloseable {
+
+    public static final String SHARD_COUNT_PROPERTY = "chapter11.shard.count";
+
+    private static final int STREAM_PAGE_SIZE = 1_000;
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60L;
+    private static final Comparator<Actor> ID_ORDER = Comparator.comparingInt(Actor::getId);
+    private static final Comparator<Actor> PERSONAGE_ORDER = Comparator.comparing(Actor::getPersonage)
+            .thenComparingInt(Actor::getId);
+
+    private final Chapter11APIDAO[] shards;
+    private final ExecutorService executor;
+
+    public Chapter11ShardedAPI() {
+        this(Integer.getInteger(SHARD_COUNT_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                Chapter11APIDAO.getInstance().findAll());
+    }
+
+    public Chapter11ShardedAPI(int shardCount, Collection<Actor> actors) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("The shard count must be positive: " + shardCount);
+        }
+        List<List<Actor>> partitions = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            partitions.add(new ArrayList<>(actors.size() / shardCount + 1));
+        }
+        for (Actor actor : actors) {
+            partitions.get(shardOf(actor.id, shardCount)).add(actor);
+        }
+        this.shards = new Chapter11APIDAO[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = Chapter11APIDAO.newInstance(partitions.get(i));
+        }
+        this.executor = newShardExecutor(Math.max(1, shardCount - 1));
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public List<Actor> findAll() {
+        return merge(fanOut(Chapter11APIDAO::findAll), ID_ORDER, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Actor> findPage(int afterId, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The page limit can't be negative: " + limit);
+        }
+        return merge(fanOut(shard -> shard.findPage(afterId, limit)), ID_ORDER, limit);
+    }
+
+    /**
+     * Walks the shards with "findPage", so the stream holds one merged page at a time.
+     */
+    @Override
+    public Stream<Actor> streamAll() {
+        Iterator<Actor> iterator = new Iterator<>() {
+            private Iterator<Actor> page = List.<Actor>of().iterator();
+            private int cursor = Integer.MIN_VALUE;
+            private boolean lastPage;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !lastPage) {
+                    List<Actor> actors = findPage(cursor, STREAM_PAGE_SIZE);
+                    lastPage = actors.size() < STREAM_PAGE_SIZE;
+                    if (!actors.isEmpty()) {
+                        cursor = actors.get(actors.size() - 1).id;
+                    }
+                    page = actors.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public Actor next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Every shard returns its first match in personage order, and the first of them is the first of the catalog.
+     * The Bloom filter of each shard answers most of its misses without walking its index.
+     */
+    @Override
+    public Actor findByPersonage(String personage) {
+        Actor first = null;
+        for (Actor actor : fanOut(shard -> shard.findByPersonage(personage))) {
+            if (actor != null && (first == null || PERSONAGE_ORDER.compare(actor, first) < 0)) {
+                first = actor;
+            }
+        }
+        return first;
+    }
+
+    @Override
+    public List<Actor> findAllByPersonagePrefix(String prefix) {
+        return merge(fanOut(shard -> shard.findAllByPersonagePrefix(prefix)), PERSONAGE_ORDER, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Map<String, Actor> findByPersonages(Collection<String> personages) {
+        Map<String, Actor> result = new HashMap<>();
+        for (Map<String, Actor> actors : fanOut(shard -> shard.findByPersonages(personages))) {
+            actors.forEach((personage, actor) -> result.merge(personage, actor,
+                    (first, second) -> PERSONAGE_ORDER.compare(first, second) <= 0 ? first : second));
+        }
+        return result;
+    }
+
+    /**
+     * Ranks the best matches of every shard again, with the same rank as the DAO.
+     */
+    @Override
+    public List<Actor> search(String text, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The search limit can't be negative: " + limit);
+        }
+        String folded = text.toLowerCase(Locale.ROOT);
+        if (folded.isEmpty() || limit == 0) {
+            return List.of();
+        }
+        List<SearchRank> ranks = new ArrayList<>();
+        for (List<Actor> actors : fanOut(shard -> shard.search(text, limit))) {
+            for (Actor actor : actors) {
+                ranks.add(SearchRank.of(actor, folded));
+            }
+        }
+        return ranks.stream().sorted().limit(limit).map(rank -> rank.actor).collect(Collectors.toList());
+    }
+
+    /**
+     * Sorts the matches of every shard by their smallest folded personage or name that starts with the prefix, which
+     * is the key that the DAO found them by.
+     */
+    @Override
+    public List<Actor> findAllByFoldedPrefix(String prefix, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The lookup limit can't be negative: " + limit);
+        }
+        String folded = TextFolding.fold(prefix);
+        Map<Actor, String> keys = new HashMap<>();
+        for (List<Actor> actors : fanOut(shard -> shard.findAllByFoldedPrefix(prefix, limit))) {
+            for (Actor actor : actors) {
+                keys.put(actor, matchedKey(actor, folded));
+            }
+        }
+        return keys.keySet().stream()
+                .sorted(Comparator.comparing((Actor actor) -> keys.get(actor)).thenComparingInt(Actor::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Actor> query(ActorQuery query) {
+        return merge(fanOut(shard -> shard.query(query)), ID_ORDER, query.getLimit());
+    }
+
+    @Override
+    public boolean add(Actor actor) {
+        Objects.requireNonNull(actor, "The actor is required.");
+        return shardOf(actor.id).add(actor);
+    }
+
+    @Override
+    public boolean update(Actor actor) {
+        Objects.requireNonNull(actor, "The actor is required.");
+        return shardOf(actor.id).update(actor);
+    }
+
+    @Override
+    public boolean remove(int id) {
+        return shardOf(id).remove(id);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    Chapter11APIDAO shardOf(int id) {
+        return shards[shardOf(id, shards.length)];
+    }
+
+    /**
+     * Spreads the ids with a Fibonacci hash, and maps the hash to a shard with a multiply and a shift instead of a
+     * modulo, so the ids that share a stride still land on different shards.
+     */
+    static int shardOf(int id, int shardCount) {
+        return (int) ((Integer.toUnsignedLong(id * 0x9E3779B9) * shardCount) >>> 32);
+    }
+
+    /**
+     * Calls every shard, the first one on the calling thread and the others on the pool, and returns their results
+     * in shard order. An exception of a shard is thrown again as it is.
+     */
+    private <T> List<T> fanOut(Function<Chapter11APIDAO, T> call) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.length - 1);
+        for (int i = 1; i < shards.length; i++) {
+            Chapter11APIDAO shard = shards[i];
+            futures.add(CompletableFuture.supplyAsync(() -> call.apply(shard), executor));
+        }
+        List<T> results = new ArrayList<>(shards.length);
+        results.add(call.apply(shards[0]));
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Every list is sorted already, so the sort of their concatenation only merges the runs.
+     */
+    private static List<Actor> merge(List<List<Actor>> sortedLists, Comparator<Actor> order, int limit) {
+        int size = 0;
+        for (List<Actor> actors : sortedLists) {
+            size += actors.size();
+        }
+        List<Actor> merged = new ArrayList<>(size);
+        sortedLists.forEach(merged::addAll);
+        merged.sort(order);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    private static String matchedKey(Actor actor, String foldedPrefix) {
+        String personage = TextFolding.fold(actor.personage);
+        String name = actor.name == null ? null : TextFolding.fold(actor.name);
+        if (name == null || !name.startsWith(foldedPrefix)) {
+            return personage;
+        }
+        return personage.startsWith(foldedPrefix) && personage.compareTo(name) < 0 ? personage : name;
+    }
+
+    private static ExecutorService newShardExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "chapter11-shard-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, THREAD_KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Rank of a search match, like the DAO ranks them: the matches in the personage first, then in the name and then
+     * in the role, and in the same field, the match closer to the start and then the shorter field.
+     */
+    private static final class SearchRank implements Comparable<SearchRank> {
+
+        private final Actor actor;
+        private final int field;
+        private final int position;
+        private final int fieldLength;
+
+        private SearchRank(Actor actor, int field, int position, int fieldLength) {
+            this.actor = actor;
+            this.field = field;
+            this.position = position;
+            this.fieldLength = fieldLength;
+        }
+
+        private static SearchRank of(Actor actor, String foldedText) {
+            String[] fields = {actor.personage, actor.name, actor.role};
+            for (int field = 0; field < fields.length; field++) {
+                if (fields[field] != null) {
+                    int position = fields[field].toLowerCase(Locale.ROOT).indexOf(foldedText);
+                    if (position >= 0) {
+                        return new SearchRank(actor, field, position, fields[field].length());
+                    }
+                }
+            }
+            throw new IllegalStateException("The actor doesn't match the search: " + actor);
+        }
+
+        @Override
+        public int compareTo(SearchRank other) {
+            int result = Integer.compare(field, other.field);
+            if (result == 0) {
+                result = Integer.compare(position, other.position);
+            }
+            if (result == 0) {
+                result = Integer.compare(fieldLength, other.fieldLength);
+            }
+            return result != 0 ? result : Integer.compare(actor.id, other.actor.id);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+module com.hiperium.java.cert.prep.chapter.eleven.api.shard { // module name should avoid terminal digits
+    requires com.hiperium.java.cert.prep.chapter.eleven.api;
+    requires com.hiperium.java.cert.prep.chapter.eleven.api.dao;
+    exports com.hiperium.java.cert.prep.chapter._11_Modules.api.shard;
+    provides com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API with com.hiperium.java.cert.prep.chapter._11_Modules.api.shard.Chapter11ShardedAPI;
+}
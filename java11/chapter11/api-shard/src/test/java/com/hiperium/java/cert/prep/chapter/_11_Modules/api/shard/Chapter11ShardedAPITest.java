@@ -0,0 +1,115 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.shard;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.dao.Chapter11APIDAO;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.query.ActorQuery;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.service.Chapter11ServiceLocator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class Chapter11ShardedAPITest {
+
+    private static final String[] ROLES = {"Experimental Physicist", "Theoretical Physicist", "Aerospace Engineer",
+            "Astrophysicist", "Ph.D. in Microbiology", "Ph.D. in Neurobiology"};
+
+    /**
+     * Every read of the sharded API must return the same actors, in the same order, as a single DAO with the same
+     * catalog.
+     */
+    @Test
+    public void readsMatchASingleStore() {
+        List<Actor> actors = syntheticActors(2_000);
+        actors.add(new Actor(5_000, "Zoë Saldaña", "Personage 0000123 Jr.", "Comic Book Reader"));
+        actors.add(new Actor(5_001, "Personage 0000124", "Stuart Bloom", "Comic Book Store Owner"));
+        Chapter11APIDAO single = Chapter11APIDAO.newInstance(actors);
+        for (int shardCount : new int[]{1, 3, 4}) {
+            try (Chapter11ShardedAPI sharded = new Chapter11ShardedAPI(shardCount, actors)) {
+                Assert.assertEquals(ids(single.findAll()), ids(sharded.findAll()));
+                Assert.assertEquals(ids(single.findPage(500, 25)), ids(sharded.findPage(500, 25)));
+                Assert.assertEquals(ids(single.findAll()), ids(sharded.streamAll().collect(Collectors.toList())));
+                for (String personage : new String[]{"Personage 0000123", "Personage 00012", "Stuart", "Barry"}) {
+                    Assert.assertEquals(single.findByPersonage(personage), sharded.findByPersonage(personage));
+                    Assert.assertEquals(ids(single.findAllByPersonagePrefix(personage)),
+                            ids(sharded.findAllByPersonagePrefix(personage)));
+                }
+                Assert.assertEquals(single.findByPersonages(List.of("Personage 00001", "Stuart", "Barry")),
+                        sharded.findByPersonages(List.of("Personage 00001", "Stuart", "Barry")));
+                for (String text : new String[]{"0000124", "ph", "STUART", "physicist"}) {
+                    Assert.assertEquals(ids(single.search(text, 20)), ids(sharded.search(text, 20)));
+                }
+                for (String prefix : new String[]{"personage 0000123", "PERSONAGE 0000124", "zoe", "actor 19"}) {
+                    Assert.assertEquals(ids(single.findAllByFoldedPrefix(prefix, 15)),
+                            ids(sharded.findAllByFoldedPrefix(prefix, 15)));
+                }
+                ActorQuery query = ActorQuery.all().withRole("Astrophysicist").withNamePrefix("Actor 1").withLimit(30);
+                Assert.assertEquals(ids(single.query(query)), ids(sharded.query(query)));
+                Assert.assertThrows(IllegalArgumentException.class, () -> sharded.findPage(0, -1));
+                Assert.assertThrows(IllegalArgumentException.class, () -> sharded.search("Penny", -1));
+            }
+        }
+    }
+
+    @Test
+    public void writesGoToTheShardOfTheActor() {
+        try (Chapter11ShardedAPI sharded = new Chapter11ShardedAPI(4, syntheticActors(100))) {
+            Actor stuart = new Actor(101, "Kevin Sussman", "Stuart Bloom", "Comic Book Store Owner");
+            Assert.assertTrue(sharded.add(stuart));
+            Assert.assertFalse(sharded.add(stuart));
+            Assert.assertEquals(stuart, sharded.shardOf(101).findByPersonage("Stuart"));
+            Assert.assertEquals(stuart, sharded.findByPersonage("Stuart"));
+            Assert.assertTrue(sharded.update(new Actor(101, "Kevin Sussman", "Stuart Bloom", "Astrophysicist")));
+            Assert.assertEquals("Astrophysicist", sharded.findByPersonage("Stuart").role);
+            Assert.assertTrue(sharded.remove(101));
+            Assert.assertFalse(sharded.remove(101));
+            Assert.assertFalse(sharded.update(stuart));
+            Assert.assertNull(sharded.findByPersonage("Stuart"));
+            Assert.assertEquals(100, sharded.findAll().size());
+        }
+        Assert.assertThrows(IllegalArgumentException.class, () -> new Chapter11ShardedAPI(0, List.of()));
+    }
+
+    /**
+     * The ids that share a stride with the shard count must still spread over all the shards.
+     */
+    @Test
+    public void idsAreSpreadOverTheShards() {
+        int shardCount = 8;
+        int[] counts = new int[shardCount];
+        for (int id = 0; id < 80_000; id += shardCount) {
+            counts[Chapter11ShardedAPI.shardOf(id, shardCount)]++;
+        }
+        for (int count : counts) {
+            Assert.assertTrue("Unbalanced shards: " + Arrays.toString(counts),
+                    Math.abs(count - 1_250) < 125);
+        }
+    }
+
+    /**
+     * The DAO and the sharded providers are both on the path of the tests, and the DAO one must be the default
+     * whatever order the ServiceLoader finds them in.
+     */
+    @Test
+    public void serviceLocatorPrefersTheDaoProvider() {
+        Assert.assertEquals(List.of("dao", "shard"), Chapter11ServiceLocator.getApiImplNames());
+        Assert.assertEquals("Chapter11APIImpl", Chapter11ServiceLocator.getApiImpl().getClass().getSimpleName());
+        Assert.assertEquals("Chapter11ShardedAPI",
+                Chapter11ServiceLocator.getApiImpl("shard").getClass().getSimpleName());
+    }
+
+    private static List<Actor> syntheticActors(int size) {
+        List<Actor> actors = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            actors.add(new Actor(id, "Actor " + id, String.format("Personage %07d", id), ROLES[id % ROLES.length]));
+        }
+        return actors;
+    }
+
+    private static List<Integer> ids(List<Actor> actors) {
+        return actors.stream().map(Actor::getId).collect(Collectors.toList());
+    }
+}
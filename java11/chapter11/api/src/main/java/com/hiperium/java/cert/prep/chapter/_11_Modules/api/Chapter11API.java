@@ -1,10 +1,24 @@
 package com.hiperium.java.cert.prep.chapter._11_Modules.api;
 
 import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.query.ActorQuery;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface Chapter11API {
     List<Actor> findAll();
+    List<Actor> findPage(int afterId, int limit);
+    Stream<Actor> streamAll();
     Actor findByPersonage(String personage);
+    List<Actor> findAllByPersonagePrefix(String prefix);
+    Map<String, Actor> findByPersonages(Collection<String> personages);
+    List<Actor> search(String text, int limit);
+    List<Actor> findAllByFoldedPrefix(String prefix, int limit);
+    List<Actor> query(ActorQuery query);
+    boolean add(Actor actor);
+    boolean update(Actor actor);
+    boolean remove(int id);
 }
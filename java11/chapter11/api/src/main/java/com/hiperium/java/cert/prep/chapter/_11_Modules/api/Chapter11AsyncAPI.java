@@ -0,0 +1,19 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of the Chapter11API. Every call completes exceptionally with a TimeoutException when its
+ * timeout expires, and cancelling the returned future also cancels the pending lookup.
+ */
+public interface Chapter11AsyncAPI {
+    CompletableFuture<List<Actor>> findAll(Duration timeout);
+    CompletableFuture<Actor> findByPersonage(String personage, Duration timeout);
+    CompletableFuture<Map<String, Actor>> findByPersonagesConcurrently(Collection<String> personages, Duration timeout);
+}
@@ -0,0 +1,59 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.event;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.util.Objects;
+
+/**
+ * A write to the actors. The versions are given by the store in the order of its writes, one per change, so a
+ * subscriber that sees a gap between two versions knows that it missed some changes.
+ */
+public final class ActorChange {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+    private final long version;
+    private final Type type;
+    private final Actor actor;
+
+    /**
+     * The actor is the new version of the actor, or the removed one for a DELETE. A change is delivered to every
+     * subscriber, so it keeps its own copy of the actor and "getActor()" returns a new copy each time.
+     */
+    public ActorChange(long version, Type type, Actor actor) {
+        this.version = version;
+        this.type = Objects.requireNonNull(type, "The change type is required.");
+        this.actor = copyOf(Objects.requireNonNull(actor, "The actor is required."));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Actor getActor() {
+        return copyOf(actor);
+    }
+
+    public int getId() {
+        return actor.id;
+    }
+
+    @Override
+    public String toString() {
+        return "ActorChange{" +
+                "version=" + version +
+                ", type=" + type +
+                ", actor=" + actor +
+                '}';
+    }
+
+    private static Actor copyOf(Actor actor) {
+        return new Actor(actor.id, actor.name, actor.personage, actor.role);
+    }
+}
@@ -0,0 +1,272 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publishes the changes of a store to its subscribers, in batches. Every subscriber has its own bounded buffer, and
+ * "publish" only appends the change to the buffers, so the writer of the store never waits for a subscriber. The
+ * changes are delivered on the executor, as lists of up to "maxBatchSize" changes, and one requested item is one
+ * batch: a subscriber that falls behind gets fewer and larger batches instead of more calls.
+ *
+ * When the buffer of a subscriber is full, its overflow policy decides: DROP_OLDEST drops the oldest buffered change,
+ * and the subscriber can tell from the gap in the versions that it has to read the store again, while CANCEL cancels
+ * the subscription and signals an IllegalStateException to the subscriber.
+ *
+ * To follow a store, a consumer subscribes first and reads the store after. Every change carries the whole actor, so
+ * applying the changes in order, even the ones that are already in the read, ends in the current state.
+ */
+public class ActorChangePublisher implements Flow.Publisher<List<ActorChange>>, AutoCloseable {
+
+    public enum OverflowPolicy {
+        DROP_OLDEST, CANCEL
+    }
+
+    public static final int DEFAULT_BUFFER_CAPACITY = 8_192;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    private final Set<ChangeSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Executor executor;
+    private final int maxBatchSize;
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed;
+
+    public ActorChangePublisher() {
+        this(ForkJoinPool.commonPool(), DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public ActorChangePublisher(Executor executor, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The max batch size must be positive: " + maxBatchSize);
+        }
+        this.executor = Objects.requireNonNull(executor, "The executor is required.");
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Subscribes with a buffer of DEFAULT_BUFFER_CAPACITY changes that drops the oldest ones when it is full.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<ActorChange>> subscriber) {
+        subscribe(subscriber, DEFAULT_BUFFER_CAPACITY, OverflowPolicy.DROP_OLDEST);
+    }
+
+    public void subscribe(Flow.Subscriber<? super List<ActorChange>> subscriber, int bufferCapacity,
+                          OverflowPolicy policy) {
+        Objects.requireNonNull(subscriber, "The subscriber is required.");
+        Objects.requireNonNull(policy, "The overflow policy is required.");
+        if (bufferCapacity < 1) {
+            throw new IllegalArgumentException("The buffer capacity must be positive: " + bufferCapacity);
+        }
+        ChangeSubscription subscription = new ChangeSubscription(subscriber, bufferCapacity, policy);
+        if (!closed) {
+            subscriptions.add(subscription);
+        }
+        subscription.start(closed);
+    }
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Appends the change to the buffer of every subscriber. The caller must publish the changes one at a time, in
+     * version order, like a store does under its write lock.
+     */
+    public void publish(ActorChange change) {
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.offer(change);
+        }
+    }
+
+    /**
+     * Returns the number of changes dropped from the buffers of the DROP_OLDEST subscribers.
+     */
+    public long droppedChanges() {
+        return dropped.sum();
+    }
+
+    /**
+     * Completes every subscription once its buffer is delivered. The changes published after that are ignored.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    private final class ChangeSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super List<ActorChange>> subscriber;
+        private final int bufferCapacity;
+        private final OverflowPolicy policy;
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        // Guarded by "this".
+        private final ArrayDeque<ActorChange> buffer = new ArrayDeque<>();
+        private long demand;
+        private boolean started;
+        private boolean completed;
+        private Throwable error;
+        private boolean terminated;
+
+        private ChangeSubscription(Flow.Subscriber<? super List<ActorChange>> subscriber, int bufferCapacity,
+                                   OverflowPolicy policy) {
+            this.subscriber = subscriber;
+            this.bufferCapacity = bufferCapacity;
+            this.policy = policy;
+        }
+
+        /**
+         * Signals onSubscribe on the executor too, so it comes before any other signal.
+         */
+        private void start(boolean closed) {
+            if (closed) {
+                synchronized (this) {
+                    completed = true;
+                }
+            }
+            drain();
+        }
+
+        private void offer(ActorChange change) {
+            synchronized (this) {
+                if (terminated || completed || error != null) {
+                    return;
+                }
+                if (buffer.size() == bufferCapacity) {
+                    if (policy == OverflowPolicy.CANCEL) {
+                        buffer.clear();
+                        error = new IllegalStateException("The subscriber fell behind by more than "
+                                + bufferCapacity + " changes.");
+                        subscriptions.remove(this);
+                    } else {
+                        buffer.poll();
+                        dropped.increment();
+                        buffer.add(change);
+                    }
+                } else {
+                    buffer.add(change);
+                }
+            }
+            drain();
+        }
+
+        private void complete() {
+            synchronized (this) {
+                completed = true;
+            }
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    buffer.clear();
+                    error = new IllegalArgumentException("The requested number of batches must be positive: " + n);
+                    subscriptions.remove(this);
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                terminated = true;
+                buffer.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Only one drain runs at a time. A signal that arrives while it runs is picked up by its next loop, so no
+         * change is left in the buffer while the subscriber has demand.
+         */
+        private void drain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::deliver);
+                } catch (RejectedExecutionException e) {
+                    synchronized (this) {
+                        terminated = true;
+                        buffer.clear();
+                    }
+                    subscriptions.remove(this);
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        private void deliver() {
+            int missed = 1;
+            while (true) {
+                if (!started) {
+                    started = true;
+                    subscriber.onSubscribe(this);
+                }
+                while (deliverNext()) {
+                    // Delivers while there is demand and buffered changes.
+                }
+                missed = pendingDrains.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Delivers the next batch or the terminal signal, if any, and returns whether it did.
+         */
+        private boolean deliverNext() {
+            List<ActorChange> batch = null;
+            Throwable failure = null;
+            synchronized (this) {
+                if (terminated) {
+                    return false;
+                }
+                if (error != null) {
+                    failure = error;
+                    terminated = true;
+                } else if (demand > 0 && !buffer.isEmpty()) {
+                    batch = new ArrayList<>(Math.min(buffer.size(), maxBatchSize));
+                    while (batch.size() < maxBatchSize && !buffer.isEmpty()) {
+                        batch.add(buffer.poll());
+                    }
+                    demand--;
+                } else if (completed && buffer.isEmpty()) {
+                    terminated = true;
+                } else {
+                    return false;
+                }
+            }
+            try {
+                if (failure != null) {
+                    subscriber.onError(failure);
+                } else if (batch != null) {
+                    subscriber.onNext(batch);
+                } else {
+                    subscriptions.remove(this);
+                    subscriber.onComplete();
+                }
+            } catch (RuntimeException e) {
+                cancel();
+            }
+            return batch != null;
+        }
+    }
+}
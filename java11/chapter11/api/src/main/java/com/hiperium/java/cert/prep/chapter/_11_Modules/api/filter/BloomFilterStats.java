@@ -0,0 +1,50 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.filter;
+
+/**
+ * Point in time copy of the size and the fill of a PrefixBloomFilter.
+ */
+public final class BloomFilterStats {
+
+    private final long bits;
+    private final int hashFunctions;
+    private final long setBits;
+    private final double expectedFalsePositiveRate;
+
+    BloomFilterStats(long bits, int hashFunctions, long setBits, double expectedFalsePositiveRate) {
+        this.bits = bits;
+        this.hashFunctions = hashFunctions;
+        this.setBits = setBits;
+        this.expectedFalsePositiveRate = expectedFalsePositiveRate;
+    }
+
+    public long getBits() {
+        return bits;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    public long getSetBits() {
+        return setBits;
+    }
+
+    public long getMemoryBytes() {
+        return bits / Byte.SIZE;
+    }
+
+    public double getExpectedFalsePositiveRate() {
+        return expectedFalsePositiveRate;
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilterStats{" +
+                "bits=" + bits +
+                ", hashFunctions=" + hashFunctions +
+                ", setBits=" + setBits +
+                ", memoryBytes=" + getMemoryBytes() +
+                ", expectedFalsePositiveRate=" + expectedFalsePositiveRate +
+                '}';
+    }
+}
@@ -0,0 +1,140 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.filter;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of the prefixes of the personages, so a prefix lookup that can't match any actor is answered without
+ * touching the index or the database. Every prefix of a personage, up to MAX_PREFIX_LENGTH chars, is added to the
+ * filter. So a lookup checks a single key: the prefix itself, or its first MAX_PREFIX_LENGTH chars when it is longer.
+ *
+ * The filter never answers false for a prefix that was added, but it can answer true for a prefix that wasn't. The
+ * removed personages can't be taken out of a Bloom filter, so they stay as false positives until the store builds a
+ * new filter. The store should do it when the expected false positive rate goes over its limit, which happens as the
+ * filter fills up.
+ *
+ * The bits are set with compare-and-set, so several writers can add prefixes while the readers check them.
+ */
+public final class PrefixBloomFilter {
+
+    public static final int MAX_PREFIX_LENGTH = 32;
+
+    /**
+     * The number of hash functions that minimizes the false positive rate at about 10 bits per prefix, which gives
+     * around 1% of false positives.
+     */
+    private static final int HASH_FUNCTIONS = 7;
+    private static final int BITS_PER_PREFIX = 10;
+    private static final long MIN_BITS = 1_024;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final AtomicLong setBits = new AtomicLong();
+
+    public PrefixBloomFilter(long expectedPrefixes) {
+        long words = Math.max(MIN_BITS, expectedPrefixes * BITS_PER_PREFIX + Long.SIZE - 1) / Long.SIZE;
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many prefixes for a single filter: " + expectedPrefixes);
+        }
+        this.words = new AtomicLongArray((int) words);
+        this.bits = words * Long.SIZE;
+    }
+
+    /**
+     * Creates a filter of the given personages, with room for as many prefixes again before it has to be rebuilt.
+     */
+    public static PrefixBloomFilter of(Collection<String> personages) {
+        long prefixes = 0;
+        for (String personage : personages) {
+            prefixes += Math.min(personage.length(), MAX_PREFIX_LENGTH);
+        }
+        PrefixBloomFilter filter = new PrefixBloomFilter(prefixes * 2);
+        for (String personage : personages) {
+            filter.add(personage);
+        }
+        return filter;
+    }
+
+    /**
+     * Adds every prefix of the personage. The hash of a prefix is the hash of the previous one extended with one
+     * more char, so the personage is read only once.
+     */
+    public void add(String personage) {
+        long hash = FNV_OFFSET_BASIS;
+        int length = Math.min(personage.length(), MAX_PREFIX_LENGTH);
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ personage.charAt(i)) * FNV_PRIME;
+            long mixed = mix(hash);
+            int hash1 = (int) mixed;
+            int hash2 = (int) (mixed >>> 32);
+            for (int k = 0; k < HASH_FUNCTIONS; k++) {
+                setBit(Math.floorMod(hash1 + (long) k * hash2, bits));
+            }
+        }
+    }
+
+    /**
+     * Returns false when no personage added to the filter starts with the given prefix.
+     */
+    public boolean mightContainPrefix(String prefix) {
+        int length = Math.min(prefix.length(), MAX_PREFIX_LENGTH);
+        if (length == 0) {
+            return true;
+        }
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ prefix.charAt(i)) * FNV_PRIME;
+        }
+        long mixed = mix(hash);
+        int hash1 = (int) mixed;
+        int hash2 = (int) (mixed >>> 32);
+        for (int k = 0; k < HASH_FUNCTIONS; k++) {
+            long bit = Math.floorMod(hash1 + (long) k * hash2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The chance that all the bits of a prefix that wasn't added are set is the fraction of set bits, raised to the
+     * number of hash functions. It includes the bits of the removed personages.
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) setBits.get() / bits, HASH_FUNCTIONS);
+    }
+
+    public BloomFilterStats stats() {
+        return new BloomFilterStats(bits, HASH_FUNCTIONS, setBits.get(), expectedFalsePositiveRate());
+    }
+
+    private void setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long word;
+        do {
+            word = words.get(index);
+            if ((word & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(index, word, word | mask));
+        setBits.incrementAndGet();
+    }
+
+    /**
+     * The FNV-1a hash is cheap to extend char by char, but its low bits are weak, so they are mixed with the
+     * finalizer of MurmurHash3.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
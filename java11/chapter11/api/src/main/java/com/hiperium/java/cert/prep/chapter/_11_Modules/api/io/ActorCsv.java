@@ -0,0 +1,86 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.io;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * CSV format of the actors, with the "id,name,personage,role" columns and a header line. An empty name or role is
+ * read as null.
+ */
+public final class ActorCsv {
+
+    public static final String HEADER = "id,name,personage,role";
+    public static final RecordMapper<Actor> MAPPER = record -> new Actor(record.getInt(0),
+            record.isEmpty(1) ? null : record.getString(1),
+            record.getString(2),
+            record.isEmpty(3) ? null : record.getString(3));
+
+    private ActorCsv() {
+        // Nothing to implement
+    }
+
+    /**
+     * Imports the actors of the file in the store, and returns the final progress. The rows whose id is already in
+     * the store are counted in "rejected", when it is not null.
+     */
+    public static ImportProgress importInto(Chapter11API api, Path file, CsvImporter importer,
+                                            Consumer<ImportProgress> listener, LongAdder rejected) throws IOException {
+        return importer.importFile(file, true, MAPPER, sink(api, rejected), listener);
+    }
+
+    private static Consumer<List<Actor>> sink(Chapter11API api, LongAdder rejected) {
+        return actors -> {
+            for (Actor actor : actors) {
+                if (!api.add(actor) && rejected != null) {
+                    rejected.increment();
+                }
+            }
+        };
+    }
+
+    public static void write(Path file, Stream<Actor> actors) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            Iterator<Actor> iterator = actors.iterator();
+            while (iterator.hasNext()) {
+                Actor actor = iterator.next();
+                writer.write(Integer.toString(actor.id));
+                writer.write(',');
+                writeField(writer, actor.name);
+                writer.write(',');
+                writeField(writer, actor.personage);
+                writer.write(',');
+                writeField(writer, actor.role);
+                writer.newLine();
+            }
+        }
+    }
+
+    private static void writeField(BufferedWriter writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("A CSV field can't hold a line break: " + value);
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            writer.write(value);
+        } else {
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+}
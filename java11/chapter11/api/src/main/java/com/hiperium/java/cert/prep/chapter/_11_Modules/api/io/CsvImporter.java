@@ -0,0 +1,250 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Imports a CSV file in parallel. The file is split in chunks that end at a line break, and every chunk is memory
+ * mapped and parsed by a worker thread, so the file is never copied to the heap and its size isn't limited by the
+ * 2 GB of a single mapping. The workers map the lines to objects and hand them to the sink in batches, from several
+ * threads at the same time, so the sink must be thread-safe. The order of the batches is not the order of the file.
+ *
+ * The importer reports its progress to a listener every progress interval, and once more when the import ends. If a
+ * line can't be parsed or stored, the import stops and the pending chunks are cancelled, but the batches that were
+ * already handed to the sink are not undone. Either way, the import only returns or throws once every worker has
+ * stopped, so the sink and the listener are not called after that.
+ */
+public final class CsvImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    private static final long MAX_CHUNK_SIZE = 64L << 20;
+    private static final int SCAN_BUFFER_SIZE = 8_192;
+
+    private final int parallelism;
+    private final int batchSize;
+    private final Duration progressInterval;
+
+    public CsvImporter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE, Duration.ofSeconds(1));
+    }
+
+    public CsvImporter(int parallelism, int batchSize, Duration progressInterval) {
+        if (parallelism <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("The parallelism and the batch size must be positive: "
+                    + parallelism + ", " + batchSize);
+        }
+        if (progressInterval.isNegative() || progressInterval.isZero()) {
+            throw new IllegalArgumentException("The progress interval must be positive: " + progressInterval);
+        }
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Imports every non-blank line of the file, after the first one when the file has a header, and returns the
+     * final progress.
+     */
+    public <T> ImportProgress importFile(Path file, boolean header, RecordMapper<T> mapper, Consumer<List<T>> sink,
+                                         Consumer<ImportProgress> listener) throws IOException {
+        long start = System.nanoTime();
+        LongAdder rows = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            long[] bounds = splitAtLines(channel, size, header);
+            bytes.add(bounds[0]);
+            ExecutorService workers = Executors.newFixedThreadPool(parallelism, daemonThreads("csv-import-"));
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(
+                    daemonThreads("csv-import-progress-"));
+            try {
+                long interval = progressInterval.toNanos();
+                reporter.scheduleAtFixedRate(() -> listener.accept(
+                                new ImportProgress(rows.sum(), bytes.sum(), size, System.nanoTime() - start)),
+                        interval, interval, TimeUnit.NANOSECONDS);
+                List<Future<?>> chunks = new ArrayList<>(bounds.length - 1);
+                for (int i = 0; i < bounds.length - 1; i++) {
+                    long chunkStart = bounds[i];
+                    long chunkEnd = bounds[i + 1];
+                    chunks.add(workers.submit(() -> {
+                        importChunk(channel, chunkStart, chunkEnd, mapper, sink, rows, bytes);
+                        return null;
+                    }));
+                }
+                awaitAll(chunks);
+            } finally {
+                workers.shutdownNow();
+                reporter.shutdownNow();
+                awaitTermination(workers, reporter);
+            }
+        }
+        ImportProgress progress = new ImportProgress(rows.sum(), bytes.sum(), size, System.nanoTime() - start);
+        listener.accept(progress);
+        return progress;
+    }
+
+    /**
+     * Returns the offsets where the chunks start, and the size of the file at the end. There are a few chunks per
+     * worker, so a slow chunk doesn't leave the other workers idle at the end of the import, and no chunk is bigger
+     * than MAX_CHUNK_SIZE unless it has a longer line.
+     */
+    private long[] splitAtLines(FileChannel channel, long size, boolean header) throws IOException {
+        long first = header ? nextLineStart(channel, 0, size) : 0;
+        long chunks = Math.max(parallelism * 4L, (size - first + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        long chunkSize = Math.max(1, (size - first + chunks - 1) / chunks);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(first);
+        long bound = first;
+        while (bound < size) {
+            bound = nextLineStart(channel, Math.min(size, bound + chunkSize) - 1, size);
+            bounds.add(bound);
+        }
+        if (bounds.size() == 1) {
+            bounds.add(size);
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Returns the offset after the first line break at or after the position, or the size of the file.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private <T> void importChunk(FileChannel channel, long chunkStart, long chunkEnd, RecordMapper<T> mapper,
+                                 Consumer<List<T>> sink, LongAdder rows, LongAdder bytes) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart);
+        CsvRecord record = new CsvRecord(buffer, chunkStart);
+        List<T> batch = new ArrayList<>(batchSize);
+        int limit = buffer.limit();
+        int reported = 0;
+        int position = 0;
+        while (position < limit && !Thread.currentThread().isInterrupted()) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (!isBlank(buffer, position, lineEnd)) {
+                record.parse(position, lineEnd);
+                try {
+                    batch.add(mapper.map(record));
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException("ERROR mapping the line at byte " + record.offset() + ": "
+                            + e.getMessage(), e);
+                }
+            }
+            position = lineEnd + 1;
+            if (batch.size() == batchSize) {
+                sink.accept(batch);
+                rows.add(batch.size());
+                bytes.add(Math.min(position, limit) - reported);
+                reported = Math.min(position, limit);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+            rows.add(batch.size());
+        }
+        bytes.add(limit - reported);
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits for every chunk, and cancels the rest when one of them fails.
+     */
+    private static void awaitAll(List<Future<?>> chunks) throws IOException {
+        try {
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+        } catch (InterruptedException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The import was interrupted.");
+        } catch (ExecutionException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * The workers stop at the next line once they are interrupted, but a sink can take longer, so this waits for as
+     * long as it takes. An interrupt stops the wait, and the interrupt status is kept for the caller.
+     */
+    private static void awaitTermination(ExecutorService... executors) {
+        try {
+            for (ExecutorService executor : executors) {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
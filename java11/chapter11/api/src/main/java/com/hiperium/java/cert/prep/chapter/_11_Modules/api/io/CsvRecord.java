@@ -0,0 +1,179 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Fields of one CSV line, read in place from the mapped bytes of the file. The line is only split into the offsets of
+ * its fields, so a field that the mapper doesn't read is never decoded, and the numbers are parsed from the bytes
+ * without creating a String.
+ *
+ * The fields are separated by commas, and a field can be enclosed in double quotes to hold commas, with two double
+ * quotes for each double quote of the value. A quoted field can't hold a line break, and it must end at its closing
+ * quote, so a field like "ab"c is rejected.
+ */
+public final class CsvRecord {
+
+    private static final byte COMMA = ',';
+    private static final byte QUOTE = '"';
+
+    private final ByteBuffer buffer;
+    private final long bufferOffset;
+    private int lineStart;
+    private int count;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] escaped = new boolean[8];
+    private byte[] scratch = new byte[256];
+
+    CsvRecord(ByteBuffer buffer, long bufferOffset) {
+        this.buffer = buffer;
+        this.bufferOffset = bufferOffset;
+    }
+
+    /**
+     * Splits the line between the two positions of the buffer, without its line break.
+     */
+    void parse(int from, int to) {
+        lineStart = from;
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        count = 0;
+        int position = from;
+        while (true) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                escaped = Arrays.copyOf(escaped, count * 2);
+            }
+            if (position < to && buffer.get(position) == QUOTE) {
+                position = parseQuoted(position + 1, to);
+                if (position < to && buffer.get(position) != COMMA) {
+                    throw new IllegalArgumentException("The quoted field at byte " + (bufferOffset + starts[count] - 1)
+                            + " has characters after its closing quote.");
+                }
+            } else {
+                starts[count] = position;
+                while (position < to && buffer.get(position) != COMMA) {
+                    position++;
+                }
+                ends[count] = position;
+                escaped[count] = false;
+            }
+            count++;
+            if (position >= to) {
+                return;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Returns the position after the closing quote.
+     */
+    private int parseQuoted(int position, int to) {
+        starts[count] = position;
+        escaped[count] = false;
+        while (position < to) {
+            if (buffer.get(position) == QUOTE) {
+                if (position + 1 < to && buffer.get(position + 1) == QUOTE) {
+                    escaped[count] = true;
+                    position += 2;
+                    continue;
+                }
+                ends[count] = position;
+                return position + 1;
+            }
+            position++;
+        }
+        throw new IllegalArgumentException("The quoted field at byte " + (bufferOffset + starts[count] - 1)
+                + " is not closed.");
+    }
+
+    public int fieldCount() {
+        return count;
+    }
+
+    /**
+     * Returns the offset of the line in the file.
+     */
+    public long offset() {
+        return bufferOffset + lineStart;
+    }
+
+    public boolean isEmpty(int field) {
+        checkField(field);
+        return starts[field] == ends[field];
+    }
+
+    /**
+     * Decodes the field as UTF-8.
+     */
+    public String getString(int field) {
+        checkField(field);
+        int length = ends[field] - starts[field];
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(starts[field], scratch, 0, length);
+        if (escaped[field]) {
+            int unescaped = 0;
+            for (int i = 0; i < length; i++) {
+                scratch[unescaped++] = scratch[i];
+                if (scratch[i] == QUOTE) {
+                    i++;
+                }
+            }
+            length = unescaped;
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    public int getInt(int field) {
+        long value = getLong(field);
+        if (value != (int) value) {
+            throw new NumberFormatException("The field " + field + " of the line at byte " + offset()
+                    + " is out of the int range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses the digits of the field, with an optional sign, straight from the bytes.
+     */
+    public long getLong(int field) {
+        checkField(field);
+        int position = starts[field];
+        int end = ends[field];
+        boolean negative = position < end && buffer.get(position) == '-';
+        if (negative || (position < end && buffer.get(position) == '+')) {
+            position++;
+        }
+        if (position == end || end - position > 18) {
+            throw notANumber(field);
+        }
+        long value = 0;
+        for (; position < end; position++) {
+            int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                throw notANumber(field);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private NumberFormatException notANumber(int field) {
+        return new NumberFormatException("The field " + field + " of the line at byte " + offset()
+                + " is not a number: " + getString(field));
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= count) {
+            throw new IndexOutOfBoundsException("The line at byte " + offset() + " has " + count
+                    + " fields, there is no field " + field + ".");
+        }
+    }
+}
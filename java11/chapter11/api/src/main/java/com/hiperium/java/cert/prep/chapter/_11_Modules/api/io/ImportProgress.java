@@ -0,0 +1,59 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.io;
+
+import java.time.Duration;
+
+/**
+ * Point in time copy of the rows and the bytes that a CsvImporter has read, and the time it took.
+ */
+public final class ImportProgress {
+
+    private final long rows;
+    private final long bytes;
+    private final long totalBytes;
+    private final long elapsedNanos;
+
+    ImportProgress(long rows, long bytes, long totalBytes, long elapsedNanos) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.totalBytes = totalBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the part of the file that has been read, from 0 to 1.
+     */
+    public double getFractionDone() {
+        return totalBytes == 0 ? 1 : (double) bytes / totalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportProgress{" +
+                "rows=" + rows +
+                ", bytes=" + bytes +
+                ", totalBytes=" + totalBytes +
+                ", elapsedMillis=" + elapsedNanos / 1_000_000 +
+                ", rowsPerSecond=" + Math.round(getRowsPerSecond()) +
+                '}';
+    }
+}
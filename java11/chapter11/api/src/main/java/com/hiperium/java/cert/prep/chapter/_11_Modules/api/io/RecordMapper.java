@@ -0,0 +1,10 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.io;
+
+/**
+ * Builds an object from the fields of a CSV line. The record is reused for the next line, so the mapper must not keep
+ * it.
+ */
+@FunctionalInterface
+public interface RecordMapper<T> {
+    T map(CsvRecord record);
+}
@@ -0,0 +1,117 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.query;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.entity.Actor;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Immutable query over several fields of the actors: an exact role, a name prefix and a personage prefix, where a null
+ * criterion matches every actor, plus an optional predicate for anything else. The providers can answer the field
+ * criteria with their indexes, and then check the rest of the query on the candidates, so the predicate should only
+ * hold what the criteria can't express.
+ *
+ * The results are sorted by id, and hold up to "limit" actors.
+ */
+public final class ActorQuery {
+
+    private static final ActorQuery ALL = new ActorQuery(null, null, null, null, Integer.MAX_VALUE);
+
+    private final String role;
+    private final String namePrefix;
+    private final String personagePrefix;
+    private final Predicate<Actor> filter;
+    private final int limit;
+
+    private ActorQuery(String role, String namePrefix, String personagePrefix, Predicate<Actor> filter, int limit) {
+        this.role = role;
+        this.namePrefix = namePrefix;
+        this.personagePrefix = personagePrefix;
+        this.filter = filter;
+        this.limit = limit;
+    }
+
+    public static ActorQuery all() {
+        return ALL;
+    }
+
+    /**
+     * Matches the actors with the role of the example, and whose name and personage start with the ones of the
+     * example. The null fields of the example match every actor, and its id is ignored.
+     */
+    public static ActorQuery byExample(Actor example) {
+        return new ActorQuery(example.role, example.name, example.personage, null, Integer.MAX_VALUE);
+    }
+
+    public ActorQuery withRole(String role) {
+        return new ActorQuery(role, namePrefix, personagePrefix, filter, limit);
+    }
+
+    public ActorQuery withNamePrefix(String namePrefix) {
+        return new ActorQuery(role, namePrefix, personagePrefix, filter, limit);
+    }
+
+    public ActorQuery withPersonagePrefix(String personagePrefix) {
+        return new ActorQuery(role, namePrefix, personagePrefix, filter, limit);
+    }
+
+    /**
+     * Adds a predicate that the actors must match too, besides the current one.
+     */
+    public ActorQuery withFilter(Predicate<Actor> filter) {
+        Objects.requireNonNull(filter, "The filter is required.");
+        return new ActorQuery(role, namePrefix, personagePrefix, this.filter == null ? filter : this.filter.and(filter),
+                limit);
+    }
+
+    public ActorQuery withLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("The query limit can't be negative: " + limit);
+        }
+        return new ActorQuery(role, namePrefix, personagePrefix, filter, limit);
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public String getPersonagePrefix() {
+        return personagePrefix;
+    }
+
+    /**
+     * Returns the predicate of the query, or null when it has none.
+     */
+    public Predicate<Actor> getFilter() {
+        return filter;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Checks every criterion of the query against the actor.
+     */
+    public boolean matches(Actor actor) {
+        return (role == null || role.equals(actor.role))
+                && (namePrefix == null || (actor.name != null && actor.name.startsWith(namePrefix)))
+                && (personagePrefix == null || actor.personage.startsWith(personagePrefix))
+                && (filter == null || filter.test(actor));
+    }
+
+    @Override
+    public String toString() {
+        return "ActorQuery{" +
+                "role='" + role + '\'' +
+                ", namePrefix='" + namePrefix + '\'' +
+                ", personagePrefix='" + personagePrefix + '\'' +
+                ", filter=" + (filter != null) +
+                ", limit=" + limit +
+                '}';
+    }
+}
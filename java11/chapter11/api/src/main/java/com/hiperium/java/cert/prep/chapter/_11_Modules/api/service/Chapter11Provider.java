@@ -0,0 +1,21 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Describes a service provider class, so the Chapter11ServiceLocator can choose among several providers of the same
+ * service without instantiating them. When more than one provider is available, the one with the highest priority is
+ * the default, and among the same priority, the first name in alphabetical order. The providers without this
+ * annotation have their simple class name and priority 0.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Chapter11Provider {
+    String name();
+    int priority() default 0;
+}
@@ -1,22 +1,160 @@
 package com.hiperium.java.cert.prep.chapter._11_Modules.api.service;
 
 import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11AsyncAPI;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
 import java.util.ServiceLoader;
 
+/**
+ * Registry of the Chapter11API and Chapter11AsyncAPI providers. The "ServiceLoader.stream()" method lets us read the
+ * provider classes, and their Chapter11Provider annotation, without instantiating them. So nothing is loaded when this
+ * class is initialized, every service type is discovered on its first lookup, and every provider is instantiated on
+ * its first use and cached after that.
+ */
 public final class Chapter11ServiceLocator {
 
-    private static final ServiceLoader<Chapter11API> loader = ServiceLoader.load(Chapter11API.class);
-    private static final Chapter11API api;
-
-    static {
-        api = loader.findFirst().orElseThrow(() -> new IllegalStateException("API Service Implementation not found."));
-    }
-
     private Chapter11ServiceLocator() {
         // Nothing to implement
     }
 
     public static Chapter11API getApiImpl() {
-        return api;
+        return ApiRegistryHolder.REGISTRY.getDefault();
+    }
+
+    public static Chapter11API getApiImpl(String name) {
+        return ApiRegistryHolder.REGISTRY.get(name);
+    }
+
+    public static List<String> getApiImplNames() {
+        return ApiRegistryHolder.REGISTRY.names();
+    }
+
+    public static Chapter11AsyncAPI getAsyncApiImpl() {
+        return AsyncApiRegistryHolder.REGISTRY.getDefault();
+    }
+
+    public static Chapter11AsyncAPI getAsyncApiImpl(String name) {
+        return AsyncApiRegistryHolder.REGISTRY.get(name);
+    }
+
+    private static final class ApiRegistryHolder {
+        private static final Registry<Chapter11API> REGISTRY =
+                new Registry<>(ServiceLoader.load(Chapter11API.class), "API");
+    }
+
+    private static final class AsyncApiRegistryHolder {
+        private static final Registry<Chapter11AsyncAPI> REGISTRY =
+                new Registry<>(ServiceLoader.load(Chapter11AsyncAPI.class), "Async API");
+    }
+
+    /**
+     * The annotations are only read when the registry has to choose among several providers, or when a provider is
+     * requested by name. The providers are sorted by priority, and by name when they have the same priority, since
+     * the ServiceLoader doesn't define the order of the providers of different modules. Loops are used instead of
+     * streams because this code runs on the startup path.
+     */
+    private static final class Registry<S> {
+
+        private final List<Entry<S>> entries = new ArrayList<>();
+        private final String serviceName;
+        private volatile boolean sorted;
+
+        private Registry(ServiceLoader<S> loader, String serviceName) {
+            this.serviceName = serviceName;
+            Iterator<ServiceLoader.Provider<S>> providers = loader.stream().iterator();
+            while (providers.hasNext()) {
+                entries.add(new Entry<>(providers.next()));
+            }
+        }
+
+        private S getDefault() {
+            if (entries.isEmpty()) {
+                throw new IllegalStateException(serviceName + " Service Implementation not found.");
+            }
+            return sortedEntries().get(0).get();
+        }
+
+        private S get(String name) {
+            for (Entry<S> entry : sortedEntries()) {
+                if (entry.name().equals(name)) {
+                    return entry.get();
+                }
+            }
+            throw new IllegalStateException(serviceName + " Service Implementation not found: " + name);
+        }
+
+        private List<String> names() {
+            List<String> names = new ArrayList<>();
+            for (Entry<S> entry : sortedEntries()) {
+                names.add(entry.name());
+            }
+            return names;
+        }
+
+        private List<Entry<S>> sortedEntries() {
+            if (!sorted) {
+                synchronized (this) {
+                    if (!sorted) {
+                        if (entries.size() > 1) {
+                            entries.sort(Comparator.comparingInt(Entry<S>::priority).reversed()
+                                    .thenComparing(Entry::name));
+                        }
+                        sorted = true;
+                    }
+                }
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * A provider can look up another provider while it is instantiated, like a decorator does with the provider that
+     * it wraps. So every entry has its own lock instead of a lock shared by the whole registry.
+     */
+    private static final class Entry<S> {
+
+        private final ServiceLoader.Provider<S> provider;
+        private volatile Chapter11Provider annotation;
+        private volatile S instance;
+
+        private Entry(ServiceLoader.Provider<S> provider) {
+            this.provider = provider;
+        }
+
+        private String name() {
+            return Objects.isNull(annotation()) ? provider.type().getSimpleName() : annotation().name();
+        }
+
+        private int priority() {
+            return Objects.isNull(annotation()) ? 0 : annotation().priority();
+        }
+
+        private Chapter11Provider annotation() {
+            Chapter11Provider result = annotation;
+            if (Objects.isNull(result)) {
+                result = provider.type().getAnnotation(Chapter11Provider.class);
+                annotation = result;
+            }
+            return result;
+        }
+
+        private S get() {
+            S result = instance;
+            if (Objects.isNull(result)) {
+                synchronized (this) {
+                    result = instance;
+                    if (Objects.isNull(result)) {
+                        result = provider.get();
+                        instance = result;
+                    }
+                }
+            }
+            return result;
+        }
     }
 }
@@ -0,0 +1,46 @@
+package com.hiperium.java.cert.prep.chapter._11_Modules.api.text;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Folds a text to a key that ignores the case and the accents, so "José", "JOSE" and "jose" have the same key. The
+ * keys are compared with String.compareTo, which only compares the chars, so an index of keys can be sorted and
+ * searched without a Collator.
+ *
+ * The text is decomposed with the NFKD form, which splits the accented letters into a base letter and combining marks,
+ * and the compatibility chars like the ligatures into their plain letters. The combining marks are dropped, and the
+ * remaining letters are upper-cased and then lower-cased, so "ß" becomes "ss" like "SS" does.
+ */
+public final class TextFolding {
+
+    private TextFolding() {
+        // Nothing to implement
+    }
+
+    /**
+     * Every prefix of a text folds to a prefix of the key of the whole text, so a prefix lookup can compare the key
+     * of the prefix with the keys of the index.
+     */
+    public static String fold(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return foldUnicode(text);
+            }
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static String foldUnicode(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder letters = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                letters.append(c);
+            }
+        }
+        // The lower case of a final sigma depends on the next char, which a prefix doesn't have.
+        return letters.toString().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT).replace('\u03c2', '\u03c3');
+    }
+}
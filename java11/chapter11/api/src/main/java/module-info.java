@@ -2,5 +2,11 @@ module com.hiperium.java.cert.prep.chapter.eleven.api { // module name should av
     exports com.hiperium.java.cert.prep.chapter._11_Modules.api;
     exports com.hiperium.java.cert.prep.chapter._11_Modules.api.entity;
     exports com.hiperium.java.cert.prep.chapter._11_Modules.api.service;
+    exports com.hiperium.java.cert.prep.chapter._11_Modules.api.filter;
+    exports com.hiperium.java.cert.prep.chapter._11_Modules.api.text;
+    exports com.hiperium.java.cert.prep.chapter._11_Modules.api.io;
+    exports com.hiperium.java.cert.prep.chapter._11_Modules.api.query;
+    exports com.hiperium.java.cert.prep.chapter._11_Modules.api.event;
     uses com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11API;  // Must be required by Service Loader.
+    uses com.hiperium.java.cert.prep.chapter._11_Modules.api.Chapter11AsyncAPI;
 }
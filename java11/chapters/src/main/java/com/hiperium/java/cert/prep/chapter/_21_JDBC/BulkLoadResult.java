@@ -0,0 +1,65 @@
+package com.hiperium.java.cert.prep.chapter._21_JDBC;
+
+import java.time.Duration;
+
+/**
+ * Rows, batches and transactions that a ZooBulkLoader committed, and the time it took.
+ */
+public final class BulkLoadResult {
+
+    private final long rows;
+    private final long batches;
+    private final long commits;
+    private final long retries;
+    private final long elapsedNanos;
+
+    BulkLoadResult(long rows, long batches, long commits, long retries, long elapsedNanos) {
+        this.rows = rows;
+        this.batches = batches;
+        this.commits = commits;
+        this.retries = retries;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of "executeBatch()" calls, including the ones sent again by a retry.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getCommits() {
+        return commits;
+    }
+
+    /**
+     * Returns the number of transactions that failed and were sent again.
+     */
+    public long getRetries() {
+        return retries;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkLoadResult{" +
+                "rows=" + rows +
+                ", batches=" + batches +
+                ", commits=" + commits +
+                ", retries=" + retries +
+                ", elapsedMillis=" + elapsedNanos / 1_000_000 +
+                ", rowsPerSecond=" + Math.round(getRowsPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,37 @@
+package com.hiperium.java.cert.prep.chapter._21_JDBC;
+
+/**
+ * Slot and table size arithmetic shared by the open addressing maps of int keys.
+ */
+final class IntHash {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private IntHash() {
+    }
+
+    /**
+     * Returns the home slot of the key. The Fibonacci multiplier spreads keys that share their low bits, like
+     * sequential ids, over the whole table.
+     */
+    static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    /**
+     * Returns the smallest power of two that keeps the entries at most 3/4 of the table.
+     */
+    static int tableSize(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && expectedSize > maxSize(capacity)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int maxSize(int capacity) {
+        return capacity - (capacity >>> 2);
+    }
+}
@@ -0,0 +1,223 @@
+package com.hiperium.java.cert.prep.chapter._21_JDBC;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Map of int keys to int values, like "names.id" to "names.species_id", or a species to its count of names. It has
+ * the open addressing layout of IntObjectMap, with the values in an int array, so an entry costs 11 to 22 bytes,
+ * against about 70 bytes for a HashMap<Integer, Integer>, and nothing is boxed.
+ *
+ * As the values are primitives, a missing key is told apart with "containsKey()" or the default of "getOrDefault()".
+ * The map is not thread-safe.
+ */
+public final class IntIntMap {
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public IntIntMap() {
+        this(0);
+    }
+
+    /**
+     * Creates a map that holds the expected number of entries without growing.
+     */
+    public IntIntMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size can't be negative: " + expectedSize);
+        }
+        allocate(IntHash.tableSize(expectedSize));
+    }
+
+    /**
+     * Reads the remaining rows of the ResultSet, and maps the int of the key column to the int of the value column.
+     */
+    public static IntIntMap collect(ResultSet rs, String keyColumn, String valueColumn) throws SQLException {
+        IntIntMap map = new IntIntMap();
+        int keyIndex = rs.findColumn(keyColumn);
+        int valueIndex = rs.findColumn(valueColumn);
+        while (rs.next()) {
+            map.put(rs.getInt(keyIndex), rs.getInt(valueIndex));
+        }
+        return map;
+    }
+
+    /**
+     * Maps every key of the stream to the value of the function. A parallel stream fills a map per thread and merges
+     * them.
+     */
+    public static IntIntMap collect(IntStream keys, IntUnaryOperator valueFunction) {
+        return keys.collect(IntIntMap::new, (map, key) -> map.put(key, valueFunction.applyAsInt(key)),
+                IntIntMap::putAll);
+    }
+
+    /**
+     * Counts how many times every key appears in the stream.
+     */
+    public static IntIntMap counting(IntStream keys) {
+        return keys.collect(IntIntMap::new, (map, key) -> map.addTo(key, 1), (map, other) ->
+                other.forEach(map::addTo));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return key == 0 ? hasZeroKey : keys[indexOf(key)] != 0;
+    }
+
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int index = indexOf(key);
+        return keys[index] == 0 ? defaultValue : values[index];
+    }
+
+    public void put(int key, int value) {
+        if (key == 0) {
+            zeroValue = value;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            return;
+        }
+        int index = indexOf(key);
+        values[index] = value;
+        if (keys[index] == 0) {
+            keys[index] = key;
+            grow();
+        }
+    }
+
+    /**
+     * Adds the delta to the value of the key, which starts at 0, and returns the new value.
+     */
+    public int addTo(int key, int delta) {
+        if (key == 0) {
+            put(0, getOrDefault(0, 0) + delta);
+            return zeroValue;
+        }
+        int index = indexOf(key);
+        int value = values[index] += delta;
+        if (keys[index] == 0) {
+            keys[index] = key;
+            grow();
+        }
+        return value;
+    }
+
+    public void putAll(IntIntMap other) {
+        other.forEach(this::put);
+    }
+
+    /**
+     * Removes the key, and returns whether it was in the map.
+     */
+    public boolean remove(int key) {
+        if (key == 0) {
+            boolean removed = hasZeroKey;
+            hasZeroKey = false;
+            zeroValue = 0;
+            size -= removed ? 1 : 0;
+            return removed;
+        }
+        int index = indexOf(key);
+        if (keys[index] == 0) {
+            return false;
+        }
+        size--;
+        // Moves back the next keys of the cluster that can't be found past the free slot any more.
+        int free = index;
+        for (int next = (index + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = IntHash.slot(keys[next], mask);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        keys[free] = 0;
+        values[free] = 0;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, 0);
+        hasZeroKey = false;
+        zeroValue = 0;
+        size = 0;
+    }
+
+    public void forEach(EntryConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=')
+                .append(value));
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Returns the slot of the key, or the free slot where it would go. A free slot always has a value of 0.
+     */
+    private int indexOf(int key) {
+        int index = IntHash.slot(key, mask);
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        if (++size > IntHash.maxSize(keys.length)) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(keys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int index = indexOf(oldKeys[i]);
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        void accept(int key, int value);
+    }
+}
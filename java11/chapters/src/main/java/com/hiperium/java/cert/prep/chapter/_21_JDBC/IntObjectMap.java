@@ -0,0 +1,227 @@
+package com.hiperium.java.cert.prep.chapter._21_JDBC;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Map of int keys to objects, for rows keyed by an integer column like "names.id". A HashMap<Integer, V> keeps an
+ * Integer and an entry object for every key, about 56 bytes besides the value. This map keeps the keys in an int array
+ * and the values in a parallel array, with open addressing and linear probing, so an entry costs 11 to 22 bytes with
+ * compressed references, and neither a put nor a get boxes the key.
+ *
+ * The capacity is a power of two that keeps the table at most 3/4 full. The key 0 marks the free slots, so its value
+ * is kept apart. Null values are not allowed, so "get()" returns null only for a missing key. The map is not
+ * thread-safe.
+ */
+public final class IntObjectMap<V> {
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private boolean hasZeroKey;
+    private Object zeroValue;
+
+    public IntObjectMap() {
+        this(0);
+    }
+
+    /**
+     * Creates a map that holds the expected number of entries without growing.
+     */
+    public IntObjectMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size can't be negative: " + expectedSize);
+        }
+        allocate(IntHash.tableSize(expectedSize));
+    }
+
+    /**
+     * Reads the remaining rows of the ResultSet, and maps the int of the key column to the object of the row mapper.
+     */
+    public static <V> IntObjectMap<V> collect(ResultSet rs, String keyColumn, RowMapper<V> mapper)
+            throws SQLException {
+        IntObjectMap<V> map = new IntObjectMap<>();
+        int keyIndex = rs.findColumn(keyColumn);
+        while (rs.next()) {
+            map.put(rs.getInt(keyIndex), mapper.map(rs));
+        }
+        return map;
+    }
+
+    /**
+     * Maps every key of the stream to the value of the function. A parallel stream fills a map per thread and merges
+     * them.
+     */
+    public static <V> IntObjectMap<V> collect(IntStream keys, IntFunction<? extends V> valueFunction) {
+        return keys.collect(IntObjectMap::new, (map, key) -> map.put(key, valueFunction.apply(key)),
+                IntObjectMap::putAll);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return key == 0 ? hasZeroKey : keys[indexOf(key)] != 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == 0) {
+            return (V) zeroValue;
+        }
+        return (V) values[indexOf(key)];
+    }
+
+    public V getOrDefault(int key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Returns the previous value of the key, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("The map doesn't allow null values, the key is " + key);
+        }
+        if (key == 0) {
+            V previous = (V) zeroValue;
+            zeroValue = value;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            return previous;
+        }
+        int index = indexOf(key);
+        V previous = (V) values[index];
+        values[index] = value;
+        if (keys[index] == 0) {
+            keys[index] = key;
+            if (++size > IntHash.maxSize(keys.length)) {
+                rehash(keys.length * 2);
+            }
+        }
+        return previous;
+    }
+
+    public void putAll(IntObjectMap<? extends V> other) {
+        if (other.hasZeroKey) {
+            put(0, other.get(0));
+        }
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != 0) {
+                put(other.keys[i], other.get(other.keys[i]));
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the removed key, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == 0) {
+            V previous = (V) zeroValue;
+            if (hasZeroKey) {
+                hasZeroKey = false;
+                zeroValue = null;
+                size--;
+            }
+            return previous;
+        }
+        int index = indexOf(key);
+        if (keys[index] == 0) {
+            return null;
+        }
+        V previous = (V) values[index];
+        size--;
+        // Moves back the next keys of the cluster that can't be found past the free slot any more.
+        int free = index;
+        for (int next = (index + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = IntHash.slot(keys[next], mask);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        keys[free] = 0;
+        values[free] = null;
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        if (hasZeroKey) {
+            action.accept(0, (V) zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=')
+                .append(value));
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Returns the slot of the key, or the free slot where it would go.
+     */
+    private int indexOf(int key) {
+        int index = IntHash.slot(key, mask);
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(int key, V value);
+    }
+}
@@ -1,15 +1,19 @@
 package com.hiperium.java.cert.prep.chapter._21_JDBC;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.stream.Stream;
 
 public class JDBCInterfaces {
 
     public static final String JDBC_DERBY_CONN_URL = "jdbc:derby:zoo";
     public static final String JDBC_HSQL_CONN_URL = "jdbc:hsqldb:file:zoo";
 
+    // Opening a connection costs much more than a query on these small tables, so every method borrows a pooled one.
+    public static final DataSource DERBY_DATA_SOURCE = new PooledDataSource(JDBC_DERBY_CONN_URL);
+    public static final DataSource HSQL_DATA_SOURCE = new PooledDataSource(JDBC_HSQL_CONN_URL);
+
     public static void main(String[] args) {
         usingAllInterfaces();
         modifyingData();
@@ -18,13 +22,14 @@ public class JDBCInterfaces {
         bulkUpdate();
         readingResultSet();
         gettingDataFromColumn();
+        streamingResultSet();
         usingBindVariables();
         callableStatements();
     }
 
     private static void usingAllInterfaces() {
         System.out.println("*** Using All Interfaces ***");
-        try (var conn = DriverManager.getConnection(JDBC_DERBY_CONN_URL);
+        try (var conn = DERBY_DATA_SOURCE.getConnection();
              var ps = conn.prepareStatement("SELECT name FROM names");
              var rs = ps.executeQuery()) {
             while (rs.next())
@@ -43,7 +48,7 @@ public class JDBCInterfaces {
      */
     private static void modifyingData() {
         System.out.println("*** Modifying Data ***");
-        try (var conn = DriverManager.getConnection(JDBC_DERBY_CONN_URL)) {
+        try (var conn = DERBY_DATA_SOURCE.getConnection()) {
             var insertSQL = "INSERT INTO exhibits VALUES (10, 'Deer', 3)";
             try (var ps = conn.prepareStatement(insertSQL)){
                 int result = ps.executeUpdate();
@@ -87,7 +92,7 @@ public class JDBCInterfaces {
     private static void readingDataWithExecute() {
         System.out.println("*** Reading Data with Execute() ***");
         var sql = "SELECT * FROM exhibits";
-        try (var conn = DriverManager.getConnection(JDBC_DERBY_CONN_URL);
+        try (var conn = DERBY_DATA_SOURCE.getConnection();
              var ps = conn.prepareStatement(sql)) {
             boolean isResultSet = ps.execute();
             if (isResultSet) {
@@ -107,7 +112,7 @@ public class JDBCInterfaces {
 
     private static void workingWithParameters() {
         System.out.println("*** Working with Parameters ***");
-        try (var conn = DriverManager.getConnection(JDBC_DERBY_CONN_URL)) {
+        try (var conn = DERBY_DATA_SOURCE.getConnection()) {
             var sql1 = "INSERT INTO exhibits VALUES(?,?,?)";
             try (var ps = conn.prepareStatement(sql1)){
                 ps.setInt(1, 3);
@@ -141,7 +146,7 @@ public class JDBCInterfaces {
 
     private static void bulkUpdate() {
         System.out.println("*** Bulk Update ***");
-        try (var conn = DriverManager.getConnection(JDBC_DERBY_CONN_URL)) {
+        try (var conn = DERBY_DATA_SOURCE.getConnection()) {
             register(conn, 100, 3, "Amin", "Samira", "Viper", "Hansel", "Gretel");
         } catch (SQLException e) {
             System.out.println("ERROR accessing to derby: " + e.getMessage());
@@ -180,8 +185,9 @@ public class JDBCInterfaces {
         System.out.println("*** Reading Result Set ***");
 
         String sql1 = "SELECT id, name FROM names";
-        Map<Integer, String> idToNameMap = new HashMap<>();
-        try (var conn = DriverManager.getConnection(JDBC_DERBY_CONN_URL);
+        // Unlike a Map<Integer, String>, the IntObjectMap doesn't box the ids, which matters for millions of rows.
+        IntObjectMap<String> idToNameMap = new IntObjectMap<>();
+        try (var conn = DERBY_DATA_SOURCE.getConnection();
              var ps = conn.prepareStatement(sql1);
              var rs = ps.executeQuery()) {
             while(rs.next()) {
@@ -197,7 +203,7 @@ public class JDBCInterfaces {
         }
 
         String sql2 = "SELECT COUNT(*) FROM names";
-        try (var conn = DriverManager.getConnection(JDBC_DERBY_CONN_URL);
+        try (var conn = DERBY_DATA_SOURCE.getConnection();
              var ps = conn.prepareStatement(sql2);
              var rs = ps.executeQuery()) {
             if(rs.next()) {
@@ -236,7 +242,7 @@ public class JDBCInterfaces {
     private static void gettingDataFromColumn() {
         System.out.println("*** Getting Data from Column ***");
         String sql = "SELECT id, name FROM names";
-        try (var conn = DriverManager.getConnection(JDBC_DERBY_CONN_URL);
+        try (var conn = DERBY_DATA_SOURCE.getConnection();
              var ps = conn.prepareStatement(sql);
              var rs = ps.executeQuery()) {
             while(rs.next()) {
@@ -257,6 +263,25 @@ public class JDBCInterfaces {
             System.out.println("SQL Error Code: " + e.getErrorCode());
         }
     }
+
+    /**
+     * The methods above read the whole ResultSet before using it. "StreamingQuery" maps the rows while a Stream pulls
+     * them, so a scan of a large table doesn't need the memory of a Map with all its rows. The stream must be closed,
+     * because it holds the connection until then.
+     */
+    private static void streamingResultSet() {
+        System.out.println("*** Streaming Result Set ***");
+        String sql = "SELECT id, name FROM names WHERE species_id = ?";
+        try (Stream<String> names = StreamingQuery.stream(DERBY_DATA_SOURCE, sql, 100,
+                rs -> rs.getInt("id") + ": " + rs.getString("name"), 1)) {
+            names.limit(10).forEach(System.out::println);
+        } catch (SQLException e) {
+            System.out.println("ERROR streaming 'names' data: " + e.getMessage());
+            System.out.println("SQL State: " + e.getSQLState());
+            System.out.println("SQL Error Code: " + e.getErrorCode());
+        }
+    }
+
     /**
      * We've been creating the PreparedStatement and ResultSet in the same try‐with‐resources statement. This doesn't
      * work if you have bind variables because they need to be set in between. Luckily, we can nest try‐with‐resources
@@ -265,7 +290,7 @@ public class JDBCInterfaces {
     private static void usingBindVariables() {
         System.out.println("*** Using Bind Variables ***");
         String sql = "SELECT id FROM names WHERE name = ?";
-        try (var conn = DriverManager.getConnection(JDBC_DERBY_CONN_URL);
+        try (var conn = DERBY_DATA_SOURCE.getConnection();
              var ps = conn.prepareStatement(sql)) {
             ps.setString(1, "Emma");
             try (var rs = ps.executeQuery()) {
@@ -283,7 +308,7 @@ public class JDBCInterfaces {
 
     private static void callableStatements()  {
         System.out.println("*** Calling CallableStatement ***");
-        try (var conn = DriverManager.getConnection(JDBC_HSQL_CONN_URL)) {
+        try (var conn = HSQL_DATA_SOURCE.getConnection()) {
             System.out.println("Reading names");
             String sql1 = "{call read_e_names()}";
             try (var cs = conn.prepareCall(sql1)){
@@ -0,0 +1,114 @@
+package com.hiperium.java.cert.prep.chapter._21_JDBC;
+
+import java.time.Duration;
+
+/**
+ * Point in time copy of the counters of a PooledDataSource.
+ */
+public final class PoolMetrics {
+
+    private final int active;
+    private final int idle;
+    private final long borrows;
+    private final long waits;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long timeouts;
+    private final long leaks;
+    private final long statementHits;
+    private final long statementMisses;
+
+    PoolMetrics(int active, int idle, long borrows, long waits, long totalWaitNanos, long maxWaitNanos, long timeouts,
+                long leaks, long statementHits, long statementMisses) {
+        this.active = active;
+        this.idle = idle;
+        this.borrows = borrows;
+        this.waits = waits;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.timeouts = timeouts;
+        this.leaks = leaks;
+        this.statementHits = statementHits;
+        this.statementMisses = statementMisses;
+    }
+
+    /**
+     * Returns the number of connections borrowed and not returned yet.
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Returns the number of open connections waiting in the pool.
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    public long getBorrows() {
+        return borrows;
+    }
+
+    /**
+     * Returns the number of borrows that found the pool exhausted and had to wait, including the ones that timed out.
+     */
+    public long getWaits() {
+        return waits;
+    }
+
+    public Duration getTotalWait() {
+        return Duration.ofNanos(totalWaitNanos);
+    }
+
+    public Duration getMaxWait() {
+        return Duration.ofNanos(maxWaitNanos);
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * Returns the number of connections reported as leaked, because they were held for longer than the leak
+     * detection threshold.
+     */
+    public long getLeaks() {
+        return leaks;
+    }
+
+    /**
+     * Returns the number of prepared statements taken from the statement cache of their connection.
+     */
+    public long getStatementHits() {
+        return statementHits;
+    }
+
+    /**
+     * Returns the number of cacheable prepared statements that had to be prepared by the database.
+     */
+    public long getStatementMisses() {
+        return statementMisses;
+    }
+
+    public double getStatementHitRatio() {
+        long statements = statementHits + statementMisses;
+        return statements == 0 ? 0 : (double) statementHits / statements;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "active=" + active +
+                ", idle=" + idle +
+                ", borrows=" + borrows +
+                ", waits=" + waits +
+                ", totalWaitMillis=" + totalWaitNanos / 1_000_000 +
+                ", maxWaitMillis=" + maxWaitNanos / 1_000_000 +
+                ", timeouts=" + timeouts +
+                ", leaks=" + leaks +
+                ", statementHits=" + statementHits +
+                ", statementMisses=" + statementMisses +
+                '}';
+    }
+}
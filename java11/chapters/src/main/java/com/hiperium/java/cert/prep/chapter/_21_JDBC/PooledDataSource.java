@@ -0,0 +1,597 @@
+package com.hiperium.java.cert.prep.chapter._21_JDBC;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of the connections of a JDBC URL. The connections are opened on demand, up to "maxSize", and closing
+ * a borrowed connection returns it to the pool. When it returns, the statements created through it are closed, and an
+ * open transaction is rolled back.
+ *
+ * The fast path doesn't lock: a semaphore permit bounds the borrowed connections, and the idle ones wait in a
+ * concurrent deque, where the last one returned is the next one borrowed, so it is the one most likely to be still
+ * alive. Only a borrow that finds no permit parks, for up to "maxWait", and then fails with an
+ * SQLTransientConnectionException. An idle connection that has not been used for "validationInterval" is checked with
+ * "Connection.isValid()" before it is handed out, and replaced when it is broken.
+ *
+ * With a positive "leakThreshold", every borrow records its stack trace, and a background thread prints it for the
+ * connections held for longer than the threshold.
+ *
+ * Every connection keeps up to "statementCacheSize" of its prepared statements, keyed by their SQL, and evicts the
+ * least recently used one beyond that. Preparing a cached SQL again hands out the same statement, and closing it only
+ * clears its parameters, so the database doesn't parse and plan the SQL again. A statement that is still open when
+ * its SQL is prepared again, like in a nested loop, is not shared: the second one is prepared and closed as usual. The
+ * cache goes away with its connection, so a replaced connection prepares its statements again.
+ *
+ * A borrower that changes the max rows, the query timeout, the fetch size or direction, or the max field size of a
+ * cached statement gets them restored to the values they had when it was prepared. A statement whose escape
+ * processing, cursor name, poolable hint or close on completion was changed, which can't be read back, is closed
+ * instead, and its SQL is prepared again the next time.
+ */
+public class PooledDataSource implements DataSource, AutoCloseable {
+
+    public static final int DEFAULT_MAX_SIZE = 10;
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_VALIDATION_INTERVAL = Duration.ofSeconds(30);
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final String url;
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+    private final long validationIntervalNanos;
+    private final long leakThresholdNanos;
+    private final int statementCacheSize;
+    private final ConcurrentLinkedDeque<PhysicalConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final Set<Borrow> borrowed = ConcurrentHashMap.newKeySet();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitedNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final ScheduledExecutorService leakDetector;
+    private volatile boolean closed;
+
+    public PooledDataSource(String url) {
+        this(url, DEFAULT_MAX_SIZE, DEFAULT_MAX_WAIT, DEFAULT_VALIDATION_INTERVAL, Duration.ZERO);
+    }
+
+    public PooledDataSource(String url, int maxSize, Duration maxWait, Duration validationInterval,
+                            Duration leakThreshold) {
+        this(url, maxSize, maxWait, validationInterval, leakThreshold, DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * A statement cache size of 0 disables the cache.
+     */
+    public PooledDataSource(String url, int maxSize, Duration maxWait, Duration validationInterval,
+                            Duration leakThreshold, int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The pool size must be positive: " + maxSize);
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("The statement cache size can't be negative: " + statementCacheSize);
+        }
+        this.url = Objects.requireNonNull(url, "The JDBC URL is required.");
+        this.permits = new Semaphore(maxSize);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.validationIntervalNanos = validationInterval.toNanos();
+        this.leakThresholdNanos = leakThreshold.toNanos();
+        this.statementCacheSize = statementCacheSize;
+        if (leakThresholdNanos > 0) {
+            long period = Math.max(TimeUnit.MILLISECONDS.toNanos(10), leakThresholdNanos / 2);
+            leakDetector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "zoo-pool-leak-detector");
+                thread.setDaemon(true);
+                return thread;
+            });
+            leakDetector.scheduleAtFixedRate(this::reportLeaks, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            leakDetector = null;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool is closed.");
+        }
+        if (!permits.tryAcquire()) {
+            awaitPermit();
+        }
+        try {
+            PhysicalConnection physical = takeIdle();
+            if (physical == null) {
+                physical = new PhysicalConnection(DriverManager.getConnection(url));
+            }
+            Borrow borrow = new Borrow(physical, leakThresholdNanos > 0 ? new Throwable("Borrowed here") : null);
+            if (borrow.trace != null) {
+                borrowed.add(borrow);
+            }
+            activeCount.incrementAndGet();
+            borrows.increment();
+            borrow.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, borrow);
+            return borrow.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pool only opens connections with the credentials of its URL.");
+    }
+
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(activeCount.get(), idleCount.get(), borrows.sum(), waits.sum(), totalWaitNanos.sum(),
+                maxWaitedNanos.get(), timeouts.sum(), leaks.sum(), statementHits.sum(), statementMisses.sum());
+    }
+
+    /**
+     * Closes the idle connections. The borrowed ones are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            physical.close();
+        }
+    }
+
+    private void awaitPermit() throws SQLException {
+        waits.increment();
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection.", e);
+        } finally {
+            long waited = System.nanoTime() - start;
+            totalWaitNanos.add(waited);
+            maxWaitedNanos.accumulateAndGet(waited, Math::max);
+        }
+        if (!acquired) {
+            timeouts.increment();
+            throw new SQLTransientConnectionException("No connection available after "
+                    + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms.");
+        }
+    }
+
+    /**
+     * Returns the most recently used idle connection that is still valid, or null to open a new one.
+     */
+    private PhysicalConnection takeIdle() {
+        PhysicalConnection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (System.nanoTime() - physical.lastUsed < validationIntervalNanos || physical.isValid()) {
+                return physical;
+            }
+            physical.close();
+        }
+        return null;
+    }
+
+    private void release(Borrow borrow) {
+        borrowed.remove(borrow);
+        PhysicalConnection physical = borrow.physical;
+        if (physical.reset(borrow.statements) && !closed) {
+            physical.lastUsed = System.nanoTime();
+            idle.offerFirst(physical);
+            idleCount.incrementAndGet();
+        } else {
+            physical.close();
+        }
+        activeCount.decrementAndGet();
+        permits.release();
+    }
+
+    private void reportLeaks() {
+        long now = System.nanoTime();
+        for (Borrow borrow : borrowed) {
+            if (!borrow.reported && now - borrow.borrowedAt > leakThresholdNanos) {
+                borrow.reported = true;
+                leaks.increment();
+                System.out.println("WARNING connection of " + url + " held for more than "
+                        + TimeUnit.NANOSECONDS.toMillis(leakThresholdNanos) + " ms, a possible leak:");
+                borrow.trace.printStackTrace(System.out);
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("The pool doesn't use java.util.logging.");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        throw new SQLException("The pool is not a wrapper of " + type.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) {
+        return type.isInstance(this);
+    }
+
+    /**
+     * An open connection and its statement cache. Only the thread that borrowed it uses it, so the cache isn't
+     * synchronized.
+     */
+    private final class PhysicalConnection {
+
+        private final Connection connection;
+        private final Map<String, CachedStatement> statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+        private volatile long lastUsed = System.nanoTime();
+
+        private PhysicalConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Returns the cached statement of the SQL, or prepares it and caches it. A statement in use, or closed by the
+         * driver, is replaced by a new one.
+         */
+        private PreparedStatement prepare(String sql, Borrow borrow) throws SQLException {
+            CachedStatement cached = statementCache.get(sql);
+            if (cached != null && cached.inUse) {
+                statementMisses.increment();
+                return connection.prepareStatement(sql);
+            }
+            if (cached != null && !cached.statement.isClosed()) {
+                statementHits.increment();
+            } else {
+                statementMisses.increment();
+                cached = CachedStatement.of(connection.prepareStatement(sql));
+                statementCache.put(sql, cached);
+            }
+            cached.inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new Lease(cached, borrow));
+        }
+
+        private boolean isValid() {
+            try {
+                return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Closes the statements of the borrower and rolls back its open transaction. Returns false when the
+         * connection is broken and must not go back to the pool.
+         */
+        private boolean reset(List<Statement> statements) {
+            // The cached statements of the borrower return to the cache, and the others are closed.
+            try {
+                for (Statement statement : statements) {
+                    statement.close();
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                return !connection.isClosed();
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void close() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.out.println("ERROR closing a pooled connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The borrowed connection seen by the caller. Its "close()" returns the connection to the pool, and it can't be
+     * used after that. Any other call goes to the physical connection.
+     */
+    private final class Borrow implements InvocationHandler {
+
+        private final PhysicalConnection physical;
+        private final Throwable trace;
+        private final long borrowedAt = System.nanoTime();
+        private final List<Statement> statements = new ArrayList<>();
+        private Connection proxy;
+        private boolean returned;
+        private volatile boolean reported;
+
+        private Borrow(PhysicalConnection physical, Throwable trace) {
+            this.physical = physical;
+            this.trace = trace;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection{" + physical.connection + "}";
+                default:
+                    if (returned) {
+                        throw new SQLException("The connection was returned to the pool.");
+                    }
+            }
+            if (method.getName().equals("prepareStatement") && statementCacheSize > 0 && isCacheable(args)) {
+                PreparedStatement statement = physical.prepare((String) args[0], this);
+                statements.add(statement);
+                return statement;
+            }
+            try {
+                Object result = method.invoke(physical.connection, args);
+                if (result instanceof Statement) {
+                    statements.add((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Only the statements with the default forward only and read only result sets are cached.
+     */
+    private static boolean isCacheable(Object[] args) {
+        return args.length == 1 || (args.length == 3 && (int) args[1] == ResultSet.TYPE_FORWARD_ONLY
+                && (int) args[2] == ResultSet.CONCUR_READ_ONLY);
+    }
+
+    /**
+     * A prepared statement of the cache of a connection. It is evicted by the cache, and closed then, or when it is
+     * released if it was in use.
+     */
+    private static final class CachedStatement {
+
+        private static final Set<String> RESTORED_SETTERS = Set.of("setMaxRows", "setLargeMaxRows",
+                "setQueryTimeout", "setFetchSize", "setFetchDirection", "setMaxFieldSize");
+        private static final Set<String> UNRESTORABLE_SETTERS = Set.of("setEscapeProcessing", "setCursorName",
+                "setPoolable", "closeOnCompletion");
+
+        private final PreparedStatement statement;
+        private final int maxRows;
+        private final int queryTimeout;
+        private final int fetchSize;
+        private final int fetchDirection;
+        private final int maxFieldSize;
+        private boolean inUse;
+        private boolean evicted;
+        private boolean settingsChanged;
+        private boolean unrestorable;
+
+        private CachedStatement(PreparedStatement statement, int maxRows, int queryTimeout, int fetchSize,
+                                int fetchDirection, int maxFieldSize) {
+            this.statement = statement;
+            this.maxRows = maxRows;
+            this.queryTimeout = queryTimeout;
+            this.fetchSize = fetchSize;
+            this.fetchDirection = fetchDirection;
+            this.maxFieldSize = maxFieldSize;
+        }
+
+        /**
+         * Records the settings of the new statement, which are restored when a borrower changes them. The statement
+         * is closed if they can't be read.
+         */
+        private static CachedStatement of(PreparedStatement statement) throws SQLException {
+            try {
+                return new CachedStatement(statement, statement.getMaxRows(), statement.getQueryTimeout(),
+                        statement.getFetchSize(), statement.getFetchDirection(), statement.getMaxFieldSize());
+            } catch (SQLException e) {
+                try {
+                    statement.close();
+                } catch (SQLException closeError) {
+                    e.addSuppressed(closeError);
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Notes the setters called by the borrower, before they go to the statement.
+         */
+        private void onCall(String method) {
+            if (RESTORED_SETTERS.contains(method)) {
+                settingsChanged = true;
+            } else if (UNRESTORABLE_SETTERS.contains(method)) {
+                unrestorable = true;
+            }
+        }
+
+        private void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeStatement();
+            }
+        }
+
+        /**
+         * Clears the parameters and the batch left by the borrower, and restores the settings it changed, so the next
+         * one finds the statement as new.
+         */
+        private void release() {
+            inUse = false;
+            try {
+                if (evicted || unrestorable || statement.isClosed()) {
+                    closeStatement();
+                    return;
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                if (settingsChanged) {
+                    restoreSettings();
+                }
+            } catch (SQLException e) {
+                closeStatement();
+            }
+        }
+
+        private void restoreSettings() throws SQLException {
+            if (statement.getMaxRows() != maxRows) {
+                statement.setMaxRows(maxRows);
+            }
+            if (statement.getQueryTimeout() != queryTimeout) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+            if (statement.getFetchSize() != fetchSize) {
+                statement.setFetchSize(fetchSize);
+            }
+            if (statement.getFetchDirection() != fetchDirection) {
+                statement.setFetchDirection(fetchDirection);
+            }
+            if (statement.getMaxFieldSize() != maxFieldSize) {
+                statement.setMaxFieldSize(maxFieldSize);
+            }
+            settingsChanged = false;
+        }
+
+        private void closeStatement() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.out.println("ERROR closing a cached statement: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The cached statement seen by the borrower. Its "close()" returns the statement to the cache, and it can't be
+     * used after that.
+     */
+    private static final class Lease implements InvocationHandler {
+
+        private final CachedStatement cached;
+        private final Borrow borrow;
+        private boolean closed;
+
+        private Lease(CachedStatement cached, Borrow borrow) {
+            this.cached = cached;
+            this.borrow = borrow;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        cached.release();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || cached.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement{" + cached.statement + "}";
+                default:
+                    if (closed) {
+                        throw new SQLException("The statement was closed.");
+                    }
+            }
+            if (method.getName().equals("getConnection")) {
+                return borrow.proxy;
+            }
+            cached.onCall(method.getName());
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
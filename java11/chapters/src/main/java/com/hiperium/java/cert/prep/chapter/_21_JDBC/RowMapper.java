@@ -0,0 +1,13 @@
+package com.hiperium.java.cert.prep.chapter._21_JDBC;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a ResultSet to an object. The mapper must not move the cursor.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,121 @@
+package com.hiperium.java.cert.prep.chapter._21_JDBC;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs a query and returns its rows as a lazy Stream, instead of reading the whole ResultSet into a collection first.
+ * Every row is mapped when the stream pulls it, and the driver fetches "fetchSize" rows at a time, so a full scan of a
+ * table keeps only one fetch in memory, as long as the stream itself doesn't collect the rows.
+ *
+ * The stream owns the connection, the statement and the ResultSet, and closes them when it is closed, so it must be
+ * used in a try-with-resources statement. An SQLException thrown while reading the rows is rethrown as an
+ * IllegalStateException.
+ */
+public class StreamingQuery {
+
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    private StreamingQuery() {
+    }
+
+    public static <T> Stream<T> stream(DataSource dataSource, String sql, RowMapper<T> mapper, Object... params)
+            throws SQLException {
+        return stream(dataSource, sql, DEFAULT_FETCH_SIZE, mapper, params);
+    }
+
+    /**
+     * Runs the query, whose parameters are bound in order, and returns a stream of its mapped rows.
+     */
+    public static <T> Stream<T> stream(DataSource dataSource, String sql, int fetchSize, RowMapper<T> mapper,
+                                       Object... params) throws SQLException {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("The fetch size must be positive: " + fetchSize);
+        }
+        Connection conn = dataSource.getConnection();
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            ResultSet rs = ps.executeQuery();
+            rs.setFetchSize(fetchSize);
+            Cursor<T> cursor = new Cursor<>(conn, ps, rs, mapper);
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(ps, e);
+            closeQuietly(conn, e);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable resource, Exception cause) {
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Moves the ResultSet one row at a time, and closes the resources as soon as the last row has been read.
+     */
+    private static final class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final Connection conn;
+        private final PreparedStatement ps;
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private boolean closed;
+
+        private Cursor(Connection conn, PreparedStatement ps, ResultSet rs, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.conn = conn;
+            this.ps = ps;
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw new IllegalStateException("ERROR reading a row: " + e.getMessage(), e);
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (conn; ps; rs) {
+                // Closes the ResultSet, the statement and then the connection, even if one of them fails.
+            } catch (SQLException e) {
+                throw new IllegalStateException("ERROR closing a query: " + e.getMessage(), e);
+            }
+        }
+    }
+}
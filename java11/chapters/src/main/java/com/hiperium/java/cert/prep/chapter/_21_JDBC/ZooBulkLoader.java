@@ -0,0 +1,344 @@
+package com.hiperium.java.cert.prep.chapter._21_JDBC;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Inserts large streams of rows, like the "names" and "exhibits" of the zoo, with JDBC batches. Unlike a single
+ * "executeBatch()" in auto-commit mode, the rows are sent in batches of "batchSize" rows and committed every
+ * "commitInterval" rows, so neither the driver nor the database has to hold the whole load in memory or in one
+ * transaction.
+ *
+ * The rows of a transaction are kept until it commits. When a batch or the commit fails with a transient error, like a
+ * deadlock or a lost connection, the transaction is rolled back and its rows are sent again, up to "maxRetries" times.
+ * After a connection error, or a rollback that fails, the connection is closed and the rows are sent on a new one from
+ * the data source, with the statement prepared again. Any other error stops the load, but the transactions that were
+ * already committed are not undone.
+ *
+ * A partitioned load reads every stream on its own thread and its own connection, so the data source must be able to
+ * hand out one connection per partition.
+ */
+public class ZooBulkLoader {
+
+    public static final String INSERT_EXHIBIT_SQL = "INSERT INTO exhibits (id, name, num_acres) VALUES (?, ?, ?)";
+    public static final String INSERT_NAME_SQL = "INSERT INTO names (id, species_id, name) VALUES (?, ?, ?)";
+
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    public static final int DEFAULT_COMMIT_INTERVAL = 10_000;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofMillis(100);
+
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final int commitInterval;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+
+    public ZooBulkLoader(DataSource dataSource) {
+        this(dataSource, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL, DEFAULT_MAX_RETRIES, DEFAULT_RETRY_BACKOFF);
+    }
+
+    /**
+     * The commit interval is rounded up to a whole number of batches.
+     */
+    public ZooBulkLoader(DataSource dataSource, int batchSize, int commitInterval, int maxRetries,
+                         Duration retryBackoff) {
+        if (batchSize <= 0 || commitInterval <= 0 || maxRetries < 0) {
+            throw new IllegalArgumentException("The batch size and the commit interval must be positive, and the "
+                    + "retries can't be negative: " + batchSize + ", " + commitInterval + ", " + maxRetries);
+        }
+        this.dataSource = dataSource;
+        this.batchSize = batchSize;
+        this.commitInterval = (commitInterval + batchSize - 1) / batchSize * batchSize;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+    }
+
+    /**
+     * Inserts every row of the stream with the SQL statement, whose parameters are the values of the row in order.
+     */
+    public BulkLoadResult load(String sql, Stream<Object[]> rows) throws SQLException {
+        long start = System.nanoTime();
+        Counters counters = new Counters();
+        loadPartition(sql, rows, counters);
+        return counters.toResult(start);
+    }
+
+    /**
+     * Inserts the rows of every partition on its own connection, in parallel, and returns the totals. If a partition
+     * fails, the others are interrupted and stop before their next row, keeping the transactions they already
+     * committed. The method returns once all of them stopped, and throws the error of the partition that failed first.
+     */
+    public BulkLoadResult loadPartitioned(String sql, List<? extends Stream<Object[]>> partitions)
+            throws SQLException {
+        long start = System.nanoTime();
+        if (partitions.isEmpty()) {
+            return new Counters().toResult(start);
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(partitions.size(), runnable -> {
+            Thread thread = new Thread(runnable, "zoo-bulk-load-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<Void> completion = new ExecutorCompletionService<>(workers);
+            List<Counters> counters = new ArrayList<>(partitions.size());
+            for (Stream<Object[]> partition : partitions) {
+                Counters partitionCounters = new Counters();
+                counters.add(partitionCounters);
+                completion.submit(() -> {
+                    loadPartition(sql, partition, partitionCounters);
+                    return null;
+                });
+            }
+            for (int i = 0; i < partitions.size(); i++) {
+                completion.take().get();
+            }
+            Counters total = new Counters();
+            counters.forEach(total::add);
+            return total.toResult(start);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new IllegalStateException("ERROR loading a partition: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while loading the partitions.", e);
+        } finally {
+            workers.shutdownNow();
+            awaitTermination(workers);
+        }
+    }
+
+    private void loadPartition(String sql, Stream<Object[]> rows, Counters counters) throws SQLException {
+        try (rows; var session = new Session(dataSource, sql)) {
+            List<Object[]> transaction = new ArrayList<>(Math.min(commitInterval, 64 * batchSize));
+            int sent = 0;
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new SQLException("Interrupted while loading the rows, after " + counters.rows + " rows.");
+                }
+                transaction.add(iterator.next());
+                if (transaction.size() == commitInterval) {
+                    sent = send(session, transaction, sent, true, counters);
+                    transaction.clear();
+                    sent = 0;
+                } else if (transaction.size() - sent == batchSize) {
+                    sent = send(session, transaction, sent, false, counters);
+                }
+            }
+            if (!transaction.isEmpty()) {
+                send(session, transaction, sent, true, counters);
+            }
+        }
+    }
+
+    /**
+     * Sends the rows of the transaction from "sent" on, and commits them when asked. If that fails with a transient
+     * error, the transaction is rolled back and all its rows are sent again, on a new connection if the connection
+     * broke. Returns the rows sent.
+     */
+    private int send(Session session, List<Object[]> transaction, int sent, boolean commit, Counters counters)
+            throws SQLException {
+        int from = sent;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                executeBatches(session.ps, transaction, from, counters);
+                if (commit) {
+                    session.conn.commit();
+                    counters.commits++;
+                    counters.rows += transaction.size();
+                }
+                return transaction.size();
+            } catch (SQLException e) {
+                boolean broken = isConnectionError(e);
+                try {
+                    session.ps.clearBatch();
+                    session.conn.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                    broken = true;
+                }
+                if (attempt == maxRetries || !isTransient(e)) {
+                    throw e;
+                }
+                counters.retries++;
+                from = 0;
+                backOff(attempt, e);
+                if (broken) {
+                    session.reopen(e);
+                }
+            }
+        }
+    }
+
+    private void executeBatches(PreparedStatement ps, List<Object[]> rows, int from, Counters counters)
+            throws SQLException {
+        for (int i = from; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            for (int column = 0; column < row.length; column++) {
+                ps.setObject(column + 1, row[column]);
+            }
+            ps.addBatch();
+            if ((i - from + 1) % batchSize == 0 || i == rows.size() - 1) {
+                ps.executeBatch();
+                counters.batches++;
+            }
+        }
+    }
+
+    private void backOff(int attempt, SQLException cause) throws SQLException {
+        try {
+            Thread.sleep(retryBackoff.toMillis() * (attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cause.addSuppressed(e);
+            throw cause;
+        }
+    }
+
+    /**
+     * A transient error is one that may not happen again: a "java.sql" transient or recoverable exception, or an
+     * SQLState of the "08" (connection) or "40" (transaction rollback, like a deadlock) classes.
+     */
+    private static boolean isTransient(SQLException e) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            String state = next.getSQLState();
+            if (next instanceof SQLTransientException || next instanceof SQLRecoverableException
+                    || next.getCause() instanceof SQLTransientException
+                    || (state != null && (state.startsWith("08") || state.startsWith("40")))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A connection error is a "java.sql" recoverable exception, or an SQLState of the "08" (connection) class. The
+     * connection may not be usable after it.
+     */
+    private static boolean isConnectionError(SQLException e) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            String state = next.getSQLState();
+            if (next instanceof SQLRecoverableException || (state != null && state.startsWith("08"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The partitions stop at the next row once they are interrupted, but a batch can take longer, so this waits for as
+     * long as it takes. An interrupt stops the wait, and the interrupt status is kept for the caller.
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The connection of a partition, without auto-commit, and its prepared statement. Both are opened again when the
+     * connection breaks.
+     */
+    private static final class Session implements AutoCloseable {
+
+        private final DataSource dataSource;
+        private final String sql;
+        private Connection conn;
+        private PreparedStatement ps;
+
+        private Session(DataSource dataSource, String sql) throws SQLException {
+            this.dataSource = dataSource;
+            this.sql = sql;
+            open();
+        }
+
+        private void open() throws SQLException {
+            conn = dataSource.getConnection();
+            try {
+                conn.setAutoCommit(false);
+                ps = conn.prepareStatement(sql);
+            } catch (SQLException e) {
+                try {
+                    conn.close();
+                } catch (SQLException closeError) {
+                    e.addSuppressed(closeError);
+                }
+                conn = null;
+                throw e;
+            }
+        }
+
+        /**
+         * Closes the broken connection, so a pool can discard it, and opens a new one. The errors of the close are
+         * added to the cause, and so is the cause to the error of the new connection.
+         */
+        private void reopen(SQLException cause) throws SQLException {
+            try {
+                close();
+            } catch (SQLException closeError) {
+                cause.addSuppressed(closeError);
+            }
+            try {
+                open();
+            } catch (SQLException e) {
+                e.addSuppressed(cause);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try (Connection closingConn = conn; PreparedStatement closingPs = ps) {
+                conn = null;
+                ps = null;
+            }
+        }
+    }
+
+    /**
+     * The counters of one partition, only updated by its thread.
+     */
+    private static final class Counters {
+
+        private long rows;
+        private long batches;
+        private long commits;
+        private long retries;
+
+        private void add(Counters other) {
+            rows += other.rows;
+            batches += other.batches;
+            commits += other.commits;
+            retries += other.retries;
+        }
+
+        private BulkLoadResult toResult(long start) {
+            return new BulkLoadResult(rows, batches, commits, retries, System.nanoTime() - start);
+        }
+    }
+}
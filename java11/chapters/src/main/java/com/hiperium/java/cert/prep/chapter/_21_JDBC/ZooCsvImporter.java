@@ -0,0 +1,85 @@
+package com.hiperium.java.cert.prep.chapter._21_JDBC;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.io.CsvImporter;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.io.ImportProgress;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.io.RecordMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Loads the "exhibits" and "names" tables from CSV files with a header line, like "id,name,num_acres" and
+ * "id,species_id,name". The CsvImporter parses the files in parallel, and every batch of rows is inserted with a JDBC
+ * batch in its own transaction, on a pooled connection borrowed by the worker thread. The exhibits must be imported
+ * first, because the names reference them.
+ */
+public class ZooCsvImporter {
+
+    private static final RecordMapper<Object[]> EXHIBIT_MAPPER = record -> new Object[]{
+            record.getInt(0), record.getString(1), new BigDecimal(record.getString(2))};
+    private static final RecordMapper<Object[]> NAME_MAPPER = record -> new Object[]{
+            record.getInt(0), record.getInt(1), record.getString(2)};
+
+    /**
+     * Imports the exhibits file and then the names file, given as arguments, in the HSQLDB "zoo" database.
+     */
+    public static void main(String[] args) throws IOException {
+        CsvImporter importer = new CsvImporter();
+        Consumer<ImportProgress> printer = progress -> System.out.printf("%,d rows (%.0f%%), %,.0f rows/s%n",
+                progress.getRows(), progress.getFractionDone() * 100, progress.getRowsPerSecond());
+        System.out.println("Exhibits: " + importExhibits(JDBCInterfaces.HSQL_DATA_SOURCE, Path.of(args[0]),
+                importer, printer));
+        System.out.println("Names: " + importNames(JDBCInterfaces.HSQL_DATA_SOURCE, Path.of(args[1]),
+                importer, printer));
+    }
+
+    public static ImportProgress importExhibits(String url, Path file, CsvImporter importer,
+                                                Consumer<ImportProgress> listener) throws IOException {
+        try (var dataSource = new PooledDataSource(url)) {
+            return importExhibits(dataSource, file, importer, listener);
+        }
+    }
+
+    public static ImportProgress importExhibits(DataSource dataSource, Path file, CsvImporter importer,
+                                                Consumer<ImportProgress> listener) throws IOException {
+        return importer.importFile(file, true, EXHIBIT_MAPPER,
+                insertBatch(dataSource, ZooBulkLoader.INSERT_EXHIBIT_SQL), listener);
+    }
+
+    public static ImportProgress importNames(String url, Path file, CsvImporter importer,
+                                             Consumer<ImportProgress> listener) throws IOException {
+        try (var dataSource = new PooledDataSource(url)) {
+            return importNames(dataSource, file, importer, listener);
+        }
+    }
+
+    public static ImportProgress importNames(DataSource dataSource, Path file, CsvImporter importer,
+                                             Consumer<ImportProgress> listener) throws IOException {
+        return importer.importFile(file, true, NAME_MAPPER,
+                insertBatch(dataSource, ZooBulkLoader.INSERT_NAME_SQL), listener);
+    }
+
+    private static Consumer<List<Object[]>> insertBatch(DataSource dataSource, String sql) {
+        return rows -> {
+            try (var conn = dataSource.getConnection(); var ps = conn.prepareStatement(sql)) {
+                conn.setAutoCommit(false);
+                for (Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) {
+                        ps.setObject(i + 1, row[i]);
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                throw new IllegalStateException("ERROR inserting a batch of " + rows.size() + " rows: "
+                        + e.getMessage(), e);
+            }
+        };
+    }
+}
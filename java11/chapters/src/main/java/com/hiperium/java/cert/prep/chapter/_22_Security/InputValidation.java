@@ -1,10 +1,11 @@
 package com.hiperium.java.cert.prep.chapter._22_Security;
 
+import com.hiperium.java.cert.prep.chapter._21_JDBC.JDBCInterfaces;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.stream.Stream;
 
@@ -37,7 +38,7 @@ public class InputValidation {
     }
 
     private static int getOpeningWithStatement(String day) {
-        try (var conn = DriverManager.getConnection("jdbc:derby:zoo")) {
+        try (var conn = JDBCInterfaces.DERBY_DATA_SOURCE.getConnection()) {
             String sql = "SELECT opens FROM hours WHERE day = '" + day + "'";
             try (var stmt = conn.createStatement()) {
                 var rs = stmt.executeQuery(sql);
@@ -62,7 +63,7 @@ public class InputValidation {
     }
 
     private static int getOpeningWithPrepareStatement(String day) {
-        try (var conn = DriverManager.getConnection("jdbc:derby:zoo")) {
+        try (var conn = JDBCInterfaces.DERBY_DATA_SOURCE.getConnection()) {
             String sql = "SELECT opens FROM hours WHERE day = ?";
             try (var ps = conn.prepareStatement(sql)) {
                 ps.setString(1, day);
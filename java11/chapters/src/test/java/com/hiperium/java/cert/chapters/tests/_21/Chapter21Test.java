@@ -0,0 +1,796 @@
+package com.hiperium.java.cert.chapters.tests._21;
+
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.io.CsvImporter;
+import com.hiperium.java.cert.prep.chapter._11_Modules.api.io.ImportProgress;
+import com.hiperium.java.cert.prep.chapter._21_JDBC.BulkLoadResult;
+import com.hiperium.java.cert.prep.chapter._21_JDBC.IntIntMap;
+import com.hiperium.java.cert.prep.chapter._21_JDBC.IntObjectMap;
+import com.hiperium.java.cert.prep.chapter._21_JDBC.PoolMetrics;
+import com.hiperium.java.cert.prep.chapter._21_JDBC.PooledDataSource;
+import com.hiperium.java.cert.prep.chapter._21_JDBC.StreamingQuery;
+import com.hiperium.java.cert.prep.chapter._21_JDBC.ZooBulkLoader;
+import com.hiperium.java.cert.prep.chapter._21_JDBC.ZooCsvImporter;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class Chapter21Test {
+
+    private static final String URL = "jdbc:hsqldb:mem:zoo-test";
+    private static Connection conn;
+
+    @BeforeClass
+    public static void createTables() throws SQLException {
+        conn = DriverManager.getConnection(URL);
+        createZooTables(conn);
+    }
+
+    private static void createZooTables(Connection conn) throws SQLException {
+        try (var stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE exhibits ("
+                    + "id INTEGER PRIMARY KEY, "
+                    + "name VARCHAR(255), "
+                    + "num_acres DECIMAL(4,1))");
+            stmt.executeUpdate("CREATE TABLE names ("
+                    + "id INTEGER PRIMARY KEY, "
+                    + "species_id integer REFERENCES exhibits (id), "
+                    + "name VARCHAR(255))");
+        }
+    }
+
+    @AfterClass
+    public static void dropDatabase() throws SQLException {
+        try (var stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        }
+        conn.close();
+    }
+
+    @Test
+    public void importZooCsvFiles() throws IOException, SQLException {
+        Path exhibits = Files.createTempFile("exhibits", ".csv");
+        Path names = Files.createTempFile("names", ".csv");
+        try {
+            Files.writeString(exhibits, "id,name,num_acres\n"
+                    + "1,African Elephant,7.5\n"
+                    + "2,Zebra,1.2\n"
+                    + "3,\"Penguin, Emperor\",0.5\n");
+            List<String> lines = new ArrayList<>();
+            lines.add("id,species_id,name");
+            for (int id = 1; id <= 100_000; id++) {
+                lines.add(id + "," + (id % 3 + 1) + ",Name " + id);
+            }
+            Files.write(names, lines);
+            CsvImporter importer = new CsvImporter(4, 500, Duration.ofMillis(100));
+            List<ImportProgress> reports = new ArrayList<>();
+            Assert.assertEquals(3, ZooCsvImporter.importExhibits(URL, exhibits, importer, reports::add).getRows());
+            ImportProgress progress = ZooCsvImporter.importNames(URL, names, importer, reports::add);
+            System.out.println("Names imported: " + progress);
+            Assert.assertEquals(100_000, progress.getRows());
+            Assert.assertEquals(Files.size(names), progress.getBytes());
+            Assert.assertEquals(progress, reports.get(reports.size() - 1));
+            try (var ps = conn.prepareStatement("SELECT num_acres FROM exhibits WHERE name = 'Penguin, Emperor'");
+                 var rs = ps.executeQuery()) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(new BigDecimal("0.5"), rs.getBigDecimal(1));
+            }
+            try (var ps = conn.prepareStatement("SELECT count(*), sum(species_id) FROM names");
+                 var rs = ps.executeQuery()) {
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(100_000, rs.getInt(1));
+                Assert.assertEquals(200_000, rs.getLong(2));
+            }
+        } finally {
+            Files.deleteIfExists(exhibits);
+            Files.deleteIfExists(names);
+        }
+    }
+
+    @Test
+    public void pooledConnectionsAreReused() throws SQLException {
+        try (var dataSource = new PooledDataSource(URL, 2, Duration.ofSeconds(1), Duration.ofSeconds(30),
+                Duration.ZERO)) {
+            Connection physical = null;
+            for (int i = 0; i < 100; i++) {
+                try (var pooled = dataSource.getConnection(); var ps = pooled.prepareStatement("VALUES (1)")) {
+                    Connection current = pooled.unwrap(Connection.class);
+                    Assert.assertTrue(physical == null || physical == current);
+                    physical = current;
+                    ps.executeQuery().close();
+                }
+            }
+            PoolMetrics metrics = dataSource.getMetrics();
+            Assert.assertEquals(100, metrics.getBorrows());
+            Assert.assertEquals(0, metrics.getActive());
+            Assert.assertEquals(1, metrics.getIdle());
+            Assert.assertEquals(0, metrics.getWaits());
+        }
+    }
+
+    @Test
+    public void returnedConnectionsAreReset() throws SQLException {
+        try (var dataSource = new PooledDataSource(URL, 1, Duration.ofSeconds(1), Duration.ofSeconds(30),
+                Duration.ZERO)) {
+            var pooled = dataSource.getConnection();
+            pooled.setAutoCommit(false);
+            var ps = pooled.prepareStatement("INSERT INTO exhibits VALUES (99, 'Deer', 3)");
+            ps.executeUpdate();
+            pooled.close();
+            Assert.assertTrue(pooled.isClosed());
+            Assert.assertTrue(ps.isClosed());
+            Assert.assertThrows(SQLException.class, pooled::createStatement);
+            try (var next = dataSource.getConnection();
+                 var rs = next.createStatement().executeQuery("SELECT count(*) FROM exhibits WHERE id = 99")) {
+                Assert.assertTrue(next.getAutoCommit());
+                Assert.assertTrue(rs.next());
+                Assert.assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    public void brokenIdleConnectionsAreReplaced() throws SQLException {
+        try (var dataSource = new PooledDataSource(URL, 1, Duration.ofSeconds(1), Duration.ZERO, Duration.ZERO)) {
+            Connection physical;
+            try (var pooled = dataSource.getConnection()) {
+                physical = pooled.unwrap(Connection.class);
+            }
+            physical.close();
+            try (var pooled = dataSource.getConnection(); var stmt = pooled.createStatement()) {
+                Assert.assertNotSame(physical, pooled.unwrap(Connection.class));
+                Assert.assertTrue(stmt.execute("VALUES (1)"));
+            }
+        }
+    }
+
+    @Test
+    public void exhaustedPoolTimesOut() throws SQLException {
+        try (var dataSource = new PooledDataSource(URL, 1, Duration.ofMillis(50), Duration.ofSeconds(30),
+                Duration.ZERO);
+             var held = dataSource.getConnection()) {
+            Assert.assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+            PoolMetrics metrics = dataSource.getMetrics();
+            Assert.assertEquals(1, metrics.getActive());
+            Assert.assertEquals(1, metrics.getWaits());
+            Assert.assertEquals(1, metrics.getTimeouts());
+            Assert.assertTrue(metrics.getMaxWait().toMillis() >= 45);
+            Assert.assertFalse(held.isClosed());
+        }
+    }
+
+    @Test
+    public void heldConnectionsAreReportedAsLeaks() throws SQLException, InterruptedException {
+        try (var dataSource = new PooledDataSource(URL, 2, Duration.ofSeconds(1), Duration.ofSeconds(30),
+                Duration.ofMillis(50))) {
+            try (var held = dataSource.getConnection()) {
+                Thread.sleep(300);
+            }
+            try (var quick = dataSource.getConnection()) {
+                Assert.assertFalse(quick.isClosed());
+            }
+            Assert.assertEquals(1, dataSource.getMetrics().getLeaks());
+        }
+    }
+
+    /**
+     * Prints the average time of a small query with a new connection every time, against a pooled connection. It
+     * only runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void pooledAgainstNewConnections() throws SQLException {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        int queries = 5_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            try (var conn = DriverManager.getConnection(URL); var ps = conn.prepareStatement("VALUES (1)");
+                 var rs = ps.executeQuery()) {
+                Assert.assertTrue(rs.next());
+            }
+        }
+        long newConnectionNanos = (System.nanoTime() - start) / queries;
+        try (var dataSource = new PooledDataSource(URL)) {
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                try (var conn = dataSource.getConnection(); var ps = conn.prepareStatement("VALUES (1)");
+                     var rs = ps.executeQuery()) {
+                    Assert.assertTrue(rs.next());
+                }
+            }
+            long pooledNanos = (System.nanoTime() - start) / queries;
+            System.out.println("Query latency with a new connection: " + newConnectionNanos / 1_000 + " us, with a"
+                    + " pooled connection: " + pooledNanos / 1_000 + " us. " + dataSource.getMetrics());
+        }
+    }
+
+    @Test
+    public void preparedStatementsAreCached() throws SQLException {
+        try (var dataSource = new PooledDataSource(URL, 1, Duration.ofSeconds(1), Duration.ofSeconds(30),
+                Duration.ZERO, 2)) {
+            PreparedStatement physical = null;
+            for (int i = 0; i < 10; i++) {
+                try (var pooled = dataSource.getConnection(); var ps = pooled.prepareStatement("VALUES (?)")) {
+                    Assert.assertSame(pooled, ps.getConnection());
+                    PreparedStatement current = ps.unwrap(PreparedStatement.class);
+                    Assert.assertTrue(physical == null || physical == current);
+                    physical = current;
+                    ps.setInt(1, i);
+                    try (var rs = ps.executeQuery()) {
+                        Assert.assertTrue(rs.next());
+                        Assert.assertEquals(i, rs.getInt(1));
+                    }
+                    ps.close();
+                    Assert.assertTrue(ps.isClosed());
+                    Assert.assertFalse(physical.isClosed());
+                    Assert.assertThrows(SQLException.class, ps::executeQuery);
+                }
+            }
+            Assert.assertEquals(9, dataSource.getMetrics().getStatementHits());
+            Assert.assertEquals(1, dataSource.getMetrics().getStatementMisses());
+
+            try (var pooled = dataSource.getConnection()) {
+                // The parameters of the last borrower are cleared.
+                try (var ps = pooled.prepareStatement("VALUES (?)")) {
+                    Assert.assertThrows(SQLException.class, ps::executeQuery);
+                }
+                // A statement that is still open is not shared.
+                try (var outer = pooled.prepareStatement("VALUES (?)");
+                     var inner = pooled.prepareStatement("VALUES (?)")) {
+                    Assert.assertNotSame(outer.unwrap(PreparedStatement.class), inner.unwrap(PreparedStatement.class));
+                }
+                // The least recently used statement is evicted, and closed.
+                pooled.prepareStatement("VALUES (2)").close();
+                pooled.prepareStatement("VALUES (3)").close();
+                Assert.assertTrue(physical.isClosed());
+                try (var ps = pooled.prepareStatement("VALUES (?)")) {
+                    Assert.assertNotSame(physical, ps.unwrap(PreparedStatement.class));
+                }
+            }
+            PoolMetrics metrics = dataSource.getMetrics();
+            Assert.assertEquals(11, metrics.getStatementHits());
+            Assert.assertEquals(5, metrics.getStatementMisses());
+            Assert.assertEquals(11.0 / 16, metrics.getStatementHitRatio(), 1e-9);
+        }
+    }
+
+    @Test
+    public void cachedStatementSettingsAreRestored() throws SQLException {
+        String sql = "VALUES (1), (2), (3)";
+        try (var dataSource = new PooledDataSource(URL, 1, Duration.ofSeconds(1), Duration.ofSeconds(30),
+                Duration.ZERO, 2)) {
+            PreparedStatement physical;
+            try (var pooled = dataSource.getConnection(); var ps = pooled.prepareStatement(sql)) {
+                physical = ps.unwrap(PreparedStatement.class);
+                ps.setMaxRows(1);
+                ps.setQueryTimeout(5);
+                ps.setFetchSize(1);
+                Assert.assertEquals(1, countRows(ps));
+            }
+            try (var pooled = dataSource.getConnection(); var ps = pooled.prepareStatement(sql)) {
+                Assert.assertSame(physical, ps.unwrap(PreparedStatement.class));
+                Assert.assertEquals(0, ps.getMaxRows());
+                Assert.assertEquals(0, ps.getQueryTimeout());
+                Assert.assertEquals(3, countRows(ps));
+                // The escape processing can't be read back, so the statement is closed instead.
+                ps.setEscapeProcessing(false);
+            }
+            Assert.assertTrue(physical.isClosed());
+            try (var pooled = dataSource.getConnection(); var ps = pooled.prepareStatement(sql)) {
+                Assert.assertNotSame(physical, ps.unwrap(PreparedStatement.class));
+                Assert.assertEquals(3, countRows(ps));
+            }
+        }
+    }
+
+    @Test
+    public void statementsArePreparedAgainOnANewConnection() throws SQLException {
+        try (var dataSource = new PooledDataSource(URL, 1, Duration.ofSeconds(1), Duration.ZERO, Duration.ZERO)) {
+            try (var pooled = dataSource.getConnection(); var ps = pooled.prepareStatement("VALUES (1)")) {
+                ps.executeQuery().close();
+                pooled.unwrap(Connection.class).close();
+            }
+            try (var pooled = dataSource.getConnection(); var ps = pooled.prepareStatement("VALUES (1)");
+                 var rs = ps.executeQuery()) {
+                Assert.assertTrue(rs.next());
+            }
+            Assert.assertEquals(0, dataSource.getMetrics().getStatementHits());
+            Assert.assertEquals(2, dataSource.getMetrics().getStatementMisses());
+        }
+    }
+
+    /**
+     * Prints the average time of borrowing a connection and running a lookup of a name, with and without the
+     * statement cache. It only runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void statementCacheAgainstPreparingEveryTime() throws SQLException {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        String url = "jdbc:hsqldb:mem:zoo-statements";
+        String sql = "SELECT n.name FROM names n JOIN exhibits e ON e.id = n.species_id "
+                + "WHERE n.id = ? AND e.num_acres > ?";
+        int lookups = 20_000;
+        for (int cacheSize : new int[]{0, PooledDataSource.DEFAULT_STATEMENT_CACHE_SIZE}) {
+            try (var dataSource = new PooledDataSource(url, 1, Duration.ofSeconds(1), Duration.ofSeconds(30),
+                    Duration.ZERO, cacheSize)) {
+                if (cacheSize == 0) {
+                    createZooTables(dataSource);
+                    new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_EXHIBIT_SQL, exhibitRows());
+                    new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_NAME_SQL, nameRows(1, 1_000));
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < lookups; i++) {
+                    try (var conn = dataSource.getConnection(); var ps = conn.prepareStatement(sql)) {
+                        ps.setInt(1, i % 1_000 + 1);
+                        ps.setBigDecimal(2, BigDecimal.ZERO);
+                        try (var rs = ps.executeQuery()) {
+                            Assert.assertTrue(rs.next());
+                        }
+                    }
+                }
+                System.out.printf("Lookups with a statement cache of %d: %.1f us each, hit ratio %.3f%n", cacheSize,
+                        (System.nanoTime() - start) / 1e3 / lookups, dataSource.getMetrics().getStatementHitRatio());
+            }
+        }
+    }
+
+    @Test
+    public void bulkLoadCommitsInChunks() throws SQLException {
+        String url = "jdbc:hsqldb:mem:zoo-bulk-chunks";
+        try (var dataSource = new PooledDataSource(url)) {
+            createZooTables(dataSource);
+            var loader = new ZooBulkLoader(dataSource, 100, 250, 0, Duration.ZERO);
+            BulkLoadResult exhibits = loader.load(ZooBulkLoader.INSERT_EXHIBIT_SQL, exhibitRows());
+            Assert.assertEquals(3, exhibits.getRows());
+            Assert.assertEquals(1, exhibits.getCommits());
+            BulkLoadResult names = loader.load(ZooBulkLoader.INSERT_NAME_SQL, nameRows(1, 1_050));
+            Assert.assertEquals(1_050, names.getRows());
+            Assert.assertEquals(11, names.getBatches());
+            // The commit interval is rounded up to 3 batches of 100 rows.
+            Assert.assertEquals(4, names.getCommits());
+            Assert.assertEquals(0, names.getRetries());
+            Assert.assertEquals(1_050, countNames(dataSource));
+
+            BulkLoadResult partitioned = loader.loadPartitioned(ZooBulkLoader.INSERT_NAME_SQL,
+                    List.of(nameRows(2_000, 2_999), nameRows(3_000, 3_999), nameRows(4_000, 4_500)));
+            Assert.assertEquals(2_501, partitioned.getRows());
+            Assert.assertEquals(3_551, countNames(dataSource));
+            Assert.assertEquals(0, dataSource.getMetrics().getActive());
+        }
+    }
+
+    @Test
+    public void bulkLoadRetriesTransientErrors() throws SQLException {
+        String url = "jdbc:hsqldb:mem:zoo-bulk-retries";
+        try (var dataSource = new PooledDataSource(url)) {
+            createZooTables(dataSource);
+            new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_EXHIBIT_SQL, exhibitRows());
+            // The 4th batch fails once, at the end of the 2nd transaction, whose first batch must be sent again.
+            var loader = new ZooBulkLoader(failingBatches(dataSource, 4, 1), 100, 200, 2, Duration.ofMillis(1));
+            BulkLoadResult result = loader.load(ZooBulkLoader.INSERT_NAME_SQL, nameRows(1, 1_000));
+            Assert.assertEquals(1_000, result.getRows());
+            Assert.assertEquals(1, result.getRetries());
+            Assert.assertEquals(11, result.getBatches());
+            Assert.assertEquals(1_000, countNames(dataSource));
+
+            var giveUp = new ZooBulkLoader(failingBatches(dataSource, 1, 5), 100, 200, 2, Duration.ofMillis(1));
+            Assert.assertThrows(SQLTransientException.class,
+                    () -> giveUp.load(ZooBulkLoader.INSERT_NAME_SQL, nameRows(2_000, 2_999)));
+            Assert.assertEquals(1_000, countNames(dataSource));
+
+            // A duplicated id is not retried, and the transactions committed before it are kept.
+            var noRetries = new ZooBulkLoader(dataSource, 100, 100, 3, Duration.ofSeconds(10));
+            BatchUpdateException duplicated = Assert.assertThrows(BatchUpdateException.class,
+                    () -> noRetries.load(ZooBulkLoader.INSERT_NAME_SQL, nameRows(1_001, 1_250, 1_000)));
+            Assert.assertTrue(duplicated.getSQLState().startsWith("23"));
+            Assert.assertEquals(1_200, countNames(dataSource));
+        }
+    }
+
+    @Test
+    public void bulkLoadReconnectsAfterABrokenConnection() throws SQLException {
+        String url = "jdbc:hsqldb:mem:zoo-bulk-broken";
+        try (var dataSource = new PooledDataSource(url)) {
+            createZooTables(dataSource);
+            new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_EXHIBIT_SQL, exhibitRows());
+            // The connection breaks at the 4th batch, in the 2nd transaction, which is sent again on a new one.
+            AtomicInteger connections = new AtomicInteger();
+            var loader = new ZooBulkLoader(breakingConnections(url, 4, connections), 100, 200, 2,
+                    Duration.ofMillis(1));
+            BulkLoadResult result = loader.load(ZooBulkLoader.INSERT_NAME_SQL, nameRows(1, 1_000));
+            Assert.assertEquals(1_000, result.getRows());
+            Assert.assertEquals(1, result.getRetries());
+            Assert.assertEquals(11, result.getBatches());
+            Assert.assertEquals(2, connections.get());
+            Assert.assertEquals(1_000, countNames(dataSource));
+        }
+    }
+
+    /**
+     * Prints the rows per second of a single batch in auto-commit mode, like "JDBCInterfaces.register()", against the
+     * chunked and the partitioned bulk loads, on Derby and HSQLDB. It only runs with "-Dbenchmarks=true".
+     */
+    @Test
+    public void bulkLoadAgainstASingleBatch() throws SQLException {
+        Assume.assumeTrue("Run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+        int rows = 100_000;
+        for (String url : new String[]{"jdbc:derby:memory:zoo-bulk;create=true", "jdbc:hsqldb:mem:zoo-bulk"}) {
+            try (var dataSource = new PooledDataSource(url)) {
+                createZooTables(dataSource);
+                new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_EXHIBIT_SQL, exhibitRows());
+
+                long start = System.nanoTime();
+                try (var conn = dataSource.getConnection();
+                     var ps = conn.prepareStatement(ZooBulkLoader.INSERT_NAME_SQL)) {
+                    for (int id = 1; id <= rows; id++) {
+                        ps.setInt(1, id);
+                        ps.setInt(2, id % 3 + 1);
+                        ps.setString(3, "Name " + id);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                double singleBatch = rows * 1e9 / (System.nanoTime() - start);
+                BulkLoadResult chunked = new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_NAME_SQL,
+                        nameRows(rows + 1, 2 * rows));
+                BulkLoadResult partitioned = new ZooBulkLoader(dataSource).loadPartitioned(
+                        ZooBulkLoader.INSERT_NAME_SQL, IntStream.range(0, 4)
+                                .mapToObj(part -> nameRows((2 + part) * rows + 1, (2 + part) * rows + rows / 4))
+                                .collect(Collectors.toList()));
+                Assert.assertEquals(3L * rows, countNames(dataSource));
+                System.out.printf("%s: single batch %,.0f rows/s, chunked %,.0f rows/s, 4 partitions %,.0f rows/s%n",
+                        url, singleBatch, chunked.getRowsPerSecond(), partitioned.getRowsPerSecond());
+            }
+        }
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:zoo-bulk;drop=true");
+        } catch (SQLException e) {
+            // Derby reports a dropped database with the 08006 state.
+            Assert.assertEquals("08006", e.getSQLState());
+        }
+    }
+
+    @Test
+    public void streamedRowsAreReadLazily() throws SQLException {
+        try (var dataSource = new PooledDataSource("jdbc:hsqldb:mem:zoo-stream")) {
+            createZooTables(dataSource);
+            new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_EXHIBIT_SQL, exhibitRows());
+            new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_NAME_SQL, nameRows(1, 10_000));
+            AtomicInteger mapped = new AtomicInteger();
+            String sql = "SELECT id, name FROM names WHERE species_id = ? ORDER BY id";
+            try (Stream<String> names = StreamingQuery.stream(dataSource, sql, 100, rs -> {
+                mapped.incrementAndGet();
+                return rs.getString("name");
+            }, 2)) {
+                Assert.assertEquals(1, dataSource.getMetrics().getActive());
+                Assert.assertEquals(List.of("Name 1", "Name 4", "Name 7"), names.limit(3).collect(Collectors.toList()));
+            }
+            Assert.assertEquals(3, mapped.get());
+            Assert.assertEquals(0, dataSource.getMetrics().getActive());
+
+            // A stream read to the end releases its connection even before it is closed.
+            Stream<Integer> ids = StreamingQuery.stream(dataSource, "SELECT id FROM names", rs -> rs.getInt(1));
+            Assert.assertEquals(10_000, ids.count());
+            Assert.assertEquals(0, dataSource.getMetrics().getActive());
+            ids.close();
+
+            Assert.assertThrows(SQLException.class, () -> StreamingQuery.stream(dataSource, "SELECT * FROM zebras",
+                    rs -> rs.getInt(1)));
+            try (Stream<Integer> failing = StreamingQuery.stream(dataSource, "SELECT name FROM names",
+                    rs -> rs.getInt(1))) {
+                Assert.assertThrows(IllegalStateException.class, failing::count);
+            }
+            Assert.assertEquals(0, dataSource.getMetrics().getActive());
+        }
+    }
+
+    /**
+     * Prints the heap that a full scan of "names" keeps while it is halfway, above the heap after the scan, reading
+     * the rows into a Map like "JDBCInterfaces.readingResultSet()", against a stream of the rows.
+     */
+    @Test
+    public void streamingScanKeepsTheHeapFlat() throws SQLException {
+        int rows = 100_000;
+        String url = "jdbc:derby:memory:zoo-stream;create=true";
+        try (var dataSource = new PooledDataSource(url)) {
+            createZooTables(dataSource);
+            new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_EXHIBIT_SQL, exhibitRows());
+            new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_NAME_SQL, nameRows(1, rows));
+            long[] mapRetained = new long[1];
+            Map<Integer, String> idToName = new HashMap<>();
+            try (var conn = dataSource.getConnection();
+                 var ps = conn.prepareStatement("SELECT id, name FROM names");
+                 var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    idToName.put(rs.getInt("id"), rs.getString("name"));
+                    if (idToName.size() == rows / 2) {
+                        mapRetained[0] = usedHeap();
+                    }
+                }
+            }
+            Assert.assertEquals(rows, idToName.size());
+            idToName.clear();
+            mapRetained[0] -= usedHeap();
+
+            long[] streamRetained = new long[1];
+            AtomicInteger count = new AtomicInteger();
+            try (Stream<String> names = StreamingQuery.stream(dataSource, "SELECT id, name FROM names", rs -> {
+                if (count.incrementAndGet() == rows / 2) {
+                    streamRetained[0] = usedHeap();
+                }
+                return rs.getString("name");
+            })) {
+                Assert.assertEquals(rows, names.filter(name -> name.startsWith("Name ")).count());
+            }
+            streamRetained[0] -= usedHeap();
+            System.out.printf("Heap kept halfway through a scan of %,d names: %,d KB into a Map, %,d KB streaming%n",
+                    rows, mapRetained[0] / 1024, streamRetained[0] / 1024);
+            Assert.assertTrue(streamRetained[0] < mapRetained[0]);
+        }
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:zoo-stream;drop=true");
+        } catch (SQLException e) {
+            Assert.assertEquals("08006", e.getSQLState());
+        }
+    }
+
+    @Test
+    public void intMapsMatchAHashMap() {
+        Random random = new Random(21);
+        IntObjectMap<String> objects = new IntObjectMap<>();
+        IntIntMap ints = new IntIntMap();
+        Map<Integer, String> expectedObjects = new HashMap<>();
+        Map<Integer, Integer> expectedInts = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(10_001) - 5_000;
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    Assert.assertEquals(expectedObjects.put(key, "Name " + i), objects.put(key, "Name " + i));
+                    Assert.assertEquals((int) expectedInts.merge(key, i, Integer::sum), ints.addTo(key, i));
+                    break;
+                case 2:
+                    Assert.assertEquals(expectedObjects.remove(key), objects.remove(key));
+                    Assert.assertEquals(expectedInts.remove(key) != null, ints.remove(key));
+                    break;
+                default:
+                    Assert.assertEquals(expectedObjects.get(key), objects.get(key));
+                    Assert.assertEquals(expectedInts.containsKey(key), ints.containsKey(key));
+                    Assert.assertEquals((int) expectedInts.getOrDefault(key, -1), ints.getOrDefault(key, -1));
+            }
+        }
+        Assert.assertEquals(expectedObjects.size(), objects.size());
+        Assert.assertEquals(expectedInts.size(), ints.size());
+        Map<Integer, String> actualObjects = new HashMap<>();
+        objects.forEach(actualObjects::put);
+        Assert.assertEquals(expectedObjects, actualObjects);
+        Map<Integer, Integer> actualInts = new HashMap<>();
+        ints.forEach(actualInts::put);
+        Assert.assertEquals(expectedInts, actualInts);
+        Assert.assertThrows(NullPointerException.class, () -> objects.put(1, null));
+        objects.clear();
+        Assert.assertTrue(objects.isEmpty());
+        Assert.assertNull(objects.get(0));
+    }
+
+    @Test
+    public void intMapsCollectRowsAndStreams() throws SQLException {
+        try (var dataSource = new PooledDataSource("jdbc:hsqldb:mem:zoo-int-maps")) {
+            createZooTables(dataSource);
+            new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_EXHIBIT_SQL, exhibitRows());
+            new ZooBulkLoader(dataSource).load(ZooBulkLoader.INSERT_NAME_SQL, nameRows(1, 10_000));
+            try (var conn = dataSource.getConnection();
+                 var ps = conn.prepareStatement("SELECT id, species_id, name FROM names")) {
+                IntObjectMap<String> idToName;
+                try (var rs = ps.executeQuery()) {
+                    idToName = IntObjectMap.collect(rs, "id", rs2 -> rs2.getString("name"));
+                }
+                IntIntMap idToSpecies;
+                try (var rs = ps.executeQuery()) {
+                    idToSpecies = IntIntMap.collect(rs, "id", "species_id");
+                }
+                Assert.assertEquals(10_000, idToName.size());
+                Assert.assertEquals("Name 4321", idToName.get(4_321));
+                Assert.assertEquals(10_000, idToSpecies.size());
+                Assert.assertEquals(4_321 % 3 + 1, idToSpecies.getOrDefault(4_321, 0));
+            }
+        }
+        IntIntMap speciesCounts = IntIntMap.counting(IntStream.rangeClosed(1, 10_000).parallel().map(id -> id % 3 + 1));
+        Assert.assertEquals(3, speciesCounts.size());
+        Assert.assertEquals(3_333, speciesCounts.getOrDefault(1, 0));
+        Assert.assertEquals(3_334, speciesCounts.getOrDefault(2, 0));
+        Assert.assertEquals(3_333, speciesCounts.getOrDefault(3, 0));
+        Assert.assertEquals("{7=1}", IntIntMap.counting(IntStream.of(7)).toString());
+        IntObjectMap<String> names = IntObjectMap.collect(IntStream.range(-10, 10_000).parallel(), id -> "Name " + id);
+        Assert.assertEquals(10_010, names.size());
+        Assert.assertEquals("Name 0", names.get(0));
+        Assert.assertEquals("Name -10", names.get(-10));
+        Assert.assertEquals(9_999, IntIntMap.collect(IntStream.range(0, 10_000), id -> id).getOrDefault(9_999, 0));
+    }
+
+    /**
+     * Prints the heap per entry of a million ids mapped to their names, and the lookups per second, for the
+     * IntObjectMap against a HashMap<Integer, String>. The names are created before, so only the maps are measured.
+     */
+    @Test
+    public void intObjectMapAgainstAHashMap() {
+        int entries = 1_000_000;
+        int lookups = 5_000_000;
+        String[] names = new String[entries];
+        Arrays.setAll(names, id -> "Name " + id);
+        int[] keys = new Random(21).ints(lookups, 0, entries).toArray();
+
+        long before = usedHeap();
+        Map<Integer, String> hashMap = new HashMap<>();
+        for (int id = 0; id < entries; id++) {
+            hashMap.put(id, names[id]);
+        }
+        long hashMapBytes = usedHeap() - before;
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int key : keys) {
+            checksum += hashMap.get(key).length();
+        }
+        long hashMapNanos = System.nanoTime() - start;
+        hashMap = null;
+
+        before = usedHeap();
+        IntObjectMap<String> intMap = new IntObjectMap<>();
+        for (int id = 0; id < entries; id++) {
+            intMap.put(id, names[id]);
+        }
+        long intMapBytes = usedHeap() - before;
+        start = System.nanoTime();
+        for (int key : keys) {
+            checksum -= intMap.get(key).length();
+        }
+        long intMapNanos = System.nanoTime() - start;
+
+        Assert.assertEquals(0, checksum);
+        Assert.assertEquals(entries, intMap.size());
+        System.out.printf("HashMap<Integer, String>: %d bytes per entry, %,.0f lookups/s; "
+                        + "IntObjectMap: %d bytes per entry, %,.0f lookups/s%n",
+                hashMapBytes / entries, lookups * 1e9 / hashMapNanos, intMapBytes / entries,
+                lookups * 1e9 / intMapNanos);
+        Assert.assertTrue(intMapBytes < hashMapBytes);
+    }
+
+    private static int countRows(PreparedStatement ps) throws SQLException {
+        int rows = 0;
+        try (var rs = ps.executeQuery()) {
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void createZooTables(DataSource dataSource) throws SQLException {
+        try (var conn = dataSource.getConnection()) {
+            createZooTables(conn);
+        }
+    }
+
+    private static long countNames(DataSource dataSource) throws SQLException {
+        try (var conn = dataSource.getConnection();
+             var rs = conn.createStatement().executeQuery("SELECT count(*) FROM names")) {
+            Assert.assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    private static Stream<Object[]> exhibitRows() {
+        return Stream.of(new Object[]{1, "African Elephant", new BigDecimal("7.5")},
+                new Object[]{2, "Zebra", new BigDecimal("1.2")}, new Object[]{3, "Penguin", new BigDecimal("0.5")});
+    }
+
+    private static Stream<Object[]> nameRows(int firstId, int lastId, int... duplicatedIds) {
+        return IntStream.concat(IntStream.rangeClosed(firstId, lastId), IntStream.of(duplicatedIds))
+                .mapToObj(id -> new Object[]{id, id % 3 + 1, "Name " + id});
+    }
+
+    /**
+     * Returns a data source whose prepared statements fail "failures" times with a transient error, starting at the
+     * nth call to "executeBatch()".
+     */
+    private static DataSource failingBatches(PooledDataSource dataSource, int nth, int failures) {
+        AtomicInteger calls = new AtomicInteger();
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (dsProxy, dsMethod, dsArgs) -> {
+                    Object result = invoke(dataSource, dsMethod, dsArgs);
+                    if (!(result instanceof Connection)) {
+                        return result;
+                    }
+                    Connection connection = (Connection) result;
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                            new Class<?>[]{Connection.class}, (connProxy, connMethod, connArgs) -> {
+                                Object statement = invoke(connection, connMethod, connArgs);
+                                if (!(statement instanceof PreparedStatement)) {
+                                    return statement;
+                                }
+                                return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                        new Class<?>[]{PreparedStatement.class}, (psProxy, psMethod, psArgs) -> {
+                                            if (psMethod.getName().equals("executeBatch")) {
+                                                int call = calls.incrementAndGet();
+                                                if (call >= nth && call < nth + failures) {
+                                                    throw new SQLTransientException("Simulated deadlock");
+                                                }
+                                            }
+                                            return invoke(statement, psMethod, psArgs);
+                                        });
+                            });
+                });
+    }
+
+    /**
+     * Returns a data source of new connections to the URL, whose connection is closed at the nth call to
+     * "executeBatch()", before the call goes on.
+     */
+    private static DataSource breakingConnections(String url, int nth, AtomicInteger connections) {
+        AtomicInteger calls = new AtomicInteger();
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (dsProxy, dsMethod, dsArgs) -> {
+                    if (!dsMethod.getName().equals("getConnection")) {
+                        throw new UnsupportedOperationException(dsMethod.getName());
+                    }
+                    connections.incrementAndGet();
+                    Connection connection = DriverManager.getConnection(url);
+                    return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                            new Class<?>[]{Connection.class}, (connProxy, connMethod, connArgs) -> {
+                                Object statement = invoke(connection, connMethod, connArgs);
+                                if (!(statement instanceof PreparedStatement)) {
+                                    return statement;
+                                }
+                                return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                        new Class<?>[]{PreparedStatement.class}, (psProxy, psMethod, psArgs) -> {
+                                            if (psMethod.getName().equals("executeBatch")
+                                                    && calls.incrementAndGet() == nth) {
+                                                connection.close();
+                                            }
+                                            return invoke(statement, psMethod, psArgs);
+                                        });
+                            });
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}